@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The outcome of one item of a bulk operation. A bulk operation reports every item separately, so that one failure
+ * does not hide the work done for the other items.
+ * @param <T> the type of value produced by a successful item
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class BulkResult<T> {
+    /**
+     * @param name the name of the item, e.g. the volume being created
+     * @param value the value produced for the item
+     * @param <T> the type of value produced
+     * @return the result of an item that succeeded
+     */
+    static public @Nonnull <T> BulkResult<T> success(@Nonnull String name, @Nullable T value) {
+        return new BulkResult<T>(name, value, null);
+    }
+
+    /**
+     * @param name the name of the item, e.g. the volume being created
+     * @param error the reason the item failed
+     * @param <T> the type of value the item would have produced
+     * @return the result of an item that failed
+     */
+    static public @Nonnull <T> BulkResult<T> failure(@Nonnull String name, @Nonnull Exception error) {
+        return new BulkResult<T>(name, null, error);
+    }
+
+    private final String    name;
+    private final T         value;
+    private final Exception error;
+
+    private BulkResult(@Nonnull String name, @Nullable T value, @Nullable Exception error) {
+        this.name = name;
+        this.value = value;
+        this.error = error;
+    }
+
+    public @Nonnull String getName() {
+        return name;
+    }
+
+    /**
+     * @return the value produced for the item, null if it failed
+     */
+    public @Nullable T getValue() {
+        return value;
+    }
+
+    /**
+     * @return the reason the item failed, null if it succeeded
+     */
+    public @Nullable Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return (error == null);
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return name + (error == null ? " -> " + value : " failed: " + error.getMessage());
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import org.dasein.cloud.CloudErrorType;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Raised instead of calling the Google API while the circuit breaker for the target API and location is open.
+ * The request was never sent, so it is safe to retry once the breaker has closed again.
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class CircuitOpenException extends GoogleException {
+    static public final String PROVIDER_CODE = "CircuitOpen";
+
+    private final String circuit;
+    private final long   retryAfter;
+
+    public CircuitOpenException(@Nonnull String circuit, long retryAfter) {
+        super(CloudErrorType.COMMUNICATION, 503, PROVIDER_CODE, "The circuit breaker for " + circuit + " is open, failing fast");
+        this.circuit = circuit;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the name of the open breaker, e.g. {@code my-project/compute/zones/us-central1-a}
+     */
+    public @Nonnull String getCircuit() {
+        return circuit;
+    }
+
+    /**
+     * @return the time in milliseconds since the epoch at which the breaker will let a probe request through
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -19,26 +19,17 @@
 
 package org.dasein.cloud.google;
 
-import com.google.api.client.googleapis.json.GoogleJsonResponseException;
-import com.google.api.services.compute.Compute;
 import com.google.api.services.compute.model.Zone;
 import org.apache.log4j.Logger;
-import org.dasein.cloud.CloudErrorType;
 import org.dasein.cloud.CloudException;
 import org.dasein.cloud.InternalException;
-import org.dasein.cloud.ProviderContext;
 import org.dasein.cloud.dc.DataCenter;
 import org.dasein.cloud.dc.DataCenterServices;
 import org.dasein.cloud.dc.Region;
 import org.dasein.cloud.util.APITrace;
-import org.dasein.cloud.util.Cache;
-import org.dasein.cloud.util.CacheLevel;
-import org.dasein.util.uom.time.Hour;
-import org.dasein.util.uom.time.TimePeriod;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.IOException;
 import java.util.*;
 
 /**
@@ -50,8 +41,6 @@ import java.util.*;
 public class DataCenters implements DataCenterServices {
 	static private final Logger logger = Google.getLogger(DataCenters.class);
 
-    private static HashMap<String, String> zone2Region = new HashMap<String, String>();
-
 	private Google provider;
 
 	DataCenters(@Nonnull Google provider) {
@@ -60,18 +49,9 @@ public class DataCenters implements DataCenterServices {
 
 	@Override
 	public @Nullable DataCenter getDataCenter(@Nonnull String dataCenterId) throws InternalException, CloudException {
-        Compute gce = provider.getGoogleCompute();
-        try{
-            Zone dataCenter = gce.zones().get(provider.getContext().getAccountNumber(), dataCenterId).execute();
-            return toDataCenter(dataCenter);
-	    } catch (IOException ex) {
-			logger.error(ex.getMessage());
-			if (ex.getClass() == GoogleJsonResponseException.class) {
-				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-			} else
-	            throw new CloudException("An error occurred retrieving the dataCenter: " + dataCenterId + ": " + ex.getMessage());
-		}
+        Zone zone = GoogleTopology.getInstance(provider).findZone(dataCenterId);
+
+        return (zone == null ? null : toDataCenter(zone));
 	}
 
 	@Override
@@ -86,69 +66,25 @@ public class DataCenters implements DataCenterServices {
 
 	@Override
 	public @Nullable Region getRegion(@Nonnull String providerRegionId) throws InternalException, CloudException {
-        Compute gce = provider.getGoogleCompute();
-        try{
-            com.google.api.services.compute.model.Region r = gce.regions().get(provider.getContext().getAccountNumber(), providerRegionId).execute();
-            return toRegion(r);
-	    } catch (IOException ex) {
-			logger.error(ex.getMessage());
-			if (ex.getClass() == GoogleJsonResponseException.class) {
-				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-			} else
-				throw new CloudException("An error occurred retrieving the region: " + providerRegionId + ": " + ex.getMessage());
-		}
+        com.google.api.services.compute.model.Region r = GoogleTopology.getInstance(provider).findRegion(providerRegionId);
+
+        return (r == null ? null : toRegion(r));
 	}
 
 	@Override
 	public @Nonnull Collection<DataCenter> listDataCenters(@Nonnull String providerRegionId) throws InternalException, CloudException {
 		APITrace.begin(provider, "listDataCenters");
 		try {
-            ProviderContext ctx = provider.getContext();
-
-            if( ctx == null ) {
-                throw new NoContextException();
-            }
+            GoogleTopology topology = GoogleTopology.getInstance(provider);
+            Collection<DataCenter> dataCenters = new ArrayList<DataCenter>();
 
-            Collection<DataCenter> dataCenters;
-            Cache<DataCenter> cache = null;
-            String originalRegionId = ctx.getRegionId();
+            for( String zoneName : topology.getZonesInRegion(providerRegionId) ) {
+                Zone zone = topology.getZone(zoneName);
 
-            if(providerRegionId.equals(originalRegionId)) {
-                cache = Cache.getInstance(provider, "datacenters", DataCenter.class, CacheLevel.REGION_ACCOUNT, new TimePeriod<Hour>(10, TimePeriod.HOUR));
-                dataCenters = (Collection<DataCenter>)cache.get(ctx);
-                if(dataCenters != null){
-                    return dataCenters;
+                if( zone != null ) {
+                    dataCenters.add(toDataCenter(zone));
                 }
             }
-            dataCenters = new ArrayList<DataCenter>();
-
-            Compute gce = provider.getGoogleCompute();
-            Compute.Zones.List gceDataCenters = null;
-            try{
-                gceDataCenters = gce.zones().list(ctx.getAccountNumber());
-                List<Zone> dataCenterList = gceDataCenters.execute().getItems();
-                for(int i=0;i<dataCenterList.size();i++){
-                    Zone current = dataCenterList.get(i);
-
-                    String region = current.getRegion().substring(current.getRegion().lastIndexOf("/") + 1);
-                    if (region.equals(providerRegionId)) {
-                        dataCenters.add(toDataCenter(current));
-                    }
-
-                    zone2Region.put(current.getName(), region);
-                }
-    	    } catch (IOException ex) {
-    	    	logger.error("Failed to listDataCenters: " + ex.getMessage());
-    			if (ex.getClass() == GoogleJsonResponseException.class) {
-    				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-    				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-    			} else
-    				throw new CloudException(CloudErrorType.COMMUNICATION, gceDataCenters.getLastStatusCode(), gceDataCenters.getLastStatusMessage(), "An error occurred while listing DataCenters");
-    		}
-            if (cache != null) {
-                cache.put(ctx, dataCenters);
-            }
             return dataCenters;
         }
 		finally {
@@ -160,36 +96,11 @@ public class DataCenters implements DataCenterServices {
 	public Collection<Region> listRegions() throws InternalException, CloudException {
 		APITrace.begin(provider, "listRegions");
 		try {
-			ProviderContext ctx = provider.getContext();
-
-			if( ctx == null ) {
-				throw new NoContextException();
-			}
-            Cache<Region> cache = Cache.getInstance(provider, "regions", Region.class, CacheLevel.CLOUD_ACCOUNT, new TimePeriod<Hour>(10, TimePeriod.HOUR));
-            Collection<Region> regions = (Collection<Region>)cache.get(ctx);
-            if( regions != null ) {
-                return regions;
+            Collection<Region> regions = new ArrayList<Region>();
+
+            for( com.google.api.services.compute.model.Region current : GoogleTopology.getInstance(provider).getRegions() ) {
+                regions.add(toRegion(current));
             }
-            regions = new ArrayList<Region>();
-
-            Compute gce = provider.getGoogleCompute();
-            Compute.Regions.List gceRegions = null;
-            try{
-                gceRegions = gce.regions().list(ctx.getAccountNumber());
-                List<com.google.api.services.compute.model.Region> regionList = gceRegions.execute().getItems();
-                for(int i=0;i<regionList.size();i++){
-                    com.google.api.services.compute.model.Region current = regionList.get(i);
-                    regions.add(toRegion(current));
-                }
-    	    } catch (IOException ex) {
-    	    	logger.error("Failed to listRegions: " + ex.getMessage());
-    			if (ex.getClass() == GoogleJsonResponseException.class) {
-    				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-    				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-    			} else
-    				throw new CloudException(CloudErrorType.COMMUNICATION, gceRegions.getLastStatusCode(), gceRegions.getLastStatusMessage(), "An error occurred while listing regions");
-    		}
-            cache.put(ctx, regions);
             return regions;
 		}
 		finally {
@@ -197,14 +108,8 @@ public class DataCenters implements DataCenterServices {
 		}
 	}
 
-    public @Nonnull String getRegionFromZone(@Nonnull String zoneName) throws CloudException, InternalException{
-        if(zoneName.contains("zones/"))zoneName = zoneName.replace("zones/", "");
-        if(zone2Region == null || !zone2Region.containsKey(zoneName)){
-            for(Region r : listRegions()){
-                listDataCenters(r.getProviderRegionId());
-            }
-        }
-        return zone2Region.get(zoneName);
+    public @Nullable String getRegionFromZone(@Nonnull String zoneName) throws CloudException, InternalException{
+        return GoogleTopology.getInstance(provider).findRegionForZone(zoneName);
     }
 
     private Region toRegion(com.google.api.services.compute.model.Region googleRegion){
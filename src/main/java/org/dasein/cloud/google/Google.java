@@ -20,20 +20,14 @@
 package org.dasein.cloud.google;
 
 import java.io.*;
-import java.security.KeyStore;
-import java.security.PrivateKey;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
-import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import com.google.api.client.http.HttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.client.repackaged.org.apache.commons.codec.binary.Base64;
 import com.google.api.services.compute.Compute;
-import com.google.api.services.compute.ComputeScopes;
 import com.google.api.services.storage.Storage;
 import org.apache.log4j.Logger;
 import org.dasein.cloud.*;
@@ -139,6 +133,21 @@ public class Google extends AbstractCloud {
 		return (name == null ? "Google" : name);
 	}
 
+    /**
+     * @return the pooled HTTP transport shared by all Google API clients built for this provider
+     */
+    public @Nonnull GoogleTransport getTransport() {
+        return GoogleTransport.getInstance(getContext());
+    }
+
+    /**
+     * @return the manager of the OAuth token shared by all Google API clients of the current service account
+     * @throws CloudException the service account credentials are missing or invalid
+     */
+    public @Nonnull GoogleTokenManager getTokenManager() throws CloudException {
+        return GoogleTokenManager.getInstance(this);
+    }
+
     public Compute getGoogleCompute() throws CloudException, InternalException {
         ProviderContext ctx = getContext();
 
@@ -148,46 +157,13 @@ public class Google extends AbstractCloud {
 
         if (googleCompute == null) {
             googleCompute = new ArrayList<Compute>();
-            HttpTransport transport = new NetHttpTransport();
-            JsonFactory jsonFactory = new JacksonFactory();
-
-            try{
-                String serviceAccountId = "";
-                byte[] p12Bytes = null;
-                String p12Password = "";
-
-                List<ContextRequirements.Field> fields = getContextRequirements().getConfigurableValues();
-                for(ContextRequirements.Field f : fields ) {
-                    if(f.type.equals(ContextRequirements.FieldType.KEYPAIR)){
-                        byte[][] keyPair = (byte[][])getContext().getConfigurationValue(f);
-                        p12Bytes = keyPair[0];
-                        p12Password = new String(keyPair[1], "utf-8");
-                    }
-                    else if(f.type.equals(ContextRequirements.FieldType.TEXT)){
-                        serviceAccountId = (String)getContext().getConfigurationValue(f);
-                    }
-                }
+            HttpTransport transport = getTransport().getHttpTransport();
+            JsonFactory jsonFactory = getTransport().getJsonFactory();
 
-                KeyStore keyStore = KeyStore.getInstance("PKCS12");
-                InputStream p12AsStream = new ByteArrayInputStream(p12Bytes);
-                keyStore.load(p12AsStream, p12Password.toCharArray());
-
-                GoogleCredential creds = new GoogleCredential.Builder().setTransport(transport)
-                        .setJsonFactory(jsonFactory)
-                        .setServiceAccountId(serviceAccountId)
-                        .setServiceAccountScopes(ComputeScopes.all())
-                        .setServiceAccountPrivateKey((PrivateKey) keyStore.getKey("privateKey", p12Password.toCharArray()))//This is always the password for p12 files
-                        .build();
-                creds.setExpirationTimeMilliseconds(3600000L);
-
-                gce = new Compute.Builder(transport, jsonFactory, creds).setApplicationName(ctx.getAccountNumber()).setHttpRequestInitializer(creds).build();
-                googleCompute.add(gce);
-                cache.put(ctx, googleCompute);
-            }
-            catch(Exception ex){
-                ex.printStackTrace();
-                throw new CloudException(CloudErrorType.AUTHENTICATION, 400, "Bad Credentials", "An authentication error has occurred: Bad Credentials");
-            }
+            GoogleRequestInitializer initializer = new GoogleRequestInitializer(getTokenManager(), new GoogleRateLimiter(ctx), new GoogleRetryPolicy(ctx), new GoogleCircuitBreaker(ctx));
+            gce = new Compute.Builder(transport, jsonFactory, initializer).setApplicationName(ctx.getAccountNumber()).build();
+            googleCompute.add(gce);
+            cache.put(ctx, googleCompute);
         }
         else{
             gce = googleCompute.iterator().next();
@@ -198,53 +174,20 @@ public class Google extends AbstractCloud {
     public Storage getGoogleStorage() throws CloudException, InternalException{
         ProviderContext ctx = getContext();
 
-        Cache<Storage> cache = Cache.getInstance(this, "DriveAccess", Storage.class, CacheLevel.CLOUD, new TimePeriod<Hour>(1, TimePeriod.HOUR));
+        Cache<Storage> cache = Cache.getInstance(this, "DriveAccess", Storage.class, CacheLevel.CLOUD_ACCOUNT, new TimePeriod<Hour>(1, TimePeriod.HOUR));
         Collection<Storage> googleDrive = (Collection<Storage>)cache.get(ctx);
         Storage drive = null;
 
         if(googleDrive == null){
             googleDrive = new ArrayList<Storage>();
 
-            HttpTransport transport = new NetHttpTransport();
-            JsonFactory jsonFactory = new JacksonFactory();
-
-            try{
-                String serviceAccountId = "";
-                byte[] p12Bytes = null;
-                String p12Password = "";
-
-                List<ContextRequirements.Field> fields = getContextRequirements().getConfigurableValues();
-                for(ContextRequirements.Field f : fields ) {
-                    if(f.type.equals(ContextRequirements.FieldType.KEYPAIR)){
-                        byte[][] keyPair = (byte[][])getContext().getConfigurationValue(f);
-                        p12Bytes = keyPair[0];
-                        p12Password = new String(keyPair[1], "utf-8");
-                    }
-                    else if(f.type.equals(ContextRequirements.FieldType.TEXT)){
-                        serviceAccountId = (String)getContext().getConfigurationValue(f);
-                    }
-                }
+            HttpTransport transport = getTransport().getHttpTransport();
+            JsonFactory jsonFactory = getTransport().getJsonFactory();
 
-                KeyStore keyStore = KeyStore.getInstance("PKCS12");
-                InputStream p12AsStream = new ByteArrayInputStream(p12Bytes);
-                keyStore.load(p12AsStream, p12Password.toCharArray());
-
-                GoogleCredential creds = new GoogleCredential.Builder().setTransport(transport)
-                        .setJsonFactory(jsonFactory)
-                        .setServiceAccountId(serviceAccountId)
-                        .setServiceAccountScopes(ComputeScopes.all())
-                        .setServiceAccountPrivateKey((PrivateKey) keyStore.getKey("privateKey", p12Password.toCharArray()))//This is always the password for p12 files
-                        .build();
-                creds.setExpirationTimeMilliseconds(3600000L);
-
-                drive = new Storage.Builder(transport, jsonFactory, creds).setApplicationName(ctx.getAccountNumber()).setHttpRequestInitializer(creds).build();
-                googleDrive.add(drive);
-                cache.put(ctx, googleDrive);
-            }
-            catch(Exception ex){
-                ex.printStackTrace();
-                throw new CloudException(CloudErrorType.AUTHENTICATION, 400, "Bad Credentials", "An authentication error has occurred: Bad Credentials");
-            }
+            GoogleRequestInitializer initializer = new GoogleRequestInitializer(getTokenManager(), new GoogleRateLimiter(ctx), new GoogleRetryPolicy(ctx), new GoogleCircuitBreaker(ctx));
+            drive = new Storage.Builder(transport, jsonFactory, initializer).setApplicationName(ctx.getAccountNumber()).build();
+            googleDrive.add(drive);
+            cache.put(ctx, googleDrive);
         }
         else{
             drive = googleDrive.iterator().next();
@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpStatusCodes;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.util.APITrace;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects independent GET requests and sends them as multipart batch calls of up to {@link #MAX_BATCH_SIZE}
+ * requests each, replacing one round trip per item with one per batch. Results are returned in the order the
+ * requests were added; resources that no longer exist come back as null. A request that fails within a batch with
+ * any other error is sent again on its own, so that it gets the retries of a single request and one failing item
+ * does not fail the items around it.
+ * <p>Batch counts, sizes and latencies are recorded provider-wide and exposed through the static getters.</p>
+ * @param <T> the type of resource fetched by the requests
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class GoogleBatch<T> {
+    static private final Logger logger = Google.getLogger(GoogleBatch.class);
+
+    /**
+     * The largest number of requests the Google batch endpoint accepts in one call.
+     */
+    static public final int MAX_BATCH_SIZE = 100;
+
+    static private final AtomicLong batchCount    = new AtomicLong(0);
+    static private final AtomicLong requestCount  = new AtomicLong(0);
+    static private final AtomicLong failureCount  = new AtomicLong(0);
+    static private final AtomicLong fallbackCount = new AtomicLong(0);
+    static private final AtomicLong totalMillis   = new AtomicLong(0);
+    static private final AtomicLong maxMillis     = new AtomicLong(0);
+
+    /**
+     * @return the number of HTTP calls made on behalf of batches
+     */
+    static public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return the number of individual requests sent through batches
+     */
+    static public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return the number of individual requests that failed with an error other than not found
+     */
+    static public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * @return the number of requests that failed within a batch and were sent again on their own
+     */
+    static public long getFallbackCount() {
+        return fallbackCount.get();
+    }
+
+    /**
+     * @return the mean number of requests per batch call
+     */
+    static public double getAverageBatchSize() {
+        long batches = batchCount.get();
+
+        return (batches == 0 ? 0.0 : ((double)requestCount.get()) / batches);
+    }
+
+    /**
+     * @return the mean latency in milliseconds of a batch call
+     */
+    static public long getAverageBatchMillis() {
+        long batches = batchCount.get();
+
+        return (batches == 0 ? 0L : totalMillis.get() / batches);
+    }
+
+    /**
+     * @return the slowest batch call in milliseconds
+     */
+    static public long getMaxBatchMillis() {
+        return maxMillis.get();
+    }
+
+    static private void record(int size, long elapsed) {
+        batchCount.incrementAndGet();
+        requestCount.addAndGet(size);
+        totalMillis.addAndGet(elapsed);
+        long max = maxMillis.get();
+        while( elapsed > max && !maxMillis.compareAndSet(max, elapsed) ) {
+            max = maxMillis.get();
+        }
+    }
+
+    private final Google provider;
+    private final String operation;
+    private final List<AbstractGoogleJsonClientRequest<T>> requests = new ArrayList<AbstractGoogleJsonClientRequest<T>>();
+
+    /**
+     * @param provider the provider issuing the requests
+     * @param operation the API trace name recorded for each batch call
+     */
+    public GoogleBatch(@Nonnull Google provider, @Nonnull String operation) {
+        this.provider = provider;
+        this.operation = operation;
+    }
+
+    /**
+     * Queues a request for the next {@link #execute()}.
+     * @param request the request to send
+     * @return the position of the request's result in the list returned by {@link #execute()}
+     * @throws IllegalArgumentException the request is not a GET, which {@link GoogleRateLimiter} relies on to count
+     * batch calls as reads
+     */
+    public int add(@Nonnull AbstractGoogleJsonClientRequest<T> request) {
+        if( !HttpMethods.GET.equals(request.getRequestMethod()) ) {
+            throw new IllegalArgumentException("Only GET requests can be batched: " + request.getRequestMethod());
+        }
+        requests.add(request);
+        return requests.size() - 1;
+    }
+
+    public int size() {
+        return requests.size();
+    }
+
+    /**
+     * Sends all queued requests and clears the queue.
+     * @return the results in the order the requests were added, null for resources that were not found
+     * @throws CloudException a request failed on its own or the batch call could not be completed
+     * @throws InternalException an error occurred within Dasein Cloud
+     */
+    public @Nonnull List<T> execute() throws CloudException, InternalException {
+        if( requests.isEmpty() ) {
+            return Collections.emptyList();
+        }
+        List<AbstractGoogleJsonClientRequest<T>> toSend = new ArrayList<AbstractGoogleJsonClientRequest<T>>(requests);
+        final List<T> results = new ArrayList<T>(Collections.<T>nCopies(toSend.size(), null));
+        final GoogleJsonError[] errors = new GoogleJsonError[toSend.size()];
+
+        requests.clear();
+        for( int start=0; start<toSend.size(); start += MAX_BATCH_SIZE ) {
+            List<AbstractGoogleJsonClientRequest<T>> chunk = toSend.subList(start, Math.min(toSend.size(), start + MAX_BATCH_SIZE));
+            long begin = System.currentTimeMillis();
+
+            APITrace.begin(provider, operation);
+            try {
+                if( chunk.size() == 1 ) {
+                    // a multipart envelope around a single request only adds overhead
+                    try {
+                        results.set(start, chunk.get(0).execute());
+                    }
+                    catch( GoogleJsonResponseException e ) {
+                        if( e.getStatusCode() != HttpStatusCodes.STATUS_CODE_NOT_FOUND ) {
+                            throw e;
+                        }
+                    }
+                }
+                else {
+                    BatchRequest batch = chunk.get(0).getAbstractGoogleClient().batch();
+
+                    for( int i=0; i<chunk.size(); i++ ) {
+                        final int index = start + i;
+
+                        chunk.get(i).queue(batch, new JsonBatchCallback<T>() {
+                            @Override
+                            public void onSuccess(T t, HttpHeaders responseHeaders) {
+                                results.set(index, t);
+                            }
+
+                            @Override
+                            public void onFailure(GoogleJsonError e, HttpHeaders responseHeaders) {
+                                errors[index] = e;
+                            }
+                        });
+                    }
+                    batch.execute();
+                }
+            }
+            catch( IOException ex ) {
+                throw PagedIterable.toCloudException(ex, "An error occurred during " + operation);
+            }
+            finally {
+                APITrace.end();
+                long elapsed = System.currentTimeMillis() - begin;
+
+                record(chunk.size(), elapsed);
+                if( logger.isDebugEnabled() ) {
+                    logger.debug(operation + ": batch of " + chunk.size() + " requests in " + elapsed + "ms");
+                }
+            }
+        }
+        for( int i=0; i<errors.length; i++ ) {
+            if( errors[i] != null && errors[i].getCode() != HttpStatusCodes.STATUS_CODE_NOT_FOUND ) {
+                failureCount.incrementAndGet();
+                if( logger.isDebugEnabled() ) {
+                    logger.debug(operation + ": request failed within batch, sending it on its own: " + errors[i].getMessage());
+                }
+                results.set(i, executeAlone(toSend.get(i)));
+            }
+        }
+        return results;
+    }
+
+    private T executeAlone(@Nonnull AbstractGoogleJsonClientRequest<T> request) throws CloudException {
+        fallbackCount.incrementAndGet();
+        APITrace.begin(provider, operation);
+        try {
+            return request.execute();
+        }
+        catch( GoogleJsonResponseException ex ) {
+            if( ex.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND ) {
+                return null;
+            }
+            throw PagedIterable.toCloudException(ex, "An error occurred during " + operation);
+        }
+        catch( IOException ex ) {
+            throw PagedIterable.toCloudException(ex, "An error occurred during " + operation);
+        }
+        finally {
+            APITrace.end();
+        }
+    }
+}
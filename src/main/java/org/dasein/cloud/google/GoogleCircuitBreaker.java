@@ -0,0 +1,322 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.http.HttpRequest;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.ProviderContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breakers that stop the provider from calling an API location that keeps failing. Each project has one
+ * {@link Circuit} per API (compute or storage) and zone or region, with global and aggregated calls sharing a
+ * {@code global} circuit. After a run of consecutive server errors or I/O failures the circuit opens and requests
+ * fail immediately with a {@link CircuitOpenException} instead of tying up threads on a degraded API. Once the open
+ * period has passed, a single probe request is let through: its success closes the circuit, its failure opens it
+ * again.
+ * <p>Breakers are tuned through these {@link ProviderContext} custom properties:</p>
+ * <ul>
+ *     <li>{@link #FAILURE_THRESHOLD} - consecutive failures that open a circuit (default 5, 0 disables breakers)</li>
+ *     <li>{@link #OPEN_MILLIS} - how long a circuit stays open before a probe is allowed (default 30000)</li>
+ * </ul>
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class GoogleCircuitBreaker {
+    static private final Logger logger = Google.getLogger(GoogleCircuitBreaker.class);
+
+    static public final String FAILURE_THRESHOLD = "google.breaker.failureThreshold";
+    static public final String OPEN_MILLIS       = "google.breaker.openMillis";
+
+    static private final int  DEFAULT_FAILURE_THRESHOLD = 5;
+    static private final long DEFAULT_OPEN_MILLIS       = 30000L;
+
+    /**
+     * The states of a circuit.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    static private final ConcurrentHashMap<String,Circuit> circuits = new ConcurrentHashMap<String, Circuit>();
+
+    /**
+     * @param name the circuit name, e.g. {@code my-project/compute/zones/us-central1-a}
+     * @return the circuit, null if no request has been sent through it yet
+     */
+    static public @Nullable Circuit getCircuit(@Nonnull String name) {
+        return circuits.get(name);
+    }
+
+    /**
+     * @return every circuit used so far, keyed by name
+     */
+    static public @Nonnull Map<String,Circuit> getAllCircuits() {
+        return Collections.unmodifiableMap(new HashMap<String, Circuit>(circuits));
+    }
+
+    /**
+     * Determines the circuit a request belongs to from its URL.
+     * @param project the project making the request
+     * @param request the request about to be sent
+     * @return the circuit name
+     */
+    static public @Nonnull String getCircuitName(@Nonnull String project, @Nonnull HttpRequest request) {
+        List<String> parts = GoogleEndpoint.getPathSegments(request.getUrl());
+        String api = (GoogleRateLimiter.getFamily(request) == GoogleRateLimiter.Family.STORAGE ? "storage" : "compute");
+        String scope = "global";
+
+        for( int i=0; i<parts.size()-1; i++ ) {
+            String segment = parts.get(i);
+
+            if( segment.equals("zones") || segment.equals("regions") ) {
+                scope = segment + "/" + parts.get(i+1);
+                break;
+            }
+        }
+        return project + "/" + api + "/" + scope;
+    }
+
+    private final String project;
+    private final int    failureThreshold;
+    private final long   openMillis;
+
+    /**
+     * @param ctx the context whose project and custom properties configure the breakers
+     */
+    public GoogleCircuitBreaker(@Nonnull ProviderContext ctx) {
+        Properties props = ctx.getCustomProperties();
+
+        project = ctx.getAccountNumber();
+        failureThreshold = (int)getLong(props, FAILURE_THRESHOLD, DEFAULT_FAILURE_THRESHOLD);
+        openMillis = getLong(props, OPEN_MILLIS, DEFAULT_OPEN_MILLIS);
+    }
+
+    static private long getLong(@Nullable Properties props, @Nonnull String name, long defaultValue) {
+        String value = (props == null ? null : props.getProperty(name));
+
+        if( value != null ) {
+            try {
+                long l = Long.parseLong(value.trim());
+
+                if( l >= 0 ) {
+                    return l;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // fall through to the default
+            }
+            logger.warn("Ignoring invalid value for " + name + ": " + value);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Lets an attempt of the request through if its circuit allows it.
+     * @param request the request about to be sent
+     * @return the circuit to report the outcome of the attempt to, null if breakers are disabled
+     * @throws OpenException the circuit is open and the request must not be sent
+     */
+    public @Nullable Circuit acquire(@Nonnull HttpRequest request) throws OpenException {
+        if( failureThreshold < 1 ) {
+            return null;
+        }
+        String name = getCircuitName(project, request);
+        Circuit circuit = circuits.get(name);
+
+        if( circuit == null ) {
+            circuits.putIfAbsent(name, new Circuit(name));
+            circuit = circuits.get(name);
+        }
+        circuit.acquire(failureThreshold, openMillis);
+        return circuit;
+    }
+
+    /**
+     * Thrown from the HTTP layer in place of sending a request through an open circuit. Support classes convert it
+     * into a {@link CircuitOpenException} with {@link #rethrow(IOException)}.
+     */
+    static public class OpenException extends IOException {
+        private final String circuit;
+        private final long   retryAfter;
+
+        private OpenException(@Nonnull String circuit, long retryAfter) {
+            super("The circuit breaker for " + circuit + " is open, failing fast");
+            this.circuit = circuit;
+            this.retryAfter = retryAfter;
+        }
+
+        public @Nonnull CircuitOpenException toCloudException() {
+            return new CircuitOpenException(circuit, retryAfter);
+        }
+    }
+
+    /**
+     * Raises the {@link CircuitOpenException} matching an exception from the Google client, if the request failed
+     * because its circuit was open. Does nothing for any other exception.
+     * @param ex the exception raised by the Google client
+     * @throws CircuitOpenException the request was not sent because its circuit was open
+     */
+    static public void rethrow(@Nonnull IOException ex) throws CircuitOpenException {
+        if( ex instanceof OpenException ) {
+            throw ((OpenException)ex).toCloudException();
+        }
+    }
+
+    /**
+     * The breaker of one API location.
+     */
+    static public class Circuit {
+        private final String name;
+
+        // guarded by this; the settings are those of the most recent caller, as all contexts of a project share a circuit
+        private State state = State.CLOSED;
+        private int   threshold;
+        private long  openPeriod;
+        private int   consecutiveFailures;
+        private long  openedAt;
+        private long  openUntil;
+        private long  probeStarted;
+
+        private final AtomicLong failures        = new AtomicLong(0);
+        private final AtomicLong rejected        = new AtomicLong(0);
+        private final AtomicLong opened          = new AtomicLong(0);
+        private final AtomicLong totalOpenMillis = new AtomicLong(0);
+
+        private Circuit(@Nonnull String name) {
+            this.name = name;
+        }
+
+        private synchronized void acquire(int failureThreshold, long openMillis) throws OpenException {
+            this.threshold = failureThreshold;
+            this.openPeriod = openMillis;
+            if( state == State.OPEN ) {
+                if( System.currentTimeMillis() < openUntil ) {
+                    rejected.incrementAndGet();
+                    throw new OpenException(name, openUntil);
+                }
+                transition(State.HALF_OPEN);
+            }
+            if( state == State.HALF_OPEN ) {
+                long now = System.currentTimeMillis();
+
+                // a probe that never reported back, e.g. because its thread was interrupted, must not block the circuit
+                if( probeStarted > 0 && now - probeStarted < openPeriod ) {
+                    rejected.incrementAndGet();
+                    throw new OpenException(name, probeStarted + openPeriod);
+                }
+                probeStarted = now;
+            }
+        }
+
+        /**
+         * Records an attempt that reached the API and got an answer that says nothing about the API's health.
+         */
+        public synchronized void onSuccess() {
+            consecutiveFailures = 0;
+            if( state != State.CLOSED ) {
+                totalOpenMillis.addAndGet(System.currentTimeMillis() - openedAt);
+                transition(State.CLOSED);
+            }
+            probeStarted = 0L;
+        }
+
+        /**
+         * Records an attempt that failed with a server error or could not reach the API.
+         */
+        public synchronized void onFailure() {
+            failures.incrementAndGet();
+            consecutiveFailures++;
+            if( state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= threshold) ) {
+                if( state == State.CLOSED ) {
+                    openedAt = System.currentTimeMillis();
+                    opened.incrementAndGet();
+                }
+                openUntil = System.currentTimeMillis() + openPeriod;
+                transition(State.OPEN);
+            }
+            probeStarted = 0L;
+        }
+
+        private void transition(@Nonnull State to) {
+            if( state == to ) {
+                return;
+            }
+            if( to == State.OPEN ) {
+                logger.warn("Circuit " + name + " " + state + " -> OPEN after " + consecutiveFailures + " consecutive failures, failing fast for " + openPeriod + "ms");
+            }
+            else {
+                logger.info("Circuit " + name + " " + state + " -> " + to);
+            }
+            state = to;
+        }
+
+        public @Nonnull String getName() {
+            return name;
+        }
+
+        public synchronized @Nonnull State getState() {
+            return state;
+        }
+
+        /**
+         * @return the number of attempts through the circuit that failed
+         */
+        public long getFailureCount() {
+            return failures.get();
+        }
+
+        /**
+         * @return the number of requests failed fast while the circuit was open
+         */
+        public long getRejectedCount() {
+            return rejected.get();
+        }
+
+        /**
+         * @return the number of times the circuit opened after being closed
+         */
+        public long getOpenedCount() {
+            return opened.get();
+        }
+
+        /**
+         * @return the total time in milliseconds the circuit spent open or half-open before closing again
+         */
+        public long getTotalOpenMillis() {
+            return totalOpenMillis.get();
+        }
+
+        @Override
+        public synchronized @Nonnull String toString() {
+            return name + "[" + state + ", failures=" + failures.get() + ", rejected=" + rejected.get() + ", opened=" + opened.get() + "]";
+        }
+    }
+}
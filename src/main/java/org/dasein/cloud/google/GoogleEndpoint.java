@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpRequest;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classifies HTTP requests by API endpoint so per-endpoint statistics can be kept. An endpoint is the request method
+ * plus the collection path with all project, location and resource names removed, for example
+ * {@code GET zones/instances} or {@code POST zones/instances/reset}.
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public final class GoogleEndpoint {
+    private GoogleEndpoint() { }
+
+    /**
+     * @param request the request being sent
+     * @return the endpoint the request is addressed to
+     */
+    static public @Nonnull String getEndpoint(@Nonnull HttpRequest request) {
+        return getEndpoint(request.getRequestMethod(), request.getUrl());
+    }
+
+    /**
+     * @param method the HTTP method of the request
+     * @param url the URL of the request
+     * @return the endpoint the request is addressed to
+     */
+    static public @Nonnull String getEndpoint(@Nonnull String method, @Nonnull GenericUrl url) {
+        List<String> parts = getPathSegments(url);
+        StringBuilder str = new StringBuilder();
+        int i = 0;
+
+        // skip the API name and version, e.g. compute/v1 or storage/v1beta2
+        while( i < parts.size() && !parts.get(i).startsWith("v") ) {
+            i++;
+        }
+        i++;
+        while( i < parts.size() ) {
+            String segment = parts.get(i);
+
+            if( segment.equals("global") || segment.equals("aggregated") ) {
+                append(str, segment);
+                i++;
+            }
+            else {
+                if( !segment.equals("projects") ) {
+                    append(str, segment);
+                }
+                i += 2;
+            }
+        }
+        return method + " " + str;
+    }
+
+    /**
+     * @param request the request being sent
+     * @return true if repeating the request cannot change the state of any resource
+     */
+    static public boolean isIdempotent(@Nonnull HttpRequest request) {
+        return isIdempotent(request.getRequestMethod());
+    }
+
+    /**
+     * @param method the HTTP method of the request
+     * @return true if repeating a request with the method cannot change the state of any resource
+     */
+    static public boolean isIdempotent(@Nonnull String method) {
+        return (HttpMethods.GET.equals(method) || HttpMethods.HEAD.equals(method) || HttpMethods.PUT.equals(method));
+    }
+
+    static private void append(@Nonnull StringBuilder str, @Nonnull String segment) {
+        if( str.length() > 0 ) {
+            str.append("/");
+        }
+        str.append(segment);
+    }
+
+    static @Nonnull List<String> getPathSegments(@Nonnull GenericUrl url) {
+        List<String> parts = new ArrayList<String>();
+        String path = url.getRawPath();
+
+        if( path != null ) {
+            for( String part : path.split("/") ) {
+                if( part.length() > 0 ) {
+                    parts.add(part);
+                }
+            }
+        }
+        return parts;
+    }
+}
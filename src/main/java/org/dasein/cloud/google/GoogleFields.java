@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import org.dasein.cloud.ProviderContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Properties;
+
+/**
+ * Builds partial-response {@code fields} masks from the resource fields a converter reads, so list and get calls
+ * only transfer and parse what is actually used. Setting the {@link #FULL_RESPONSE} {@link ProviderContext} custom
+ * property to {@code true} disables the masks and requests complete resource bodies; individual callers can do the
+ * same by passing a null mask to the request.
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public final class GoogleFields {
+    static public final String FULL_RESPONSE = "google.fields.full";
+
+    private GoogleFields() { }
+
+    /**
+     * @param provider the provider issuing the request
+     * @return true if complete resource bodies were requested for the provider's context
+     */
+    static public boolean isFullResponse(@Nonnull Google provider) {
+        ProviderContext ctx = provider.getContext();
+        Properties props = (ctx == null ? null : ctx.getCustomProperties());
+
+        return (props != null && Boolean.parseBoolean(props.getProperty(FULL_RESPONSE, "false")));
+    }
+
+    /**
+     * Mask for a get call returning a single resource.
+     * @param provider the provider issuing the request
+     * @param fields the resource fields the converter reads
+     * @return the mask to pass to {@code setFields}, null for the full body
+     */
+    static public @Nullable String forResource(@Nonnull Google provider, @Nonnull String fields) {
+        return (isFullResponse(provider) ? null : fields);
+    }
+
+    /**
+     * Mask for a paged list call.
+     * @param provider the provider issuing the request
+     * @param fields the resource fields the converter reads
+     * @return the mask to pass to {@code setFields}, null for the full body
+     */
+    static public @Nullable String forList(@Nonnull Google provider, @Nonnull String fields) {
+        return (isFullResponse(provider) ? null : "nextPageToken,items(" + fields + ")");
+    }
+
+    /**
+     * Mask for a paged aggregated list call, whose items are keyed by zone or region.
+     * @param provider the provider issuing the request
+     * @param collection the name of the resource collection in each scope, e.g. {@code instances}
+     * @param fields the resource fields the converter reads
+     * @return the mask to pass to {@code setFields}, null for the full body
+     */
+    static public @Nullable String forAggregatedList(@Nonnull Google provider, @Nonnull String collection, @Nonnull String fields) {
+        return (isFullResponse(provider) ? null : "nextPageToken,items/*/" + collection + "(" + fields + ")");
+    }
+}
@@ -0,0 +1,402 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
+import com.google.api.client.http.HttpMethods;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.ProviderContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends a duplicate of a slow read and uses whichever copy answers first, cutting the tail latency caused by the
+ * occasional slow Compute API response. A GET is hedged once it has been outstanding longer than a percentile of
+ * the recent latency of its endpoint; a global budget keeps hedges to a small share of all reads.
+ * <p>Hedging is off unless enabled through these {@link ProviderContext} custom properties:</p>
+ * <ul>
+ *     <li>{@link #ENABLED} - true to hedge reads (default false)</li>
+ *     <li>{@link #PERCENTILE} - the latency percentile after which a read is hedged (default 95)</li>
+ *     <li>{@link #MAX_PERCENT} - the maximum share of reads, in percent, that may be hedged (default 5)</li>
+ * </ul>
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class GoogleHedger {
+    static private final Logger logger = Google.getLogger(GoogleHedger.class);
+
+    static public final String ENABLED     = "google.hedge.enabled";
+    static public final String PERCENTILE  = "google.hedge.percentile";
+    static public final String MAX_PERCENT = "google.hedge.maxPercent";
+
+    static private final double DEFAULT_PERCENTILE  = 95.0;
+    static private final double DEFAULT_MAX_PERCENT = 5.0;
+    static private final int    SAMPLE_SIZE         = 128;
+    static private final int    MIN_SAMPLES         = 20;
+    static private final long   MIN_DELAY           = 20L;
+    static private final double MAX_BUDGET          = 10.0;
+
+    static private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        public Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-google-hedge-" + count.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    static private final Map<String,EndpointStats> endpoints = new HashMap<String, EndpointStats>();
+
+    // guarded by endpoints
+    static private double budget = MAX_BUDGET;
+
+    static private final AtomicLong totalReads  = new AtomicLong(0);
+    static private final AtomicLong totalHedges = new AtomicLong(0);
+    static private final AtomicLong denied      = new AtomicLong(0);
+
+    /**
+     * Builds the request to execute. A client request must not be executed by two threads at once, so a hedge is
+     * sent with a request of its own.
+     * @param <T> the type of the parsed response
+     */
+    public interface RequestFactory<T> {
+        /**
+         * @return a new, unexecuted copy of the request
+         * @throws IOException the request could not be built
+         */
+        @Nonnull AbstractGoogleClientRequest<T> newRequest() throws IOException;
+    }
+
+    /**
+     * Executes the request, hedging it if it is a read, hedging is enabled for the provider's context and the read
+     * is slower than usual for its endpoint. Once one copy answers, the other one is cancelled.
+     * @param provider the provider making the request
+     * @param factory builds the request, once more for the hedge if one is sent
+     * @param <T> the type of the parsed response
+     * @return the response of whichever copy of the request answered first
+     * @throws IOException the request failed, and so did its hedge if one was sent
+     */
+    static public <T> T execute(@Nonnull Google provider, @Nonnull final RequestFactory<T> factory) throws IOException {
+        ProviderContext ctx = provider.getContext();
+        Properties props = (ctx == null ? null : ctx.getCustomProperties());
+        final AbstractGoogleClientRequest<T> request = factory.newRequest();
+
+        if( props == null || !"true".equalsIgnoreCase(props.getProperty(ENABLED)) || !HttpMethods.GET.equals(request.getRequestMethod()) ) {
+            return request.execute();
+        }
+        double percentile = getDouble(props, PERCENTILE, DEFAULT_PERCENTILE);
+        double maxPercent = getDouble(props, MAX_PERCENT, DEFAULT_MAX_PERCENT);
+        final EndpointStats stats = getEndpointStats(GoogleEndpoint.getEndpoint(request.getRequestMethod(), request.buildHttpRequestUrl()));
+        long delay = stats.getLatencyPercentile(Math.min(percentile, 100.0));
+
+        totalReads.incrementAndGet();
+        stats.reads.incrementAndGet();
+        synchronized( endpoints ) {
+            budget = Math.min(MAX_BUDGET, budget + (maxPercent / 100.0));
+        }
+        if( delay < 0 ) {
+            // not enough history yet to know what slow means for this endpoint
+            long start = System.currentTimeMillis();
+            T result = request.execute();
+
+            stats.record(System.currentTimeMillis() - start);
+            return result;
+        }
+        CompletionService<T> completion = new ExecutorCompletionService<T>(executor);
+        // the copies run on pool threads, which must throttle them at the caller's priority
+        final GoogleRateLimiter.Priority priority = GoogleRateLimiter.getThreadPriority();
+        Future<T> primary = completion.submit(new Callable<T>() {
+            public T call() throws Exception {
+                return executeTimed(request, stats, priority);
+            }
+        });
+        Future<T> hedge = null;
+
+        try {
+            Future<T> first = completion.poll(Math.max(MIN_DELAY, delay), TimeUnit.MILLISECONDS);
+
+            if( first == null ) {
+                if( spendBudget() ) {
+                    totalHedges.incrementAndGet();
+                    stats.hedges.incrementAndGet();
+                    if( logger.isDebugEnabled() ) {
+                        logger.debug("Hedging " + stats.getEndpoint() + " after " + Math.max(MIN_DELAY, delay) + "ms");
+                    }
+                    hedge = completion.submit(new Callable<T>() {
+                        public T call() throws Exception {
+                            return executeTimed(factory.newRequest(), stats, priority);
+                        }
+                    });
+                }
+                else {
+                    denied.incrementAndGet();
+                }
+                first = completion.take();
+            }
+            try {
+                T result = first.get();
+
+                if( first == hedge ) {
+                    stats.wins.incrementAndGet();
+                }
+                return result;
+            }
+            catch( ExecutionException e ) {
+                if( hedge == null ) {
+                    throw e;
+                }
+                // one copy failed, the other one may still succeed
+                Future<T> second = completion.take();
+                T result = second.get();
+
+                if( second == hedge ) {
+                    stats.wins.incrementAndGet();
+                }
+                return result;
+            }
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + stats.getEndpoint());
+        }
+        catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+
+            if( cause instanceof IOException ) {
+                throw (IOException)cause;
+            }
+            if( cause instanceof RuntimeException ) {
+                throw (RuntimeException)cause;
+            }
+            if( cause instanceof Error ) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+        finally {
+            // stop whichever copy lost, or both if the caller gave up
+            primary.cancel(true);
+            if( hedge != null ) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    static private <T> T executeTimed(@Nonnull AbstractGoogleClientRequest<T> request, @Nonnull EndpointStats stats, @Nullable GoogleRateLimiter.Priority priority) throws IOException {
+        if( priority != null ) {
+            GoogleRateLimiter.setThreadPriority(priority);
+        }
+        try {
+            long start = System.currentTimeMillis();
+            T result = request.execute();
+
+            stats.record(System.currentTimeMillis() - start);
+            return result;
+        }
+        finally {
+            GoogleRateLimiter.clearThreadPriority();
+        }
+    }
+
+    /**
+     * @param endpoint the endpoint as reported by {@link GoogleEndpoint#getEndpoint(String, com.google.api.client.http.GenericUrl)}
+     * @return the hedging statistics of the endpoint, null if no read has been sent to it with hedging enabled
+     */
+    static public @Nullable EndpointStats getStats(@Nonnull String endpoint) {
+        synchronized( endpoints ) {
+            return endpoints.get(endpoint);
+        }
+    }
+
+    /**
+     * @return the hedging statistics of every endpoint read so far with hedging enabled
+     */
+    static public @Nonnull Map<String,EndpointStats> getAllStats() {
+        synchronized( endpoints ) {
+            return Collections.unmodifiableMap(new HashMap<String, EndpointStats>(endpoints));
+        }
+    }
+
+    /**
+     * @return the number of reads sent with hedging enabled
+     */
+    static public long getReadCount() {
+        return totalReads.get();
+    }
+
+    /**
+     * @return the number of hedges sent
+     */
+    static public long getHedgeCount() {
+        return totalHedges.get();
+    }
+
+    /**
+     * @return the number of hedges not sent because the global hedge budget was spent
+     */
+    static public long getDeniedCount() {
+        return denied.get();
+    }
+
+    static private @Nonnull EndpointStats getEndpointStats(@Nonnull String endpoint) {
+        synchronized( endpoints ) {
+            EndpointStats stats = endpoints.get(endpoint);
+
+            if( stats == null ) {
+                stats = new EndpointStats(endpoint);
+                endpoints.put(endpoint, stats);
+            }
+            return stats;
+        }
+    }
+
+    static private boolean spendBudget() {
+        synchronized( endpoints ) {
+            if( budget < 1.0 ) {
+                return false;
+            }
+            budget -= 1.0;
+            return true;
+        }
+    }
+
+    static private double getDouble(@Nonnull Properties props, @Nonnull String name, double defaultValue) {
+        String value = props.getProperty(name);
+
+        if( value != null ) {
+            try {
+                double d = Double.parseDouble(value.trim());
+
+                if( d > 0 ) {
+                    return d;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // fall through to the default
+            }
+            logger.warn("Ignoring invalid value for " + name + ": " + value);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Recent latencies and hedge counters of one endpoint.
+     */
+    static public class EndpointStats {
+        private final String     endpoint;
+        private final AtomicLong reads  = new AtomicLong(0);
+        private final AtomicLong hedges = new AtomicLong(0);
+        private final AtomicLong wins   = new AtomicLong(0);
+
+        // guarded by this
+        private final long[] samples = new long[SAMPLE_SIZE];
+        private int          sampleCount;
+        private int          next;
+
+        private EndpointStats(@Nonnull String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private synchronized void record(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            if( sampleCount < samples.length ) {
+                sampleCount++;
+            }
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100
+         * @return the latency in milliseconds at the percentile of recent reads, -1 if too few reads were recorded
+         */
+        public long getLatencyPercentile(double percentile) {
+            long[] sorted;
+
+            synchronized( this ) {
+                if( sampleCount < MIN_SAMPLES ) {
+                    return -1L;
+                }
+                sorted = Arrays.copyOf(samples, sampleCount);
+            }
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, Math.min(sorted.length - 1, (int)Math.ceil((percentile / 100.0) * sorted.length) - 1))];
+        }
+
+        public @Nonnull String getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * @return the number of reads sent to the endpoint, not counting hedges
+         */
+        public long getReadCount() {
+            return reads.get();
+        }
+
+        /**
+         * @return the number of hedges sent to the endpoint
+         */
+        public long getHedgeCount() {
+            return hedges.get();
+        }
+
+        /**
+         * @return the number of hedges that answered before the read they duplicated
+         */
+        public long getWinCount() {
+            return wins.get();
+        }
+
+        /**
+         * @return the share of reads to the endpoint that were hedged, between 0 and 1
+         */
+        public double getHedgeRate() {
+            long count = reads.get();
+
+            return (count == 0 ? 0.0 : ((double)hedges.get()) / count);
+        }
+
+        @Override
+        public @Nonnull String toString() {
+            return endpoint + "[reads=" + reads.get() + ", hedges=" + hedges.get() + ", wins=" + wins.get() + ", p95=" + getLatencyPercentile(95.0) + "ms]";
+        }
+    }
+}
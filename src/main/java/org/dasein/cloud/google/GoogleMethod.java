@@ -84,85 +84,35 @@ public class GoogleMethod {
     }
 
     public @Nonnull String getOperationTarget(@Nonnull ProviderContext ctx, @Nonnull Operation job, @Nonnull GoogleOperationType operationType, String regionId, String dataCenterId, boolean getLink)throws CloudException, InternalException{
-        long timeout = System.currentTimeMillis() + (CalendarWrapper.MINUTE * 20L);
-        while(timeout > System.currentTimeMillis()) {
-            if(job.getError() != null){
-                for(Operation.Error.Errors error : job.getError().getErrors()){
-                    throw new CloudException("An error occurred: " + error.getMessage());
-                }
-            }
-            else if(job.getStatus().equals("DONE")){
-                if(getLink) return job.getTargetLink();
-                else return job.getTargetLink().substring(job.getTargetLink().lastIndexOf("/") + 1);
-            }
-
-            try{
-                Thread.sleep(1000L);
-            }
-            catch(InterruptedException ignore){}
+        return getOperationTarget(ctx, job, operationType, regionId, dataCenterId, getLink, OperationWatcher.DEFAULT_TIMEOUT);
+    }
 
-            try{
-                Compute gce = provider.getGoogleCompute();
-                switch(operationType){
-                    case GLOBAL_OPERATION:{
-                        job = gce.globalOperations().get(ctx.getAccountNumber(), job.getName()).execute();
-                        break;
-                    }
-                    case REGION_OPERATION:{
-                        job = gce.regionOperations().get(ctx.getAccountNumber(), regionId, job.getName()).execute();
-                        break;
-                    }
-                    case ZONE_OPERATION:{
-                        job = gce.zoneOperations().get(ctx.getAccountNumber(), dataCenterId, job.getName()).execute();
-                        break;
-                    }
-                }
-            }
-            catch(IOException ex){
-                logger.error(ex.getMessage());
-            }
-        }
-        throw new CloudException(CloudErrorType.COMMUNICATION, 408, "", "System timed out waiting for Operation to complete");
+    /**
+     * Waits for the operation to complete and provides the resource it acted upon.
+     * @param timeout how long in milliseconds to wait before giving up on the operation
+     * @return the self link of the target if getLink is set, otherwise its name
+     * @throws CloudException the operation failed or did not complete within the timeout
+     * @throws InternalException the calling thread was interrupted while waiting
+     */
+    public @Nonnull String getOperationTarget(@Nonnull ProviderContext ctx, @Nonnull Operation job, @Nonnull GoogleOperationType operationType, String regionId, String dataCenterId, boolean getLink, long timeout)throws CloudException, InternalException{
+        job = OperationWatcher.getInstance(provider).watch(job, operationType, regionId, dataCenterId, timeout, null).await();
+        if(getLink) return job.getTargetLink();
+        else return job.getTargetLink().substring(job.getTargetLink().lastIndexOf("/") + 1);
     }
 
     public @Nonnull boolean getOperationComplete(ProviderContext ctx, Operation job, GoogleOperationType operationType, String regionId, String dataCenterId)throws CloudException, InternalException{
-        long timeout = System.currentTimeMillis() + (CalendarWrapper.MINUTE * 20L);
-        while(timeout > System.currentTimeMillis()) {
-            if(job.getError() != null){
-                for(Operation.Error.Errors error : job.getError().getErrors()){
-                    throw new CloudException("An error occurred: " + error.getMessage());
-                }
-            }
-            else if(job.getStatus().equals("DONE")){
-                return true;
-            }
-
-            try{
-                Thread.sleep(1000L);
-            }
-            catch(InterruptedException ignore){}
-
-            try{
-                Compute gce = provider.getGoogleCompute();
-                switch(operationType){
-                    case GLOBAL_OPERATION:{
-                        job = gce.globalOperations().get(ctx.getAccountNumber(), job.getName()).execute();
-                        break;
-                    }
-                    case REGION_OPERATION:{
-                        job = gce.regionOperations().get(ctx.getAccountNumber(), regionId, job.getName()).execute();
-                        break;
-                    }
-                    case ZONE_OPERATION:{
-                        job = gce.zoneOperations().get(ctx.getAccountNumber(), dataCenterId, job.getName()).execute();
-                        break;
-                    }
-                }
-            }
-            catch(IOException ex){
+        return getOperationComplete(ctx, job, operationType, regionId, dataCenterId, OperationWatcher.DEFAULT_TIMEOUT);
+    }
 
-            }
-        }
-        throw new CloudException(CloudErrorType.COMMUNICATION, 408, "", "System timed out waiting for Operation to complete");
+    /**
+     * Waits for the operation to complete.
+     * @param timeout how long in milliseconds to wait before giving up on the operation
+     * @return true once the operation has completed successfully
+     * @throws CloudException the operation failed or did not complete within the timeout
+     * @throws InternalException the calling thread was interrupted while waiting
+     */
+    public @Nonnull boolean getOperationComplete(ProviderContext ctx, Operation job, GoogleOperationType operationType, String regionId, String dataCenterId, long timeout)throws CloudException, InternalException{
+        OperationWatcher.getInstance(provider).watch(job, operationType, regionId, dataCenterId, timeout, null).await();
+        return true;
     }
 }
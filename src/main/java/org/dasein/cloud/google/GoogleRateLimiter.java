@@ -0,0 +1,402 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpRequest;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.ProviderContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side token-bucket limiter that keeps the requests of a project under its API rate quotas. Each project
+ * has one bucket per {@link Family}; every HTTP request made by the provider takes a token from the matching bucket
+ * before it is sent and waits if none is available. Waiting requests are served by {@link Priority}, so interactive
+ * calls overtake queued bulk work.
+ * <p>Rates, in requests per second with a burst of one second's worth, are set through these
+ * {@link ProviderContext} custom properties (0 disables limiting for the family):</p>
+ * <ul>
+ *     <li>{@link #COMPUTE_READ_RATE} - Compute GET requests (default 20)</li>
+ *     <li>{@link #COMPUTE_WRITE_RATE} - Compute mutations (default 10)</li>
+ *     <li>{@link #STORAGE_RATE} - Cloud Storage requests (default 50)</li>
+ *     <li>{@link #PRIORITY} - default priority of the context's requests (default NORMAL)</li>
+ * </ul>
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class GoogleRateLimiter implements HttpExecuteInterceptor {
+    static private final Logger logger = Google.getLogger(GoogleRateLimiter.class);
+
+    static public final String COMPUTE_READ_RATE  = "google.rateLimit.computeRead";
+    static public final String COMPUTE_WRITE_RATE = "google.rateLimit.computeWrite";
+    static public final String STORAGE_RATE       = "google.rateLimit.storage";
+    static public final String PRIORITY           = "google.rateLimit.priority";
+
+    static private final double DEFAULT_COMPUTE_READ_RATE  = 20.0;
+    static private final double DEFAULT_COMPUTE_WRITE_RATE = 10.0;
+    static private final double DEFAULT_STORAGE_RATE       = 50.0;
+
+    /**
+     * The API families that are limited independently.
+     */
+    public enum Family {
+        COMPUTE_READ, COMPUTE_WRITE, STORAGE
+    }
+
+    /**
+     * Request priorities, highest first.
+     */
+    public enum Priority {
+        INTERACTIVE, NORMAL, BULK
+    }
+
+    static private final ConcurrentHashMap<String,Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+
+    static private final ThreadLocal<Priority> threadPriority = new ThreadLocal<Priority>();
+
+    /**
+     * Overrides the priority of requests made by the current thread until {@link #clearThreadPriority()} is called.
+     * @param priority the priority to use
+     */
+    static public void setThreadPriority(@Nonnull Priority priority) {
+        threadPriority.set(priority);
+    }
+
+    static public void clearThreadPriority() {
+        threadPriority.remove();
+    }
+
+    /**
+     * @return the priority set for the current thread, null if it uses the default priority of its context
+     */
+    static public @Nullable Priority getThreadPriority() {
+        return threadPriority.get();
+    }
+
+    /**
+     * Lets a task handed to a pool thread make its requests at the priority of the thread submitting it.
+     * @param task the task to run on another thread
+     * @param <T> the result of the task
+     * @return the task, running at the current thread's priority
+     */
+    static public @Nonnull <T> Callable<T> withThreadPriority(@Nonnull final Callable<T> task) {
+        final Priority priority = threadPriority.get();
+
+        if( priority == null ) {
+            return task;
+        }
+        return new Callable<T>() {
+            public T call() throws Exception {
+                threadPriority.set(priority);
+                try {
+                    return task.call();
+                }
+                finally {
+                    threadPriority.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * Lets a task handed to a pool thread make its requests at the priority of the thread submitting it.
+     * @param task the task to run on another thread
+     * @return the task, running at the current thread's priority
+     */
+    static public @Nonnull Runnable withThreadPriority(@Nonnull final Runnable task) {
+        final Priority priority = threadPriority.get();
+
+        if( priority == null ) {
+            return task;
+        }
+        return new Runnable() {
+            public void run() {
+                threadPriority.set(priority);
+                try {
+                    task.run();
+                }
+                finally {
+                    threadPriority.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * @param project the project
+     * @param family the API family
+     * @return the bucket limiting the family's requests for the project, null if none has been used yet
+     */
+    static public @Nullable Bucket getBucket(@Nonnull String project, @Nonnull Family family) {
+        return buckets.get(project + "/" + family.name());
+    }
+
+    static private @Nonnull Bucket getBucket(@Nonnull String project, @Nonnull Family family, double rate) {
+        String key = project + "/" + family.name();
+        Bucket bucket = buckets.get(key);
+
+        if( bucket == null ) {
+            buckets.putIfAbsent(key, new Bucket(key, rate));
+            bucket = buckets.get(key);
+        }
+        bucket.setRate(rate);
+        return bucket;
+    }
+
+    /**
+     * Determines the family of a request from its URL and method. Batch calls are POSTs but carry only the GET
+     * requests {@link GoogleBatch} accepts, so they count as reads.
+     * @param request the request about to be sent
+     * @return the family whose quota the request counts against
+     */
+    static public @Nonnull Family getFamily(@Nonnull HttpRequest request) {
+        String path = request.getUrl().getRawPath();
+
+        if( path != null && (path.startsWith("/storage/") || path.startsWith("/upload/storage/")) ) {
+            return Family.STORAGE;
+        }
+        if( path != null && (path.equals("/batch") || path.startsWith("/batch/")) ) {
+            return Family.COMPUTE_READ;
+        }
+        return (HttpMethods.GET.equals(request.getRequestMethod()) ? Family.COMPUTE_READ : Family.COMPUTE_WRITE);
+    }
+
+    static private double getRate(@Nullable Properties props, @Nonnull String name, double defaultValue) {
+        String value = (props == null ? null : props.getProperty(name));
+
+        if( value != null ) {
+            try {
+                double d = Double.parseDouble(value.trim());
+
+                if( d >= 0 ) {
+                    return d;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // fall through to the default
+            }
+            logger.warn("Ignoring invalid value for " + name + ": " + value);
+        }
+        return defaultValue;
+    }
+
+    private final String   project;
+    private final double   computeReadRate;
+    private final double   computeWriteRate;
+    private final double   storageRate;
+    private final Priority defaultPriority;
+
+    /**
+     * @param ctx the context whose project and custom properties configure the limiter
+     */
+    public GoogleRateLimiter(@Nonnull ProviderContext ctx) {
+        Properties props = ctx.getCustomProperties();
+        Priority priority = Priority.NORMAL;
+
+        project = ctx.getAccountNumber();
+        computeReadRate = getRate(props, COMPUTE_READ_RATE, DEFAULT_COMPUTE_READ_RATE);
+        computeWriteRate = getRate(props, COMPUTE_WRITE_RATE, DEFAULT_COMPUTE_WRITE_RATE);
+        storageRate = getRate(props, STORAGE_RATE, DEFAULT_STORAGE_RATE);
+        if( props != null && props.getProperty(PRIORITY) != null ) {
+            try {
+                priority = Priority.valueOf(props.getProperty(PRIORITY).trim().toUpperCase());
+            }
+            catch( IllegalArgumentException e ) {
+                logger.warn("Ignoring invalid value for " + PRIORITY + ": " + props.getProperty(PRIORITY));
+            }
+        }
+        defaultPriority = priority;
+    }
+
+    @Override
+    public void intercept(HttpRequest request) throws IOException {
+        Family family = getFamily(request);
+        double rate;
+
+        switch( family ) {
+            case COMPUTE_READ: rate = computeReadRate; break;
+            case COMPUTE_WRITE: rate = computeWriteRate; break;
+            default: rate = storageRate; break;
+        }
+        if( rate <= 0 ) {
+            return;
+        }
+        Priority priority = threadPriority.get();
+
+        try {
+            getBucket(project, family, rate).acquire(priority == null ? defaultPriority : priority);
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the " + family + " rate limit of " + project);
+        }
+    }
+
+    /**
+     * A token bucket refilled continuously at a fixed rate with a burst capacity of one second's worth of tokens.
+     */
+    static public class Bucket {
+        private final String name;
+        private final int[]  waiting = new int[Priority.values().length];
+
+        // guarded by this
+        private double rate;
+        private double tokens;
+        private long   lastRefill = System.nanoTime();
+
+        private final AtomicLong acquired        = new AtomicLong(0);
+        private final AtomicLong delayed         = new AtomicLong(0);
+        private final AtomicLong totalWaitMillis = new AtomicLong(0);
+        private final AtomicLong maxWaitMillis   = new AtomicLong(0);
+
+        private Bucket(@Nonnull String name, double rate) {
+            this.name = name;
+            this.rate = rate;
+            this.tokens = getCapacity();
+        }
+
+        private double getCapacity() {
+            return Math.max(1.0, rate);
+        }
+
+        private synchronized void setRate(double rate) {
+            if( this.rate != rate ) {
+                refill();
+                this.rate = rate;
+                tokens = Math.min(tokens, getCapacity());
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+
+            tokens = Math.min(getCapacity(), tokens + ((now - lastRefill) / 1000000000.0) * rate);
+            lastRefill = now;
+        }
+
+        private boolean isHigherPriorityWaiting(@Nonnull Priority priority) {
+            for( int i=0; i<priority.ordinal(); i++ ) {
+                if( waiting[i] > 0 ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private synchronized void acquire(@Nonnull Priority priority) throws InterruptedException {
+            long start = System.currentTimeMillis();
+            boolean waited = false;
+
+            waiting[priority.ordinal()]++;
+            try {
+                while( true ) {
+                    refill();
+                    if( tokens >= 1.0 && !isHigherPriorityWaiting(priority) ) {
+                        tokens -= 1.0;
+                        break;
+                    }
+                    waited = true;
+                    if( tokens >= 1.0 ) {
+                        // a token is available but belongs to a more important waiter
+                        notifyAll();
+                        wait(1L);
+                    }
+                    else {
+                        wait(Math.max(1L, (long)Math.ceil(((1.0 - tokens) * 1000.0) / rate)));
+                    }
+                }
+            }
+            finally {
+                waiting[priority.ordinal()]--;
+                notifyAll();
+            }
+            acquired.incrementAndGet();
+            if( waited ) {
+                long elapsed = System.currentTimeMillis() - start;
+
+                delayed.incrementAndGet();
+                totalWaitMillis.addAndGet(elapsed);
+                long max = maxWaitMillis.get();
+                while( elapsed > max && !maxWaitMillis.compareAndSet(max, elapsed) ) {
+                    max = maxWaitMillis.get();
+                }
+                if( logger.isDebugEnabled() ) {
+                    logger.debug(name + ": " + priority + " request waited " + elapsed + "ms for a token");
+                }
+            }
+        }
+
+        /**
+         * @return the number of requests currently waiting for a token
+         */
+        public synchronized int getQueueDepth() {
+            int depth = 0;
+
+            for( int w : waiting ) {
+                depth += w;
+            }
+            return depth;
+        }
+
+        /**
+         * @return the number of requests that were let through
+         */
+        public long getAcquiredCount() {
+            return acquired.get();
+        }
+
+        /**
+         * @return the number of requests that had to wait for a token
+         */
+        public long getDelayedCount() {
+            return delayed.get();
+        }
+
+        /**
+         * @return the mean wait in milliseconds of the requests that had to wait
+         */
+        public long getAverageWaitMillis() {
+            long count = delayed.get();
+
+            return (count == 0 ? 0L : totalWaitMillis.get() / count);
+        }
+
+        /**
+         * @return the longest wait in milliseconds for a token
+         */
+        public long getMaxWaitMillis() {
+            return maxWaitMillis.get();
+        }
+
+        @Override
+        public @Nonnull String toString() {
+            return name + "[rate=" + rate + "/s, queued=" + getQueueDepth() + ", acquired=" + acquired.get() + ", delayed=" + delayed.get() + ", avgWait=" + getAverageWaitMillis() + "ms]";
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpIOExceptionHandler;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseInterceptor;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * Installs the provider's request pipeline on every HTTP request made by the Compute and Storage clients: the
+ * circuit breaker and then the rate limiter run before the access token is attached, the token manager gets the
+ * first look at unsuccessful responses, and transient failures are retried as decided by the
+ * {@link GoogleRetryPolicy}.
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class GoogleRequestInitializer implements HttpRequestInitializer {
+    private final GoogleTokenManager tokens;
+    private final GoogleRateLimiter  limiter;
+    private final GoogleRetryPolicy    retries;
+    private final GoogleCircuitBreaker breaker;
+
+    public GoogleRequestInitializer(@Nonnull GoogleTokenManager tokens, @Nonnull GoogleRateLimiter limiter, @Nonnull GoogleRetryPolicy retries, @Nonnull GoogleCircuitBreaker breaker) {
+        this.tokens = tokens;
+        this.limiter = limiter;
+        this.retries = retries;
+        this.breaker = breaker;
+    }
+
+    @Override
+    public void initialize(HttpRequest request) throws IOException {
+        Exchange exchange = new Exchange(retries.start(request));
+
+        // one extra attempt leaves room for a token refresh on top of the policy's retries
+        request.setNumberOfRetries(retries.getMaxAttempts());
+        request.setInterceptor(exchange);
+        request.setResponseInterceptor(exchange);
+        request.setUnsuccessfulResponseHandler(exchange);
+        request.setIOExceptionHandler(exchange);
+    }
+
+    public @Nonnull GoogleCircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    public @Nonnull GoogleRateLimiter getRateLimiter() {
+        return limiter;
+    }
+
+    public @Nonnull GoogleRetryPolicy getRetryPolicy() {
+        return retries;
+    }
+
+    public @Nonnull GoogleTokenManager getTokenManager() {
+        return tokens;
+    }
+
+    /**
+     * The pipeline state of a single request, shared by all its attempts.
+     */
+    private class Exchange implements HttpExecuteInterceptor, HttpResponseInterceptor, HttpUnsuccessfulResponseHandler, HttpIOExceptionHandler {
+        private final GoogleRetryPolicy.Attempts attempts;
+        private       GoogleCircuitBreaker.Circuit circuit;
+
+        private Exchange(@Nonnull GoogleRetryPolicy.Attempts attempts) {
+            this.attempts = attempts;
+        }
+
+        @Override
+        public void intercept(HttpRequest request) throws IOException {
+            circuit = breaker.acquire(request);
+            attempts.beforeAttempt();
+            limiter.intercept(request);
+            tokens.intercept(request);
+        }
+
+        @Override
+        public void interceptResponse(HttpResponse response) throws IOException {
+            if( circuit != null ) {
+                // 501 means the call itself is unsupported, not that the API is unhealthy
+                if( response.getStatusCode() >= 500 && response.getStatusCode() != 501 ) {
+                    circuit.onFailure();
+                }
+                else {
+                    circuit.onSuccess();
+                }
+            }
+        }
+
+        @Override
+        public boolean handleResponse(HttpRequest request, HttpResponse response, boolean supportsRetry) throws IOException {
+            if( tokens.handleResponse(request, response, supportsRetry) ) {
+                return true;
+            }
+            return (supportsRetry && attempts.shouldRetry(response.getStatusCode()));
+        }
+
+        @Override
+        public boolean handleIOException(HttpRequest request, boolean supportsRetry) throws IOException {
+            if( circuit != null ) {
+                circuit.onFailure();
+            }
+            return (supportsRetry && attempts.shouldRetryIOException());
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.http.HttpRequest;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.ProviderContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a failed Compute or Storage request is retried and how long to wait first.
+ * <ul>
+ *     <li>Idempotent requests (GET, HEAD, PUT) are retried on 429, 500, 502, 503, 504 and on I/O errors.</li>
+ *     <li>Other requests (inserts, deletes, actions) are only retried on 429 and 503, which mean the request
+ *     was rejected before it was processed.</li>
+ *     <li>Delays follow decorrelated jitter: each delay is random between the base delay and three times the
+ *     previous one, capped at {@link #MAX_DELAY}.</li>
+ *     <li>Each endpoint has a retry budget that grows by {@link #BUDGET_RATIO} of a retry per request and is
+ *     capped, so a failing endpoint cannot have its traffic multiplied by retries.</li>
+ * </ul>
+ * <p>The number of attempts is set with the {@link #MAX_ATTEMPTS} {@link ProviderContext} custom property
+ * (default 5, 1 disables retries).</p>
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class GoogleRetryPolicy {
+    static private final Logger logger = Google.getLogger(GoogleRetryPolicy.class);
+
+    static public final String MAX_ATTEMPTS = "google.retry.maxAttempts";
+
+    static private final int    DEFAULT_MAX_ATTEMPTS = 5;
+    static public  final long   BASE_DELAY           = 200L;
+    static public  final long   MAX_DELAY            = 20000L;
+    static public  final double BUDGET_RATIO         = 0.1;
+    static private final double MAX_BUDGET           = 10.0;
+
+    static private final Random random = new Random();
+
+    static private final ConcurrentHashMap<String,EndpointStats> endpoints = new ConcurrentHashMap<String, EndpointStats>();
+
+    /**
+     * @param endpoint the endpoint as reported by {@link GoogleEndpoint#getEndpoint(HttpRequest)}
+     * @return the retry statistics of the endpoint, null if it has not been called yet
+     */
+    static public @Nullable EndpointStats getStats(@Nonnull String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * @return the retry statistics of every endpoint called so far
+     */
+    static public @Nonnull Map<String,EndpointStats> getAllStats() {
+        return Collections.unmodifiableMap(new HashMap<String, EndpointStats>(endpoints));
+    }
+
+    static @Nonnull EndpointStats getEndpointStats(@Nonnull String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+
+        if( stats == null ) {
+            endpoints.putIfAbsent(endpoint, new EndpointStats(endpoint));
+            stats = endpoints.get(endpoint);
+        }
+        return stats;
+    }
+
+    /**
+     * Computes the next decorrelated jitter delay.
+     * @param lastDelay the previous delay, or the base delay before the first retry
+     * @param jitter a random number between 0 inclusive and 1 exclusive
+     * @return the delay in milliseconds before the next attempt
+     */
+    static long getDelay(long lastDelay, double jitter) {
+        return Math.min(MAX_DELAY, BASE_DELAY + (long)(jitter * Math.max(0L, (lastDelay * 3) - BASE_DELAY)));
+    }
+
+    private final int maxAttempts;
+
+    /**
+     * @param ctx the context whose custom properties configure the policy
+     */
+    public GoogleRetryPolicy(@Nonnull ProviderContext ctx) {
+        Properties props = ctx.getCustomProperties();
+        String value = (props == null ? null : props.getProperty(MAX_ATTEMPTS));
+        int attempts = DEFAULT_MAX_ATTEMPTS;
+
+        if( value != null ) {
+            try {
+                attempts = Math.max(1, Integer.parseInt(value.trim()));
+            }
+            catch( NumberFormatException e ) {
+                logger.warn("Ignoring invalid value for " + MAX_ATTEMPTS + ": " + value);
+            }
+        }
+        maxAttempts = attempts;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Tracks the retries of a single request across its attempts.
+     * @param request the request being sent
+     * @return the retry state for the request
+     */
+    public @Nonnull Attempts start(@Nonnull HttpRequest request) {
+        return new Attempts(request);
+    }
+
+    /**
+     * The retry state of one request.
+     */
+    public class Attempts {
+        private final HttpRequest   request;
+        private       EndpointStats stats;
+        private       int           attempt   = 0;
+        private       long          lastDelay = BASE_DELAY;
+
+        private Attempts(@Nonnull HttpRequest request) {
+            this.request = request;
+        }
+
+        /**
+         * Called before each attempt is sent.
+         */
+        public void beforeAttempt() {
+            if( stats == null ) {
+                // the URL is only final once the client has built the request
+                stats = getEndpointStats(GoogleEndpoint.getEndpoint(request));
+            }
+            if( attempt++ == 0 ) {
+                stats.requestStarted();
+            }
+        }
+
+        /**
+         * @param statusCode the status of the unsuccessful response
+         * @return true if the request should be sent again after the backoff delay
+         */
+        public boolean shouldRetry(int statusCode) {
+            boolean retryable;
+
+            if( statusCode == 429 || statusCode == 503 ) {
+                retryable = true;
+            }
+            else if( statusCode == 500 || statusCode == 502 || statusCode == 504 ) {
+                retryable = GoogleEndpoint.isIdempotent(request);
+            }
+            else {
+                retryable = false;
+            }
+            return retryable && backoff(String.valueOf(statusCode));
+        }
+
+        /**
+         * @return true if the request should be sent again after an I/O error
+         */
+        public boolean shouldRetryIOException() {
+            // the request may have reached the server, so only requests that are safe to repeat are retried
+            return GoogleEndpoint.isIdempotent(request) && backoff("I/O error");
+        }
+
+        private boolean backoff(@Nonnull String reason) {
+            if( stats == null ) {
+                return false;
+            }
+            if( attempt >= maxAttempts ) {
+                stats.exhausted.incrementAndGet();
+                return false;
+            }
+            if( !stats.spendBudget() ) {
+                stats.budgetDenied.incrementAndGet();
+                logger.warn("Retry budget exhausted for " + stats.getEndpoint() + ", not retrying after " + reason);
+                return false;
+            }
+            long delay = getDelay(lastDelay, random.nextDouble());
+
+            lastDelay = delay;
+            stats.retries.incrementAndGet();
+            if( logger.isDebugEnabled() ) {
+                logger.debug("Retrying " + stats.getEndpoint() + " after " + reason + " in " + delay + "ms (attempt " + (attempt + 1) + " of " + maxAttempts + ")");
+            }
+            try {
+                Thread.sleep(delay);
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Retry counters and retry budget of one endpoint.
+     */
+    static public class EndpointStats {
+        private final String     endpoint;
+        private final AtomicLong requests     = new AtomicLong(0);
+        private final AtomicLong retries      = new AtomicLong(0);
+        private final AtomicLong exhausted    = new AtomicLong(0);
+        private final AtomicLong budgetDenied = new AtomicLong(0);
+
+        // guarded by this
+        private double budget = MAX_BUDGET;
+
+        private EndpointStats(@Nonnull String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        synchronized void requestStarted() {
+            requests.incrementAndGet();
+            budget = Math.min(MAX_BUDGET, budget + BUDGET_RATIO);
+        }
+
+        synchronized boolean spendBudget() {
+            if( budget < 1.0 ) {
+                return false;
+            }
+            budget -= 1.0;
+            return true;
+        }
+
+        public @Nonnull String getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * @return the number of requests sent to the endpoint, not counting retries
+         */
+        public long getRequestCount() {
+            return requests.get();
+        }
+
+        /**
+         * @return the number of retries sent to the endpoint
+         */
+        public long getRetryCount() {
+            return retries.get();
+        }
+
+        /**
+         * @return the number of requests that failed after using all their attempts
+         */
+        public long getExhaustedCount() {
+            return exhausted.get();
+        }
+
+        /**
+         * @return the number of retries skipped because the endpoint's retry budget was spent
+         */
+        public long getBudgetDeniedCount() {
+            return budgetDenied.get();
+        }
+
+        @Override
+        public @Nonnull String toString() {
+            return endpoint + "[requests=" + requests.get() + ", retries=" + retries.get() + ", exhausted=" + exhausted.get() + ", budgetDenied=" + budgetDenied.get() + "]";
+        }
+    }
+}
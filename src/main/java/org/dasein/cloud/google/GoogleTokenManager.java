@@ -0,0 +1,333 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpStatusCodes;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+import com.google.api.services.compute.ComputeScopes;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ContextRequirements;
+import org.dasein.cloud.ProviderContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the OAuth access token of a single service account. The PKCS12 key is parsed once, the resulting token is
+ * shared by every Compute and Storage client built for that account and it is refreshed in the background ahead of
+ * its expiry. Requests simply attach the current token: only the very first request (before any token exists) or a
+ * request rejected with a 401 ever waits on the token endpoint, and concurrent callers share that single refresh.
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class GoogleTokenManager implements HttpRequestInitializer, HttpExecuteInterceptor, HttpUnsuccessfulResponseHandler {
+    static private final Logger logger = Google.getLogger(GoogleTokenManager.class);
+
+    /**
+     * How long before expiry a token is proactively refreshed.
+     */
+    static private final long REFRESH_MARGIN = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * How long to wait before retrying a failed background refresh.
+     */
+    static private final long RETRY_DELAY    = TimeUnit.SECONDS.toMillis(30);
+
+    static private final ConcurrentHashMap<String,GoogleTokenManager> managers = new ConcurrentHashMap<String, GoogleTokenManager>();
+
+    static private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-google-token-refresh");
+
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * Provides the token manager for the service account configured in the provider's current context, parsing its
+     * PKCS12 key the first time the account is seen.
+     * @param provider the provider whose context holds the service account credentials
+     * @return the shared token manager for that service account
+     * @throws CloudException the credentials are missing or could not be parsed
+     */
+    static public @Nonnull GoogleTokenManager getInstance(@Nonnull Google provider) throws CloudException {
+        ProviderContext ctx = provider.getContext();
+
+        if( ctx == null ) {
+            throw new NoContextException();
+        }
+        try {
+            String serviceAccountId = "";
+            byte[] p12Bytes = null;
+            String p12Password = "";
+
+            List<ContextRequirements.Field> fields = provider.getContextRequirements().getConfigurableValues();
+            for( ContextRequirements.Field f : fields ) {
+                if( f.type.equals(ContextRequirements.FieldType.KEYPAIR) ) {
+                    byte[][] keyPair = (byte[][])ctx.getConfigurationValue(f);
+                    p12Bytes = keyPair[0];
+                    p12Password = new String(keyPair[1], "utf-8");
+                }
+                else if( f.type.equals(ContextRequirements.FieldType.TEXT) ) {
+                    serviceAccountId = (String)ctx.getConfigurationValue(f);
+                }
+            }
+            if( p12Bytes == null ) {
+                throw new CloudException(CloudErrorType.AUTHENTICATION, 400, "Bad Credentials", "No p12 certificate was provided for " + serviceAccountId);
+            }
+            String key = serviceAccountId + ":" + toHex(MessageDigest.getInstance("SHA-1").digest(p12Bytes));
+            GoogleTokenManager manager = managers.get(key);
+
+            if( manager == null ) {
+                synchronized( managers ) {
+                    manager = managers.get(key);
+                    if( manager == null ) {
+                        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+                        keyStore.load(new ByteArrayInputStream(p12Bytes), p12Password.toCharArray());
+
+                        GoogleTransport transport = provider.getTransport();
+                        GoogleCredential creds = new GoogleCredential.Builder().setTransport(transport.getHttpTransport())
+                                .setJsonFactory(transport.getJsonFactory())
+                                .setServiceAccountId(serviceAccountId)
+                                .setServiceAccountScopes(ComputeScopes.all())
+                                .setServiceAccountPrivateKey((PrivateKey) keyStore.getKey("privateKey", p12Password.toCharArray()))//This is always the password for p12 files
+                                .build();
+
+                        manager = new GoogleTokenManager(serviceAccountId, creds);
+                        managers.put(key, manager);
+                    }
+                }
+            }
+            return manager;
+        }
+        catch( CloudException e ) {
+            throw e;
+        }
+        catch( Exception e ) {
+            logger.error("Unable to load the service account credentials: " + e.getMessage());
+            throw new CloudException(CloudErrorType.AUTHENTICATION, 400, "Bad Credentials", "An authentication error has occurred: Bad Credentials");
+        }
+    }
+
+    static private @Nonnull String toHex(@Nonnull byte[] bytes) {
+        StringBuilder str = new StringBuilder();
+
+        for( byte b : bytes ) {
+            str.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+        }
+        return str.toString();
+    }
+
+    private final String           serviceAccountId;
+    private final GoogleCredential credential;
+    private final Object           refreshLock = new Object();
+    private final AtomicBoolean    refreshScheduled = new AtomicBoolean(false);
+
+    private volatile String accessToken;
+    private volatile long   expiresAt;
+
+    private final AtomicLong refreshCount       = new AtomicLong(0);
+    private final AtomicLong refreshFailures    = new AtomicLong(0);
+    private final AtomicLong totalRefreshMillis = new AtomicLong(0);
+    private final AtomicLong maxRefreshMillis   = new AtomicLong(0);
+    private volatile long    lastRefreshMillis  = 0L;
+
+    private GoogleTokenManager(@Nonnull String serviceAccountId, @Nonnull GoogleCredential credential) {
+        this.serviceAccountId = serviceAccountId;
+        this.credential = credential;
+    }
+
+    @Override
+    public void initialize(HttpRequest request) throws IOException {
+        request.setInterceptor(this);
+        request.setUnsuccessfulResponseHandler(this);
+    }
+
+    @Override
+    public void intercept(HttpRequest request) throws IOException {
+        String token = accessToken;
+
+        if( token == null ) {
+            token = refresh(null);
+        }
+        request.getHeaders().setAuthorization("Bearer " + token);
+    }
+
+    @Override
+    public boolean handleResponse(HttpRequest request, HttpResponse response, boolean supportsRetry) throws IOException {
+        if( response.getStatusCode() != HttpStatusCodes.STATUS_CODE_UNAUTHORIZED ) {
+            return false;
+        }
+        String rejected = request.getHeaders().getAuthorization();
+
+        if( rejected != null && rejected.startsWith("Bearer ") ) {
+            rejected = rejected.substring(7);
+        }
+        logger.warn("Access token for " + serviceAccountId + " was rejected, refreshing");
+        try {
+            refresh(rejected);
+            return supportsRetry;
+        }
+        catch( IOException e ) {
+            logger.error("Unable to refresh the access token for " + serviceAccountId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Fetches a new token unless another thread already replaced the stale one while this thread waited.
+     * @param staleToken the token known to be invalid, or null if no token has been issued yet
+     * @return the current valid token
+     * @throws IOException the token endpoint could not be reached or rejected the credentials
+     */
+    private @Nonnull String refresh(@Nullable String staleToken) throws IOException {
+        synchronized( refreshLock ) {
+            String token = accessToken;
+
+            if( token != null && !token.equals(staleToken) ) {
+                return token;
+            }
+            long start = System.currentTimeMillis();
+
+            try {
+                if( !credential.refreshToken() || credential.getAccessToken() == null ) {
+                    throw new IOException("The token endpoint did not issue an access token for " + serviceAccountId);
+                }
+            }
+            catch( IOException e ) {
+                refreshFailures.incrementAndGet();
+                throw e;
+            }
+            long elapsed = System.currentTimeMillis() - start;
+
+            refreshCount.incrementAndGet();
+            totalRefreshMillis.addAndGet(elapsed);
+            lastRefreshMillis = elapsed;
+            long max = maxRefreshMillis.get();
+            while( elapsed > max && !maxRefreshMillis.compareAndSet(max, elapsed) ) {
+                max = maxRefreshMillis.get();
+            }
+
+            Long expiration = credential.getExpirationTimeMilliseconds();
+
+            expiresAt = (expiration == null ? System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1) : expiration);
+            accessToken = credential.getAccessToken();
+            if( logger.isDebugEnabled() ) {
+                logger.debug("Refreshed access token for " + serviceAccountId + " in " + elapsed + "ms, expires at " + expiresAt);
+            }
+            scheduleRefresh(Math.max(0L, expiresAt - REFRESH_MARGIN - System.currentTimeMillis()));
+            return accessToken;
+        }
+    }
+
+    private void scheduleRefresh(long delay) {
+        if( !refreshScheduled.compareAndSet(false, true) ) {
+            return;
+        }
+        refresher.schedule(new Runnable() {
+            public void run() {
+                refreshScheduled.set(false);
+                try {
+                    refresh(accessToken);
+                }
+                catch( Throwable t ) {
+                    logger.warn("Background refresh of the access token for " + serviceAccountId + " failed: " + t.getMessage());
+                    long remaining = expiresAt - System.currentTimeMillis();
+
+                    if( remaining > 0 ) {
+                        scheduleRefresh(Math.min(RETRY_DELAY, remaining));
+                    }
+                    else {
+                        // let the next request or 401 trigger a fresh attempt
+                        accessToken = null;
+                    }
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    public @Nonnull String getServiceAccountId() {
+        return serviceAccountId;
+    }
+
+    /**
+     * @return the time in milliseconds when the current token expires, 0 if no token has been issued
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * @return the number of successful token refreshes
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * @return the number of failed token refreshes
+     */
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
+
+    /**
+     * @return the latency in milliseconds of the most recent successful refresh
+     */
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+
+    /**
+     * @return the slowest successful refresh in milliseconds
+     */
+    public long getMaxRefreshMillis() {
+        return maxRefreshMillis.get();
+    }
+
+    /**
+     * @return the mean latency in milliseconds of successful refreshes
+     */
+    public long getAverageRefreshMillis() {
+        long count = refreshCount.get();
+
+        return (count == 0 ? 0L : totalRefreshMillis.get() / count);
+    }
+}
@@ -0,0 +1,475 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.services.compute.Compute;
+import com.google.api.services.compute.model.Region;
+import com.google.api.services.compute.model.RegionList;
+import com.google.api.services.compute.model.Zone;
+import com.google.api.services.compute.model.ZoneList;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index of the zones and regions of a project, loaded with one {@code zones().list} and one {@code regions().list}
+ * call and shared by every support class of the project. The index is an immutable snapshot replaced as a whole on
+ * refresh, so lookups are plain map reads that neither lock nor allocate. Once loaded, the index is refreshed in the
+ * background; a failed refresh keeps the previous snapshot.
+ * <p>The {@code find} lookups reload the index when asked for a zone or region it does not know, in case it was
+ * added since the last load. IDs that are still unknown after the reload are remembered for
+ * {@link #NEGATIVE_TTL} milliseconds, so repeated lookups of a bad ID do not reload the index every time.</p>
+ * <p>The refresh interval is set with the {@link #REFRESH_MINUTES} {@link ProviderContext} custom property
+ * (default 10).</p>
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class GoogleTopology {
+    static private final Logger logger = Google.getLogger(GoogleTopology.class);
+
+    static public final String REFRESH_MINUTES = "google.topology.refreshMinutes";
+
+    static private final long DEFAULT_REFRESH_MINUTES = 10L;
+
+    static public final long NEGATIVE_TTL = CalendarWrapper.MINUTE * 5L;
+
+    static private final ConcurrentHashMap<String,GoogleTopology> topologies = new ConcurrentHashMap<String, GoogleTopology>();
+
+    static private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-google-topology-refresh");
+
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * Provides the topology of the provider's project, creating it on first use. The index itself is loaded on the
+     * first lookup.
+     * @param provider the provider whose project is indexed
+     * @return the topology of the project
+     * @throws CloudException no context is set or the Compute client could not be created
+     * @throws InternalException an error occurred building the Compute client
+     */
+    static public @Nonnull GoogleTopology getInstance(@Nonnull Google provider) throws CloudException, InternalException {
+        ProviderContext ctx = provider.getContext();
+
+        if( ctx == null ) {
+            throw new NoContextException();
+        }
+        String project = ctx.getAccountNumber();
+        GoogleTopology topology = topologies.get(project);
+
+        if( topology == null ) {
+            topologies.putIfAbsent(project, new GoogleTopology(project, getRefreshMinutes(ctx), provider.getGoogleCompute()));
+            topology = topologies.get(project);
+        }
+        return topology;
+    }
+
+    static private long getRefreshMinutes(@Nonnull ProviderContext ctx) {
+        Properties props = ctx.getCustomProperties();
+        String value = (props == null ? null : props.getProperty(REFRESH_MINUTES));
+
+        if( value != null ) {
+            try {
+                long minutes = Long.parseLong(value.trim());
+
+                if( minutes > 0 ) {
+                    return minutes;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // fall through to the default
+            }
+            logger.warn("Ignoring invalid value for " + REFRESH_MINUTES + ": " + value);
+        }
+        return DEFAULT_REFRESH_MINUTES;
+    }
+
+    /**
+     * Strips any URL or {@code zones/} and {@code regions/} prefix from a zone or region reference.
+     * @param nameOrUrl a name, a partial path such as {@code zones/us-central1-a} or a self link
+     * @return the bare name
+     */
+    static public @Nonnull String toName(@Nonnull String nameOrUrl) {
+        int idx = nameOrUrl.lastIndexOf('/');
+
+        return (idx < 0 ? nameOrUrl : nameOrUrl.substring(idx + 1));
+    }
+
+    /**
+     * One immutable version of the index.
+     */
+    static private class Snapshot {
+        private final Map<String,Zone>         zones         = new HashMap<String, Zone>();
+        private final Map<String,Region>       regions       = new HashMap<String, Region>();
+        private final Map<String,String>       zoneToRegion  = new HashMap<String, String>();
+        private final Map<String,List<String>> regionToZones = new HashMap<String, List<String>>();
+        private final long                     loadedAt      = System.currentTimeMillis();
+        private List<Zone>                     zoneList;
+        private List<Region>                   regionList;
+    }
+
+    private final String      project;
+    private final long        refreshMinutes;
+    private final Compute     compute;
+    private volatile Snapshot snapshot;
+
+    // guarded by this
+    private boolean scheduled = false;
+
+    // zones/name and regions/name of IDs not found after a reload, mapped to when they may trigger a reload again
+    private final ConcurrentHashMap<String,Long> unknown = new ConcurrentHashMap<String, Long>();
+
+    private final AtomicLong loads        = new AtomicLong(0);
+    private final AtomicLong loadFailures = new AtomicLong(0);
+    private final AtomicLong missReloads  = new AtomicLong(0);
+    private final AtomicLong negativeHits = new AtomicLong(0);
+
+    /**
+     * @param project the project indexed
+     * @param refreshMinutes the interval between background refreshes
+     * @param compute the client used for every load of the index
+     */
+    GoogleTopology(@Nonnull String project, long refreshMinutes, @Nonnull Compute compute) {
+        this.project = project;
+        this.refreshMinutes = refreshMinutes;
+        this.compute = compute;
+    }
+
+    private @Nonnull Snapshot getSnapshot() throws CloudException, InternalException {
+        Snapshot current = snapshot;
+
+        if( current == null ) {
+            synchronized( this ) {
+                current = snapshot;
+                if( current == null ) {
+                    current = load();
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reloads the index immediately.
+     * @throws CloudException the zones or regions could not be listed
+     * @throws InternalException an internal error occurred listing the zones or regions
+     */
+    public synchronized void refresh() throws CloudException, InternalException {
+        load();
+    }
+
+    /**
+     * Decides whether a lookup that missed may reload the index, and reloads it unless another thread already
+     * replaced the snapshot the miss was seen in. Concurrent misses in the same snapshot therefore share one reload.
+     * @param key the ID that was not found, prefixed with its collection
+     * @param missed the snapshot the ID was not found in
+     * @return true if the index may now know the ID
+     */
+    private boolean reloadOnMiss(@Nonnull String key, @Nonnull Snapshot missed) throws CloudException, InternalException {
+        long now = System.currentTimeMillis();
+        Long until = unknown.get(key);
+
+        if( until != null ) {
+            if( until > now ) {
+                negativeHits.incrementAndGet();
+                return false;
+            }
+            unknown.remove(key, until);
+        }
+        synchronized( this ) {
+            if( snapshot == missed ) {
+                missReloads.incrementAndGet();
+                load();
+            }
+        }
+        return true;
+    }
+
+    private void markUnknown(@Nonnull String key) {
+        unknown.put(key, System.currentTimeMillis() + NEGATIVE_TTL);
+    }
+
+    private synchronized @Nonnull Snapshot load() throws CloudException, InternalException {
+        List<Zone> zoneList = new ArrayList<Zone>();
+        List<Region> regionList = new ArrayList<Region>();
+
+        loads.incrementAndGet();
+        try {
+            String pageToken = null;
+
+            do {
+                ZoneList page = compute.zones().list(project).setPageToken(pageToken).execute();
+
+                if( page.getItems() != null ) {
+                    zoneList.addAll(page.getItems());
+                }
+                pageToken = page.getNextPageToken();
+            } while( pageToken != null );
+            do {
+                RegionList page = compute.regions().list(project).setPageToken(pageToken).execute();
+
+                if( page.getItems() != null ) {
+                    regionList.addAll(page.getItems());
+                }
+                pageToken = page.getNextPageToken();
+            } while( pageToken != null );
+        }
+        catch( IOException ex ) {
+            loadFailures.incrementAndGet();
+            throw PagedIterable.toCloudException(ex, "An error occurred loading the zones and regions of " + project);
+        }
+        // stamped once the lists are in, so the load time reflects the data
+        Snapshot next = new Snapshot();
+
+        for( Region region : regionList ) {
+            next.regions.put(region.getName(), region);
+            next.regionToZones.put(region.getName(), new ArrayList<String>());
+        }
+        for( Zone zone : zoneList ) {
+            String region = toName(zone.getRegion());
+            List<String> inRegion = next.regionToZones.get(region);
+
+            if( inRegion == null ) {
+                inRegion = new ArrayList<String>();
+                next.regionToZones.put(region, inRegion);
+            }
+            inRegion.add(zone.getName());
+            next.zones.put(zone.getName(), zone);
+            next.zoneToRegion.put(zone.getName(), region);
+        }
+        for( Map.Entry<String,List<String>> entry : next.regionToZones.entrySet() ) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        next.zoneList = Collections.unmodifiableList(zoneList);
+        next.regionList = Collections.unmodifiableList(regionList);
+        snapshot = next;
+        if( !scheduled ) {
+            scheduled = true;
+            refresher.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        load();
+                    }
+                    catch( Throwable t ) {
+                        logger.warn("Unable to refresh the zones and regions of " + project + ", keeping the previous index: " + t.getMessage());
+                    }
+                }
+            }, refreshMinutes, refreshMinutes, TimeUnit.MINUTES);
+        }
+        if( logger.isDebugEnabled() ) {
+            logger.debug("Loaded " + zoneList.size() + " zones in " + regionList.size() + " regions for " + project);
+        }
+        return next;
+    }
+
+    /**
+     * @param zone the zone name, partial path or self link
+     * @return the name of the region containing the zone, null if the zone is unknown
+     * @throws CloudException the index could not be loaded
+     * @throws InternalException an internal error occurred loading the index
+     */
+    public @Nullable String getRegionForZone(@Nonnull String zone) throws CloudException, InternalException {
+        return getSnapshot().zoneToRegion.get(toName(zone));
+    }
+
+    /**
+     * @param region the region name, partial path or self link
+     * @return the names of the zones in the region, empty if the region is unknown
+     * @throws CloudException the index could not be loaded
+     * @throws InternalException an internal error occurred loading the index
+     */
+    public @Nonnull List<String> getZonesInRegion(@Nonnull String region) throws CloudException, InternalException {
+        List<String> zones = getSnapshot().regionToZones.get(toName(region));
+
+        return (zones == null ? Collections.<String>emptyList() : zones);
+    }
+
+    /**
+     * @param zone the zone name, partial path or self link
+     * @return the status of the zone, e.g. {@code UP}, null if the zone is unknown
+     * @throws CloudException the index could not be loaded
+     * @throws InternalException an internal error occurred loading the index
+     */
+    public @Nullable String getZoneStatus(@Nonnull String zone) throws CloudException, InternalException {
+        Zone z = getSnapshot().zones.get(toName(zone));
+
+        return (z == null ? null : z.getStatus());
+    }
+
+    /**
+     * @param zone the zone name, partial path or self link
+     * @return the zone, null if it is unknown
+     * @throws CloudException the index could not be loaded
+     * @throws InternalException an internal error occurred loading the index
+     */
+    public @Nullable Zone getZone(@Nonnull String zone) throws CloudException, InternalException {
+        return getSnapshot().zones.get(toName(zone));
+    }
+
+    /**
+     * @param region the region name, partial path or self link
+     * @return the region, null if it is unknown
+     * @throws CloudException the index could not be loaded
+     * @throws InternalException an internal error occurred loading the index
+     */
+    public @Nullable Region getRegion(@Nonnull String region) throws CloudException, InternalException {
+        return getSnapshot().regions.get(toName(region));
+    }
+
+    /**
+     * @return every zone of the project
+     * @throws CloudException the index could not be loaded
+     * @throws InternalException an internal error occurred loading the index
+     */
+    public @Nonnull Collection<Zone> getZones() throws CloudException, InternalException {
+        return getSnapshot().zoneList;
+    }
+
+    /**
+     * @return every region of the project
+     * @throws CloudException the index could not be loaded
+     * @throws InternalException an internal error occurred loading the index
+     */
+    public @Nonnull Collection<Region> getRegions() throws CloudException, InternalException {
+        return getSnapshot().regionList;
+    }
+
+    /**
+     * Looks up a zone, reloading the index if the zone is not known yet.
+     * @param zone the zone name, partial path or self link
+     * @return the zone, null if it does not exist
+     * @throws CloudException the index could not be loaded
+     * @throws InternalException an internal error occurred loading the index
+     */
+    public @Nullable Zone findZone(@Nonnull String zone) throws CloudException, InternalException {
+        String name = toName(zone);
+        Snapshot current = getSnapshot();
+        Zone z = current.zones.get(name);
+
+        if( z == null && reloadOnMiss("zones/" + name, current) ) {
+            z = getSnapshot().zones.get(name);
+            if( z == null ) {
+                markUnknown("zones/" + name);
+            }
+        }
+        return z;
+    }
+
+    /**
+     * Looks up a region, reloading the index if the region is not known yet.
+     * @param region the region name, partial path or self link
+     * @return the region, null if it does not exist
+     * @throws CloudException the index could not be loaded
+     * @throws InternalException an internal error occurred loading the index
+     */
+    public @Nullable Region findRegion(@Nonnull String region) throws CloudException, InternalException {
+        String name = toName(region);
+        Snapshot current = getSnapshot();
+        Region r = current.regions.get(name);
+
+        if( r == null && reloadOnMiss("regions/" + name, current) ) {
+            r = getSnapshot().regions.get(name);
+            if( r == null ) {
+                markUnknown("regions/" + name);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Looks up the region of a zone, reloading the index if the zone is not known yet.
+     * @param zone the zone name, partial path or self link
+     * @return the name of the region containing the zone, null if the zone does not exist
+     * @throws CloudException the index could not be loaded
+     * @throws InternalException an internal error occurred loading the index
+     */
+    public @Nullable String findRegionForZone(@Nonnull String zone) throws CloudException, InternalException {
+        Zone z = findZone(zone);
+
+        return (z == null ? null : getSnapshot().zoneToRegion.get(z.getName()));
+    }
+
+    /**
+     * @return the time in milliseconds since the epoch the current index was loaded, 0 if it has not been loaded
+     */
+    public long getLoadedAt() {
+        Snapshot current = snapshot;
+
+        return (current == null ? 0L : current.loadedAt);
+    }
+
+    /**
+     * @return the number of times the index was loaded or refreshed
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * @return the number of loads or refreshes that failed
+     */
+    public long getLoadFailureCount() {
+        return loadFailures.get();
+    }
+
+    /**
+     * @return the number of reloads caused by lookups of unknown zones or regions
+     */
+    public long getMissReloadCount() {
+        return missReloads.get();
+    }
+
+    /**
+     * @return the number of lookups answered from the record of unknown IDs without reloading
+     */
+    public long getNegativeHitCount() {
+        return negativeHits.get();
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        Snapshot current = snapshot;
+
+        return project + "[zones=" + (current == null ? 0 : current.zones.size()) + ", regions=" + (current == null ? 0 : current.regions.size()) + ", loads=" + loads.get() + ", failures=" + loadFailures.get() + ", missReloads=" + missReloads.get() + ", negativeHits=" + negativeHits.get() + "]";
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.ApacheHttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.ProviderContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provider-wide HTTP transport shared by every Google API client (Compute, Storage and the OAuth token endpoint).
+ * A single keep-alive connection pool is created per distinct pool configuration and reused across all provider
+ * instances, so concurrent callers share connections instead of each client opening its own sockets.
+ * <p>The pool is tuned through the following {@link ProviderContext} custom properties:</p>
+ * <ul>
+ *     <li>{@link #MAX_CONNECTIONS} - maximum number of pooled connections (default 200)</li>
+ *     <li>{@link #MAX_CONNECTIONS_PER_ROUTE} - maximum connections to any single host (default 50)</li>
+ *     <li>{@link #KEEP_ALIVE_SECONDS} - how long an idle connection is kept open (default 60)</li>
+ * </ul>
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class GoogleTransport {
+    static private final Logger logger = Google.getLogger(GoogleTransport.class);
+
+    static public final String MAX_CONNECTIONS           = "google.http.maxConnections";
+    static public final String MAX_CONNECTIONS_PER_ROUTE = "google.http.maxConnectionsPerRoute";
+    static public final String KEEP_ALIVE_SECONDS        = "google.http.keepAliveSeconds";
+
+    static private final int DEFAULT_MAX_CONNECTIONS           = 200;
+    static private final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
+    static private final int DEFAULT_KEEP_ALIVE_SECONDS        = 60;
+
+    static private final JsonFactory jsonFactory = new JacksonFactory();
+
+    static private final ConcurrentHashMap<String,GoogleTransport> transports = new ConcurrentHashMap<String, GoogleTransport>();
+
+    static private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-google-connection-reaper");
+
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * Provides the transport matching the pool settings of the specified context, creating it on first use.
+     * @param ctx the context whose custom properties configure the pool, may be null for the defaults
+     * @return the shared transport for those settings
+     */
+    static public @Nonnull GoogleTransport getInstance(@Nullable ProviderContext ctx) {
+        Properties props = (ctx == null ? null : ctx.getCustomProperties());
+        int maxConnections = getIntProperty(props, MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS);
+        int maxPerRoute = Math.min(maxConnections, getIntProperty(props, MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+        int keepAlive = getIntProperty(props, KEEP_ALIVE_SECONDS, DEFAULT_KEEP_ALIVE_SECONDS);
+        String key = maxConnections + ":" + maxPerRoute + ":" + keepAlive;
+        GoogleTransport transport = transports.get(key);
+
+        if( transport == null ) {
+            synchronized( transports ) {
+                transport = transports.get(key);
+                if( transport == null ) {
+                    transport = new GoogleTransport(maxConnections, maxPerRoute, keepAlive);
+                    transports.put(key, transport);
+                }
+            }
+        }
+        return transport;
+    }
+
+    static private int getIntProperty(@Nullable Properties props, @Nonnull String name, int defaultValue) {
+        String value = (props == null ? null : props.getProperty(name));
+
+        if( value != null ) {
+            try {
+                int i = Integer.parseInt(value.trim());
+
+                if( i > 0 ) {
+                    return i;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // fall through to the default
+            }
+            logger.warn("Ignoring invalid value for " + name + ": " + value);
+        }
+        return defaultValue;
+    }
+
+    private final PoolingClientConnectionManager connectionManager;
+    private final HttpTransport                  httpTransport;
+
+    private GoogleTransport(int maxConnections, int maxPerRoute, final int keepAliveSeconds) {
+        SchemeRegistry registry = new SchemeRegistry();
+
+        registry.register(new Scheme("http", 80, PlainSocketFactory.getSocketFactory()));
+        registry.register(new Scheme("https", 443, SSLSocketFactory.getSocketFactory()));
+
+        connectionManager = new PoolingClientConnectionManager(registry);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+        HttpParams params = new BasicHttpParams();
+
+        // stale checking costs a read per request; idle connections are reaped in the background instead
+        HttpConnectionParams.setStaleCheckingEnabled(params, false);
+        HttpConnectionParams.setSocketBufferSize(params, 8192);
+
+        DefaultHttpClient client = new DefaultHttpClient(connectionManager, params);
+
+        // retries are the responsibility of the Google client, not the connection layer
+        client.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
+        client.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                return keepAliveSeconds * 1000L;
+            }
+        });
+        httpTransport = new ApacheHttpTransport(client);
+
+        reaper.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    connectionManager.closeExpiredConnections();
+                    connectionManager.closeIdleConnections(keepAliveSeconds, TimeUnit.SECONDS);
+                    if( logger.isDebugEnabled() ) {
+                        logger.debug("Connection pool " + GoogleTransport.this);
+                    }
+                }
+                catch( Throwable t ) {
+                    logger.warn("Failed to reap idle connections: " + t.getMessage());
+                }
+            }
+        }, keepAliveSeconds, keepAliveSeconds, TimeUnit.SECONDS);
+        logger.info("Created Google connection pool with " + maxConnections + " connections, " + maxPerRoute + " per route");
+    }
+
+    /**
+     * @return the pooled transport to hand to Google API client builders
+     */
+    public @Nonnull HttpTransport getHttpTransport() {
+        return httpTransport;
+    }
+
+    /**
+     * @return the thread-safe JSON factory shared by all Google API clients
+     */
+    public @Nonnull JsonFactory getJsonFactory() {
+        return jsonFactory;
+    }
+
+    /**
+     * Provides a snapshot of the pool usage: leased connections, idle (available) connections and
+     * requests waiting (pending) for a connection to free up.
+     * @return the current pool statistics
+     */
+    public @Nonnull PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    public int getLeasedConnections() {
+        return getPoolStats().getLeased();
+    }
+
+    public int getIdleConnections() {
+        return getPoolStats().getAvailable();
+    }
+
+    public int getWaitingRequests() {
+        return getPoolStats().getPending();
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        PoolStats stats = getPoolStats();
+
+        return "[leased=" + stats.getLeased() + ", idle=" + stats.getAvailable() + ", waiting=" + stats.getPending() + ", max=" + stats.getMax() + "]";
+    }
+}
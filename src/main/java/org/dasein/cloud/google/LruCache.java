@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of resources that drops the least recently used entry once full and ignores entries
+ * older than the time to live given on each lookup. Meant for resources that do not change once created, such as
+ * images, where entries can live for a long time.
+ * @param <V> the type of value cached
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class LruCache<V> {
+    static private class Entry<V> {
+        private final V    value;
+        private final long cachedAt;
+
+        private Entry(@Nonnull V value, long cachedAt) {
+            this.value = value;
+            this.cachedAt = cachedAt;
+        }
+    }
+
+    private final String                         name;
+    private final int                            maxEntries;
+    // guarded by this, in access order
+    private final LinkedHashMap<String,Entry<V>> entries;
+
+    private final AtomicLong hits        = new AtomicLong(0);
+    private final AtomicLong misses      = new AtomicLong(0);
+    private final AtomicLong evictions   = new AtomicLong(0);
+    private final AtomicLong expirations = new AtomicLong(0);
+
+    /**
+     * @param name the name of the cache, used in logging
+     * @param maxEntries the number of entries beyond which the least recently used one is dropped
+     */
+    public LruCache(@Nonnull String name, final int maxEntries) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,Entry<V>> eldest) {
+                if( size() > maxEntries ) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param key the key of the value
+     * @param ttl how long in milliseconds a cached value may be used
+     * @return the cached value, null if none was cached within the time to live
+     */
+    public synchronized @Nullable V get(@Nonnull String key, long ttl) {
+        Entry<V> entry = entries.get(key);
+
+        if( entry == null ) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if( System.currentTimeMillis() - entry.cachedAt >= ttl ) {
+            entries.remove(key);
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * @param key the key of the value
+     * @param value the value to cache
+     */
+    public synchronized void put(@Nonnull String key, @Nonnull V value) {
+        entries.put(key, new Entry<V>(value, System.currentTimeMillis()));
+    }
+
+    /**
+     * Drops the value cached for the key, e.g. after the resource was removed.
+     * @param key the key of the value
+     */
+    public synchronized void invalidate(@Nonnull String key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that found no value or an expired one
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of values dropped to make room for others
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of values dropped because they outlived the time to live
+     */
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    @Override
+    public synchronized @Nonnull String toString() {
+        return name + "[entries=" + entries.size() + "/" + maxEntries + ", hits=" + hits.get() + ", misses=" + misses.get() + ", evictions=" + evictions.get() + ", expirations=" + expirations.get() + "]";
+    }
+}
@@ -0,0 +1,679 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.services.compute.Compute;
+import com.google.api.services.compute.model.Operation;
+import com.google.api.services.compute.model.OperationList;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tracks every pending global, region and zone operation of a project and polls them from a small shared thread
+ * pool instead of parking one caller thread per operation. Pending operations in the same zone (or region, or the
+ * global scope) are checked together with a single {@code list} call filtered on their names.
+ * <p>Callers receive a {@link PendingOperation} they can block on, or register a {@link Callback} that is invoked
+ * on a poller thread when the operation finishes.</p>
+ * <p>Each operation is polled on its own schedule. The first check is placed near the completion time observed for
+ * earlier operations of the same kind (scope, resource collection and operation type, e.g. a zone instance insert);
+ * unknown kinds start at a fast interval. Subsequent checks back off exponentially with jitter up to a ceiling.</p>
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class OperationWatcher {
+    static private final Logger logger = Google.getLogger(OperationWatcher.class);
+
+    static private final int  POLL_THREADS       = 4;
+    static private final int  MAX_NAMES_PER_CALL = 50;
+    static private final long MIN_INTERVAL       = 100L;
+    static private final long MAX_INTERVAL       = CalendarWrapper.SECOND * 15L;
+    static private final long MAX_FIRST_POLL     = CalendarWrapper.MINUTE;
+    static private final long UNKNOWN_INTERVAL   = 250L;
+
+    /**
+     * How long callers wait for an operation unless they supply their own timeout.
+     */
+    static public final long DEFAULT_TIMEOUT = CalendarWrapper.MINUTE * 20L;
+
+    static private final Random random = new Random();
+
+    static private final ConcurrentHashMap<String,LatencyProfile> profiles = new ConcurrentHashMap<String, LatencyProfile>();
+
+    static private final ConcurrentHashMap<String,OperationWatcher> watchers = new ConcurrentHashMap<String, OperationWatcher>();
+
+    static private final ScheduledExecutorService poller = Executors.newScheduledThreadPool(POLL_THREADS, new ThreadFactory() {
+        private int count = 0;
+
+        public synchronized Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-google-operation-watcher-" + (++count));
+
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * Notified once a watched operation has finished.
+     */
+    public interface Callback {
+        /**
+         * The operation completed successfully.
+         * @param operation the final state of the operation
+         */
+        void onComplete(@Nonnull Operation operation);
+
+        /**
+         * The operation failed, timed out or could not be tracked.
+         * @param error the reason for the failure
+         */
+        void onFailure(@Nonnull CloudException error);
+    }
+
+    /**
+     * Provides the mean completion time observed for operations of the specified kind.
+     * @param kind the operation kind as reported by {@link PendingOperation#getKind()}
+     * @return the smoothed completion time in milliseconds, or -1 if no operation of that kind has completed yet
+     */
+    static public long getExpectedCompletionMillis(@Nonnull String kind) {
+        LatencyProfile profile = profiles.get(kind);
+
+        return (profile == null ? -1L : profile.getExpectedMillis());
+    }
+
+    static private @Nonnull LatencyProfile getProfile(@Nonnull String kind) {
+        LatencyProfile profile = profiles.get(kind);
+
+        if( profile == null ) {
+            profiles.putIfAbsent(kind, new LatencyProfile());
+            profile = profiles.get(kind);
+        }
+        return profile;
+    }
+
+    /**
+     * Exponentially weighted completion time of one kind of operation.
+     */
+    static private class LatencyProfile {
+        private long   samples  = 0;
+        private double expected = 0.0;
+
+        synchronized void record(long elapsed) {
+            expected = (samples == 0 ? elapsed : (expected * 0.8) + (elapsed * 0.2));
+            samples++;
+        }
+
+        synchronized long getExpectedMillis() {
+            return (samples == 0 ? -1L : (long)expected);
+        }
+    }
+
+    static private long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Spreads a delay over the upper half of its range so operations started together do not poll in lockstep.
+     */
+    static private long jitter(long delay) {
+        long half = delay / 2;
+
+        return half + (long)(random.nextDouble() * (delay - half));
+    }
+
+    /**
+     * Provides the watcher for the project of the provider's current context. The watcher polls with the Compute client
+     * of the provider that first asked for it, which is shared by every context of the project.
+     * @param provider the provider whose Compute client is used for polling if the watcher does not exist yet
+     * @return the shared watcher for the project
+     * @throws CloudException no context is set or the Compute client could not be created
+     * @throws InternalException an error occurred building the Compute client
+     */
+    static public @Nonnull OperationWatcher getInstance(@Nonnull Google provider) throws CloudException, InternalException {
+        ProviderContext ctx = provider.getContext();
+
+        if( ctx == null ) {
+            throw new NoContextException();
+        }
+        String project = ctx.getAccountNumber();
+        OperationWatcher watcher = watchers.get(project);
+
+        if( watcher == null ) {
+            watchers.putIfAbsent(project, new OperationWatcher(project, provider.getGoogleCompute()));
+            watcher = watchers.get(project);
+        }
+        return watcher;
+    }
+
+    private final String  project;
+    private final Compute compute;
+
+    // pending operations keyed by operation type and zone/region, guarded by this
+    private final Map<String,List<PendingOperation>> pending = new HashMap<String, List<PendingOperation>>();
+    private boolean            running = false;
+    private ScheduledFuture<?> next;
+    private long               nextAt;
+
+    private OperationWatcher(@Nonnull String project, @Nonnull Compute compute) {
+        this.project = project;
+        this.compute = compute;
+    }
+
+    /**
+     * Starts tracking the specified operation with the default timeout.
+     * @param job the operation as returned by the request that started it
+     * @param operationType the scope of the operation
+     * @param regionId the region of a region operation
+     * @param dataCenterId the zone of a zone operation
+     * @return a handle on the pending operation
+     */
+    public @Nonnull PendingOperation watch(@Nonnull Operation job, @Nonnull GoogleOperationType operationType, @Nullable String regionId, @Nullable String dataCenterId) {
+        return watch(job, operationType, regionId, dataCenterId, null);
+    }
+
+    /**
+     * Starts tracking the specified operation with the default timeout, notifying the callback when it finishes.
+     * @param job the operation as returned by the request that started it
+     * @param operationType the scope of the operation
+     * @param regionId the region of a region operation
+     * @param dataCenterId the zone of a zone operation
+     * @param callback an optional callback invoked once the operation finishes
+     * @return a handle on the pending operation
+     */
+    public @Nonnull PendingOperation watch(@Nonnull Operation job, @Nonnull GoogleOperationType operationType, @Nullable String regionId, @Nullable String dataCenterId, @Nullable Callback callback) {
+        return watch(job, operationType, regionId, dataCenterId, DEFAULT_TIMEOUT, callback);
+    }
+
+    /**
+     * Starts tracking the specified operation, notifying the callback when it finishes.
+     * @param job the operation as returned by the request that started it
+     * @param operationType the scope of the operation
+     * @param regionId the region of a region operation
+     * @param dataCenterId the zone of a zone operation
+     * @param timeout how long in milliseconds to wait for the operation before failing it
+     * @param callback an optional callback invoked once the operation finishes
+     * @return a handle on the pending operation
+     */
+    public @Nonnull PendingOperation watch(@Nonnull Operation job, @Nonnull GoogleOperationType operationType, @Nullable String regionId, @Nullable String dataCenterId, long timeout, @Nullable Callback callback) {
+        String scope;
+
+        switch( operationType ) {
+            case REGION_OPERATION: scope = regionId; break;
+            case ZONE_OPERATION: scope = dataCenterId; break;
+            default: scope = ""; break;
+        }
+        if( scope == null ) {
+            scope = "";
+        }
+        long now = System.currentTimeMillis();
+        PendingOperation op = new PendingOperation(this, job.getName(), operationType, scope, getKind(job, operationType), now, now + Math.max(0L, timeout));
+
+        if( callback != null ) {
+            op.addCallback(callback);
+        }
+        if( isFinished(job) ) {
+            op.finish(job);
+            return op;
+        }
+        synchronized( this ) {
+            List<PendingOperation> group = pending.get(op.getGroupKey());
+
+            if( group == null ) {
+                group = new ArrayList<PendingOperation>();
+                pending.put(op.getGroupKey(), group);
+            }
+            group.add(op);
+            scheduleNext();
+        }
+        return op;
+    }
+
+    /**
+     * @return the number of operations currently being tracked for this project
+     */
+    public synchronized int getPendingCount() {
+        int count = 0;
+
+        for( List<PendingOperation> group : pending.values() ) {
+            count += group.size();
+        }
+        return count;
+    }
+
+    /**
+     * Classifies an operation for latency learning by scope, target collection and operation type.
+     */
+    static private @Nonnull String getKind(@Nonnull Operation job, @Nonnull GoogleOperationType operationType) {
+        String collection = "";
+        String target = job.getTargetLink();
+
+        if( target != null ) {
+            String[] parts = target.split("/");
+
+            if( parts.length > 1 ) {
+                collection = parts[parts.length - 2];
+            }
+        }
+        return operationType.name() + "/" + collection + "/" + job.getOperationType();
+    }
+
+    /**
+     * Schedules the next poll for the earliest due operation. Must be called while holding the lock.
+     */
+    private void scheduleNext() {
+        if( running || pending.isEmpty() ) {
+            return;
+        }
+        long earliest = Long.MAX_VALUE;
+
+        for( List<PendingOperation> group : pending.values() ) {
+            for( PendingOperation op : group ) {
+                earliest = Math.min(earliest, Math.min(op.nextPoll, op.getDeadline()));
+            }
+        }
+        if( next != null ) {
+            if( nextAt <= earliest ) {
+                return;
+            }
+            next.cancel(false);
+        }
+        nextAt = earliest;
+        next = poller.schedule(new Runnable() {
+            public void run() {
+                poll();
+            }
+        }, Math.max(0L, earliest - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void remove(@Nonnull PendingOperation op) {
+        List<PendingOperation> group = pending.get(op.getGroupKey());
+
+        if( group != null ) {
+            group.remove(op);
+            if( group.isEmpty() ) {
+                pending.remove(op.getGroupKey());
+            }
+        }
+    }
+
+    private void poll() {
+        List<List<PendingOperation>> groups = new ArrayList<List<PendingOperation>>();
+        long now = System.currentTimeMillis();
+
+        synchronized( this ) {
+            if( running ) {
+                return;
+            }
+            running = true;
+            next = null;
+            for( List<PendingOperation> group : pending.values() ) {
+                List<PendingOperation> due = new ArrayList<PendingOperation>();
+
+                for( PendingOperation op : group ) {
+                    if( op.nextPoll <= now || op.getDeadline() <= now ) {
+                        due.add(op);
+                    }
+                }
+                if( !due.isEmpty() ) {
+                    groups.add(due);
+                }
+            }
+        }
+        try {
+            for( List<PendingOperation> group : groups ) {
+                Iterator<PendingOperation> it = group.iterator();
+
+                while( it.hasNext() ) {
+                    PendingOperation op = it.next();
+
+                    if( op.getDeadline() <= now ) {
+                        it.remove();
+                        op.fail(new CloudException(CloudErrorType.COMMUNICATION, 408, "", "System timed out waiting for Operation to complete"));
+                    }
+                }
+                for( int i=0; i<group.size(); i += MAX_NAMES_PER_CALL ) {
+                    check(group.subList(i, Math.min(group.size(), i + MAX_NAMES_PER_CALL)));
+                }
+                for( PendingOperation op : group ) {
+                    if( !op.isDone() ) {
+                        op.backoff();
+                    }
+                }
+            }
+        }
+        catch( Throwable t ) {
+            logger.error("Unexpected error polling operations for " + project + ": " + t.getMessage(), t);
+        }
+        finally {
+            synchronized( this ) {
+                running = false;
+                scheduleNext();
+            }
+        }
+    }
+
+    /**
+     * Checks a batch of operations sharing the same scope with a single list call. If the circuit of the scope is
+     * open, the operations fail with a {@link CircuitOpenException}; they may still complete in the cloud.
+     * @param batch the operations to check
+     */
+    private void check(@Nonnull List<PendingOperation> batch) {
+        if( batch.isEmpty() ) {
+            return;
+        }
+        PendingOperation first = batch.get(0);
+        StringBuilder names = new StringBuilder();
+
+        for( PendingOperation op : batch ) {
+            if( names.length() > 0 ) {
+                names.append("|");
+            }
+            names.append(op.getName());
+        }
+        String filter = "name eq " + (batch.size() > 1 ? "(" + names + ")" : names.toString());
+        OperationList list;
+
+        try {
+            switch( first.getOperationType() ) {
+                case GLOBAL_OPERATION:
+                    list = compute.globalOperations().list(project).setFilter(filter).execute();
+                    break;
+                case REGION_OPERATION:
+                    list = compute.regionOperations().list(project, first.getScope()).setFilter(filter).execute();
+                    break;
+                default:
+                    list = compute.zoneOperations().list(project, first.getScope()).setFilter(filter).execute();
+                    break;
+            }
+        }
+        catch( GoogleCircuitBreaker.OpenException e ) {
+            // the scope is failing fast, so stop waiting rather than poll it until the deadline
+            CircuitOpenException error = e.toCloudException();
+
+            logger.warn("Failing " + batch.size() + " operations in " + first.getGroupKey() + ": " + e.getMessage());
+            for( PendingOperation op : batch ) {
+                op.fail(error);
+            }
+            return;
+        }
+        catch( IOException e ) {
+            logger.error("Unable to check " + batch.size() + " operations in " + first.getGroupKey() + ": " + e.getMessage());
+            return;
+        }
+        if( list == null || list.getItems() == null ) {
+            return;
+        }
+        Map<String,Operation> byName = new HashMap<String, Operation>();
+
+        for( Operation job : list.getItems() ) {
+            byName.put(job.getName(), job);
+        }
+        for( PendingOperation op : batch ) {
+            Operation job = byName.get(op.getName());
+
+            if( job != null && isFinished(job) ) {
+                if( job.getError() == null ) {
+                    getProfile(op.getKind()).record(System.currentTimeMillis() - op.getStarted());
+                }
+                op.finish(job);
+            }
+        }
+    }
+
+    static private boolean isFinished(@Nonnull Operation job) {
+        return (job.getError() != null || "DONE".equals(job.getStatus()));
+    }
+
+    /**
+     * A handle on an operation tracked by the watcher.
+     */
+    static public class PendingOperation implements Future<Operation> {
+        private final OperationWatcher    watcher;
+        private final String              name;
+        private final GoogleOperationType operationType;
+        private final String              scope;
+        private final String              kind;
+        private final long                started;
+        private final long                deadline;
+        private final CountDownLatch      latch = new CountDownLatch(1);
+        private final List<Callback>      callbacks = new ArrayList<Callback>();
+
+        private volatile Operation      result;
+        private volatile CloudException error;
+        private volatile boolean        cancelled;
+
+        // polling schedule, guarded by the watcher
+        private long nextPoll;
+        private long interval;
+
+        private PendingOperation(@Nonnull OperationWatcher watcher, @Nonnull String name, @Nonnull GoogleOperationType operationType, @Nonnull String scope, @Nonnull String kind, long started, long deadline) {
+            this.watcher = watcher;
+            this.name = name;
+            this.operationType = operationType;
+            this.scope = scope;
+            this.kind = kind;
+            this.started = started;
+            this.deadline = deadline;
+
+            long expected = getExpectedCompletionMillis(kind);
+
+            if( expected < 0 ) {
+                interval = UNKNOWN_INTERVAL;
+                nextPoll = started + jitter(UNKNOWN_INTERVAL);
+            }
+            else {
+                // first look shortly before the operation usually completes, then close in quickly
+                interval = clamp(expected / 8, MIN_INTERVAL, MAX_INTERVAL);
+                nextPoll = started + clamp((expected * 3) / 4, MIN_INTERVAL, MAX_FIRST_POLL);
+            }
+        }
+
+        private void backoff() {
+            synchronized( watcher ) {
+                nextPoll = Math.min(deadline, System.currentTimeMillis() + jitter(interval));
+                interval = Math.min(MAX_INTERVAL, interval * 2);
+            }
+        }
+
+        public @Nonnull String getName() {
+            return name;
+        }
+
+        public @Nonnull GoogleOperationType getOperationType() {
+            return operationType;
+        }
+
+        public @Nonnull String getScope() {
+            return scope;
+        }
+
+        /**
+         * @return the operation kind used to learn completion times, e.g. {@code ZONE_OPERATION/instances/insert}
+         */
+        public @Nonnull String getKind() {
+            return kind;
+        }
+
+        public long getStarted() {
+            return started;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        private @Nonnull String getGroupKey() {
+            return operationType.name() + "/" + scope;
+        }
+
+        /**
+         * Registers a callback, invoking it immediately if the operation has already finished.
+         * @param callback the callback to notify
+         */
+        public void addCallback(@Nonnull Callback callback) {
+            synchronized( callbacks ) {
+                if( latch.getCount() > 0 ) {
+                    callbacks.add(callback);
+                    return;
+                }
+            }
+            notify(callback);
+        }
+
+        private void finish(@Nonnull Operation job) {
+            if( job.getError() != null ) {
+                if( job.getError().getErrors() != null && !job.getError().getErrors().isEmpty() ) {
+                    fail(new CloudException("An error occurred: " + job.getError().getErrors().get(0).getMessage()));
+                }
+                else {
+                    fail(new CloudException("Operation " + name + " failed without reporting an error"));
+                }
+                return;
+            }
+            result = job;
+            done();
+        }
+
+        private void fail(@Nonnull CloudException e) {
+            error = e;
+            done();
+        }
+
+        private void done() {
+            List<Callback> toNotify;
+
+            synchronized( callbacks ) {
+                if( latch.getCount() == 0 ) {
+                    return;
+                }
+                latch.countDown();
+                toNotify = new ArrayList<Callback>(callbacks);
+                callbacks.clear();
+            }
+            watcher.remove(this);
+            for( Callback callback : toNotify ) {
+                notify(callback);
+            }
+        }
+
+        private void notify(@Nonnull Callback callback) {
+            try {
+                if( error != null ) {
+                    callback.onFailure(error);
+                }
+                else if( result != null ) {
+                    callback.onComplete(result);
+                }
+            }
+            catch( Throwable t ) {
+                logger.error("Operation callback for " + name + " failed: " + t.getMessage(), t);
+            }
+        }
+
+        /**
+         * Stops tracking the operation. The operation itself continues to run in the cloud.
+         * @param mayInterruptIfRunning ignored
+         * @return true if the operation was still being tracked
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if( latch.getCount() == 0 ) {
+                return false;
+            }
+            cancelled = true;
+            fail(new CloudException("Stopped waiting for operation " + name));
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return (latch.getCount() == 0);
+        }
+
+        @Override
+        public Operation get() throws InterruptedException, ExecutionException {
+            latch.await();
+            return getResult();
+        }
+
+        @Override
+        public Operation get(long timeout, @Nonnull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if( !latch.await(timeout, unit) ) {
+                throw new TimeoutException("Operation " + name + " has not completed");
+            }
+            return getResult();
+        }
+
+        private @Nonnull Operation getResult() throws ExecutionException {
+            if( error != null ) {
+                throw new ExecutionException(error);
+            }
+            return result;
+        }
+
+        /**
+         * Blocks until the operation finishes.
+         * @return the final state of the successful operation
+         * @throws CloudException the operation failed or timed out
+         * @throws InternalException the calling thread was interrupted while waiting
+         */
+        public @Nonnull Operation await() throws CloudException, InternalException {
+            try {
+                latch.await();
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InternalException("Interrupted while waiting for operation " + name);
+            }
+            if( error != null ) {
+                throw error;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.util.APITrace;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Lazily streams the pages of a Google list call. The first page is fetched when the iterable is {@link #load() loaded}
+ * so that errors such as bad credentials surface from the list method itself; every further page is only requested
+ * once the consumer has iterated past the previous one. When prefetching is enabled the next page is requested on a
+ * background thread as soon as the current page is handed out.
+ * <p>Items are converted on the consuming thread. Failures fetching or converting later pages are raised from the
+ * iterator as {@link PagingException} wrapping the underlying {@link CloudException} or {@link InternalException}.</p>
+ * <p>Prefetching is enabled with the {@link #PREFETCH} {@link ProviderContext} custom property.</p>
+ * @param <P> the page type returned by the list call
+ * @param <T> the Dasein type produced from each page
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public abstract class PagedIterable<P,T> implements Iterable<T> {
+    static private final Logger logger = Google.getLogger(PagedIterable.class);
+
+    static public final String PREFETCH = "google.paging.prefetch";
+
+    /**
+     * The largest page size the Compute API accepts.
+     */
+    static public final long PAGE_SIZE = 500L;
+
+    static private final ExecutorService prefetcher = Executors.newCachedThreadPool(new ThreadFactory() {
+        private int count = 0;
+
+        public synchronized Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-google-page-prefetch-" + (++count));
+
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * Raised from the iterator when a page after the first one could not be fetched or converted.
+     */
+    static public class PagingException extends RuntimeException {
+        public PagingException(@Nonnull Exception cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        /**
+         * Throws the checked exception wrapped by this one.
+         * @throws CloudException the page failed with a cloud error
+         * @throws InternalException the page failed within Dasein Cloud
+         */
+        public void rethrow() throws CloudException, InternalException {
+            Throwable cause = getCause();
+
+            if( cause instanceof CloudException ) {
+                throw (CloudException)cause;
+            }
+            if( cause instanceof InternalException ) {
+                throw (InternalException)cause;
+            }
+            throw new InternalException(cause);
+        }
+    }
+
+    /**
+     * Copies every item of a listing, fetching all of its pages now. Meant for methods that promise to report errors
+     * as checked exceptions rather than as a {@link PagingException} from the iterator.
+     * @param items the listing to copy
+     * @param <T> the type of item listed
+     * @return the items of every page
+     * @throws CloudException a page failed with a cloud error
+     * @throws InternalException a page failed within Dasein Cloud
+     */
+    static public @Nonnull <T> List<T> toList(@Nonnull Iterable<T> items) throws CloudException, InternalException {
+        List<T> list = new ArrayList<T>();
+
+        try {
+            for( T item : items ) {
+                list.add(item);
+            }
+        }
+        catch( PagingException e ) {
+            e.rethrow();
+        }
+        return list;
+    }
+
+    /**
+     * Converts an exception from the Google client the same way the support classes do.
+     * @param ex the exception raised by the Google client
+     * @param message the message to use for non-API errors
+     * @return the exception to throw
+     */
+    static public @Nonnull CloudException toCloudException(@Nonnull IOException ex, @Nonnull String message) {
+        logger.error(ex.getMessage());
+        if (ex instanceof GoogleCircuitBreaker.OpenException) {
+            return ((GoogleCircuitBreaker.OpenException)ex).toCloudException();
+        }
+        if (ex.getClass() == GoogleJsonResponseException.class) {
+            GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
+            return new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
+        }
+        return new CloudException(message + ": " + ex.getMessage());
+    }
+
+    private final Google  provider;
+    private final String  operation;
+    private final boolean prefetch;
+    private P             firstPage;
+
+    /**
+     * @param provider the provider issuing the list calls
+     * @param operation the API trace name recorded for each page fetch
+     */
+    public PagedIterable(@Nonnull Google provider, @Nonnull String operation) {
+        this.provider = provider;
+        this.operation = operation;
+
+        ProviderContext ctx = provider.getContext();
+        Properties props = (ctx == null ? null : ctx.getCustomProperties());
+
+        this.prefetch = (props != null && Boolean.parseBoolean(props.getProperty(PREFETCH, "false")));
+    }
+
+    /**
+     * Fetches one page of the list.
+     * @param pageToken the token of the page to fetch, null for the first page
+     * @return the page, or null if there is nothing to list
+     * @throws IOException the Google client failed
+     * @throws CloudException an error occurred in the cloud provider
+     * @throws InternalException an error occurred within Dasein Cloud
+     */
+    protected abstract @Nullable P fetch(@Nullable String pageToken) throws IOException, CloudException, InternalException;
+
+    /**
+     * @param page a page returned by {@link #fetch(String)}
+     * @return the token of the following page, or null if this is the last page
+     */
+    protected abstract @Nullable String getNextPageToken(@Nonnull P page);
+
+    /**
+     * @param page a page returned by {@link #fetch(String)}
+     * @return true if no page follows the specified one
+     */
+    protected boolean isLastPage(@Nonnull P page) {
+        String token = getNextPageToken(page);
+
+        return (token == null || token.length() < 1);
+    }
+
+    /**
+     * Converts and filters the items of a page.
+     * @param page a page returned by {@link #fetch(String)}
+     * @return the Dasein objects for the page
+     * @throws CloudException an error occurred in the cloud provider
+     * @throws InternalException an error occurred within Dasein Cloud
+     */
+    protected abstract @Nonnull Iterable<T> getItems(@Nonnull P page) throws CloudException, InternalException;
+
+    /**
+     * @return the message used when a non-API error occurs fetching a page
+     */
+    protected @Nonnull String getErrorMessage() {
+        return "An error occurred during " + operation;
+    }
+
+    /**
+     * Eagerly fetches the first page so that errors are reported to the caller of the list method.
+     * @return this iterable
+     * @throws CloudException an error occurred in the cloud provider
+     * @throws InternalException an error occurred within Dasein Cloud
+     */
+    public @Nonnull PagedIterable<P,T> load() throws CloudException, InternalException {
+        firstPage = fetchPage(null);
+        return this;
+    }
+
+    private @Nullable P fetchPage(@Nullable String pageToken) throws CloudException, InternalException {
+        APITrace.begin(provider, operation);
+        try {
+            return fetch(pageToken);
+        }
+        catch( IOException ex ) {
+            throw toCloudException(ex, getErrorMessage());
+        }
+        finally {
+            APITrace.end();
+        }
+    }
+
+    @Override
+    public @Nonnull Iterator<T> iterator() {
+        return new PageIterator();
+    }
+
+    private class PageIterator implements Iterator<T> {
+        private Iterator<T> current;
+        private String      nextToken;
+        private Future<P>   pending;
+
+        private PageIterator() {
+            P page = firstPage;
+
+            if( page == null ) {
+                try {
+                    page = fetchPage(null);
+                }
+                catch( CloudException e ) {
+                    throw new PagingException(e);
+                }
+                catch( InternalException e ) {
+                    throw new PagingException(e);
+                }
+            }
+            open(page);
+        }
+
+        private void open(@Nullable P page) {
+            pending = null;
+            nextToken = null;
+            if( page == null ) {
+                current = null;
+                return;
+            }
+            try {
+                current = getItems(page).iterator();
+            }
+            catch( CloudException e ) {
+                throw new PagingException(e);
+            }
+            catch( InternalException e ) {
+                throw new PagingException(e);
+            }
+            nextToken = getNextPageToken(page);
+            if( nextToken != null && nextToken.length() < 1 ) {
+                nextToken = null;
+            }
+            if( prefetch && nextToken != null ) {
+                final String token = nextToken;
+
+                pending = prefetcher.submit(GoogleRateLimiter.withThreadPriority(new Callable<P>() {
+                    public P call() throws Exception {
+                        return fetchPage(token);
+                    }
+                }));
+            }
+        }
+
+        private @Nullable P nextPage() {
+            try {
+                if( pending != null ) {
+                    return pending.get();
+                }
+                return fetchPage(nextToken);
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new PagingException(new InternalException("Interrupted while fetching the next page of " + operation));
+            }
+            catch( ExecutionException e ) {
+                Throwable t = e.getCause();
+
+                if( t instanceof CloudException ) {
+                    throw new PagingException((CloudException)t);
+                }
+                if( t instanceof InternalException ) {
+                    throw new PagingException((InternalException)t);
+                }
+                throw new PagingException(new InternalException(t));
+            }
+            catch( CloudException e ) {
+                throw new PagingException(e);
+            }
+            catch( InternalException e ) {
+                throw new PagingException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while( current == null || !current.hasNext() ) {
+                if( nextToken == null ) {
+                    return false;
+                }
+                open(nextPage());
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if( !hasNext() ) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.ProviderContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets concurrent identical lookups share a single in-flight API call. The first caller for a key performs the
+ * lookup; callers arriving while it runs wait for and receive the same result or exception. Since that result is
+ * the very same object for every coalesced caller, lookups should return the raw API model and leave it to each
+ * caller to convert it into a Dasein object of its own. Completed results are never served to later lookups.
+ * @param <T> the type of object looked up
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class RequestCoalescer<T> {
+    static private final Logger logger = Google.getLogger(RequestCoalescer.class);
+
+    /**
+     * Performs the actual lookup on behalf of all coalesced callers.
+     * @param <T> the type of object looked up
+     */
+    public interface Loader<T> {
+        @Nullable T load() throws CloudException, InternalException;
+    }
+
+    private class Call {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile T          result;
+        private volatile Exception  error;
+
+        private @Nullable T get() throws CloudException, InternalException {
+            try {
+                latch.await();
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InternalException("Interrupted while waiting for " + name);
+            }
+            if( error instanceof CloudException ) {
+                throw (CloudException)error;
+            }
+            if( error instanceof InternalException ) {
+                throw (InternalException)error;
+            }
+            if( error instanceof RuntimeException ) {
+                throw (RuntimeException)error;
+            }
+            if( error != null ) {
+                throw new InternalException(error);
+            }
+            return result;
+        }
+    }
+
+    private final String                       name;
+    private final ConcurrentHashMap<String,Call> calls = new ConcurrentHashMap<String, Call>();
+
+    private final AtomicLong requests  = new AtomicLong(0);
+    private final AtomicLong loads     = new AtomicLong(0);
+    private final AtomicLong coalesced = new AtomicLong(0);
+
+    /**
+     * @param name the name of the lookup, used in logging
+     */
+    public RequestCoalescer(@Nonnull String name) {
+        this.name = name;
+    }
+
+    /**
+     * Looks up the object for the specified ID, sharing the call with any concurrent lookup of the same ID in the
+     * same project.
+     * @param provider the provider performing the lookup
+     * @param id the ID being looked up, including any further scope such as a region
+     * @param loader performs the lookup if no call is in flight
+     * @return the object, or null if it does not exist
+     * @throws CloudException the lookup failed
+     * @throws InternalException the lookup failed or the caller was interrupted while waiting
+     */
+    public @Nullable T get(@Nonnull Google provider, @Nonnull String id, @Nonnull Loader<T> loader) throws CloudException, InternalException {
+        ProviderContext ctx = provider.getContext();
+        String key = (ctx == null ? "" : ctx.getAccountNumber()) + ":" + id;
+
+        requests.incrementAndGet();
+        while( true ) {
+            Call call = calls.get(key);
+
+            if( call != null ) {
+                if( call.latch.getCount() > 0 ) {
+                    coalesced.incrementAndGet();
+                    return call.get();
+                }
+                calls.remove(key, call);
+                continue;
+            }
+            Call mine = new Call();
+
+            if( calls.putIfAbsent(key, mine) != null ) {
+                continue;
+            }
+            loads.incrementAndGet();
+            try {
+                mine.result = loader.load();
+            }
+            catch( CloudException e ) {
+                mine.error = e;
+            }
+            catch( InternalException e ) {
+                mine.error = e;
+            }
+            catch( RuntimeException e ) {
+                mine.error = e;
+            }
+            finally {
+                calls.remove(key, mine);
+                mine.latch.countDown();
+            }
+            return mine.get();
+        }
+    }
+
+    /**
+     * Keeps later lookups of the specified ID from joining a call already in flight, e.g. after the object was
+     * changed or removed while it was being looked up. Callers already waiting still receive its result.
+     * @param provider the provider whose project the ID belongs to
+     * @param id the ID as passed to {@link #get(Google, String, Loader)}
+     */
+    public void invalidate(@Nonnull Google provider, @Nonnull String id) {
+        ProviderContext ctx = provider.getContext();
+
+        calls.remove((ctx == null ? "" : ctx.getAccountNumber()) + ":" + id);
+    }
+
+    /**
+     * @return the number of lookups requested
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of lookups that actually called the API
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * @return the number of lookups that joined a call already in flight
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return name + "[requests=" + requests.get() + ", loads=" + loads.get() + ", coalesced=" + coalesced.get() + "]";
+    }
+}
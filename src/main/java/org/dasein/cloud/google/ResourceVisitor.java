@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives the resources of a streamed listing one at a time, as each page of the listing is converted.
+ * @param <T> the type of resource visited
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public interface ResourceVisitor<T> {
+    /**
+     * @param resource the next resource of the listing
+     * @return true to continue the listing, false to stop it without fetching any further page
+     * @throws CloudException the visitor failed with a cloud error, which ends the listing
+     * @throws InternalException the visitor failed, which ends the listing
+     */
+    boolean visit(@Nonnull T resource) throws CloudException, InternalException;
+}
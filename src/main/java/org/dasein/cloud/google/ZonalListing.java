@@ -0,0 +1,479 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.util.APITrace;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lists a zonal resource either with a single project-wide {@code aggregatedList} call, filtered down to the
+ * context region afterwards, or with one {@code list} call per zone of the region sent in parallel. Aggregated
+ * listing costs few calls but transfers every zone of the project; zonal listing transfers only the region but costs
+ * a call per zone. In automatic mode the strategy is chosen per project and resource from the zone counts of the
+ * {@link GoogleTopology} and the item counts observed by earlier listings, with an aggregated listing every
+ * {@link #RESAMPLE_INTERVAL} zonal ones to keep the observed share of the region current.
+ * <p>Listing is tuned through these {@link ProviderContext} custom properties:</p>
+ * <ul>
+ *     <li>{@link #STRATEGY} - {@code auto}, {@code aggregated} or {@code zonal} (default auto)</li>
+ *     <li>{@link #PARALLELISM} - the number of zones listed at the same time by one listing (default 4)</li>
+ * </ul>
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class ZonalListing {
+    static private final Logger logger = Google.getLogger(ZonalListing.class);
+
+    static public final String STRATEGY    = "google.listing.strategy";
+    static public final String PARALLELISM = "google.listing.parallelism";
+
+    static private final int DEFAULT_PARALLELISM = 4;
+    static private final int MAX_THREADS         = 16;
+
+    /**
+     * The number of zonal listings after which an aggregated listing is used to observe the project again.
+     */
+    static public final int RESAMPLE_INTERVAL = 50;
+
+    /**
+     * The cost of one API call, expressed as a number of transferred items, when comparing the strategies.
+     */
+    static private final int CALL_COST = 50;
+
+    /**
+     * The ways of listing a zonal resource.
+     */
+    public enum Strategy {
+        AGGREGATED, ZONAL
+    }
+
+    static private final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        public Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-google-zonal-list-" + count.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    static private final ConcurrentHashMap<String,ResourceStats> resources = new ConcurrentHashMap<String, ResourceStats>();
+
+    /**
+     * Fetches the pages of a zonal {@code list} call.
+     * @param <P> the page type returned by the list call
+     * @param <I> the type of item listed
+     */
+    public interface ZoneFetcher<P,I> {
+        /**
+         * @param zone the zone to list
+         * @param pageToken the token of the page to fetch, null for the first page
+         * @return the page, or null if there is nothing to list
+         * @throws IOException the Google client failed
+         */
+        @Nullable P fetch(@Nonnull String zone, @Nullable String pageToken) throws IOException;
+
+        /**
+         * @param page a page returned by {@link #fetch(String, String)}
+         * @return the token of the following page, or null if this is the last page
+         */
+        @Nullable String getNextPageToken(@Nonnull P page);
+
+        /**
+         * @param page a page returned by {@link #fetch(String, String)}
+         * @return the items of the page
+         */
+        @Nullable Collection<I> getItems(@Nonnull P page);
+    }
+
+    /**
+     * @param provider the provider whose project and region are listed
+     * @param resource the kind of resource listed, e.g. {@code instances}
+     * @return the listing statistics of the resource in the provider's project and region
+     */
+    static public @Nonnull ResourceStats getStats(@Nonnull Google provider, @Nonnull String resource) {
+        ProviderContext ctx = provider.getContext();
+        String key = (ctx == null ? "/" : ctx.getAccountNumber() + "/" + ctx.getRegionId()) + "/" + resource;
+        ResourceStats stats = resources.get(key);
+
+        if( stats == null ) {
+            resources.putIfAbsent(key, new ResourceStats(key));
+            stats = resources.get(key);
+        }
+        return stats;
+    }
+
+    /**
+     * @return the listing statistics of every resource listed so far, keyed by project, region and resource
+     */
+    static public @Nonnull Map<String,ResourceStats> getAllStats() {
+        return Collections.unmodifiableMap(new HashMap<String, ResourceStats>(resources));
+    }
+
+    /**
+     * Decides how to list a resource in the context region.
+     * @param provider the provider whose project and region are listed
+     * @param resource the kind of resource listed, e.g. {@code instances}
+     * @return the strategy to use
+     * @throws CloudException the zones of the project could not be loaded
+     * @throws InternalException an internal error occurred loading the zones of the project
+     */
+    static public @Nonnull Strategy choose(@Nonnull Google provider, @Nonnull String resource) throws CloudException, InternalException {
+        ProviderContext ctx = provider.getContext();
+
+        if( ctx == null || ctx.getRegionId() == null ) {
+            return Strategy.AGGREGATED;
+        }
+        Properties props = ctx.getCustomProperties();
+        String value = (props == null ? null : props.getProperty(STRATEGY));
+
+        if( value != null && !value.trim().equalsIgnoreCase("auto") ) {
+            if( value.trim().equalsIgnoreCase("aggregated") ) {
+                return Strategy.AGGREGATED;
+            }
+            if( value.trim().equalsIgnoreCase("zonal") ) {
+                return Strategy.ZONAL;
+            }
+            logger.warn("Ignoring invalid value for " + STRATEGY + ": " + value);
+        }
+        GoogleTopology topology = GoogleTopology.getInstance(provider);
+        int regionZones = topology.getZonesInRegion(ctx.getRegionId()).size();
+        int allZones = topology.getZones().size();
+
+        if( regionZones < 1 || regionZones >= allZones ) {
+            // an unknown region, or one that holds the whole project
+            return Strategy.AGGREGATED;
+        }
+        ResourceStats stats = getStats(provider, resource);
+        long total = stats.totalItems;
+        long inRegion = stats.regionItems;
+
+        if( total < 0 || stats.zonalSinceSample.get() >= RESAMPLE_INTERVAL ) {
+            // nothing observed yet, or the observation is getting old
+            if( total < 0 && regionZones * 2 <= allZones ) {
+                return Strategy.ZONAL;
+            }
+            return Strategy.AGGREGATED;
+        }
+        long aggregatedCost = total + (CALL_COST * (1 + (total / PagedIterable.PAGE_SIZE)));
+        long zonalCost = inRegion + (CALL_COST * regionZones);
+
+        return (zonalCost < aggregatedCost ? Strategy.ZONAL : Strategy.AGGREGATED);
+    }
+
+    /**
+     * Starts recording what an aggregated listing of a resource transfers, for use in later strategy decisions.
+     * @param provider the provider whose project and region are listed
+     * @param resource the kind of resource listed, e.g. {@code instances}
+     * @return the sample to add each page of the listing to, completed once the last page has been added
+     */
+    static public @Nonnull Sample startSample(@Nonnull Google provider, @Nonnull String resource) {
+        ResourceStats stats = getStats(provider, resource);
+
+        stats.aggregated.incrementAndGet();
+        stats.zonalSinceSample.set(0);
+        return new Sample(stats);
+    }
+
+    /**
+     * Lists a resource in every specified zone, up to the configured number of zones at a time, and merges the
+     * results in zone name order.
+     * @param provider the provider whose project and region are listed
+     * @param resource the kind of resource listed, e.g. {@code instances}
+     * @param operation the API trace name recorded for each zone listed
+     * @param zones the zones to list
+     * @param fetcher fetches the pages of each zone
+     * @param <P> the page type returned by the list call
+     * @param <I> the type of item listed
+     * @return the items of every zone
+     * @throws CloudException listing one of the zones failed
+     * @throws InternalException the caller was interrupted while waiting for the zones
+     */
+    static public @Nonnull <P,I> List<I> list(@Nonnull final Google provider, @Nonnull String resource, @Nonnull final String operation, @Nonnull Collection<String> zones, @Nonnull final ZoneFetcher<P,I> fetcher) throws CloudException, InternalException {
+        List<I> items = fetchAll(provider, operation, zones, fetcher);
+
+        recordZonal(provider, resource, items.size());
+        return items;
+    }
+
+    /**
+     * Lists every specified zone like {@link #list(Google, String, String, Collection, ZoneFetcher)} without
+     * recording anything for the strategy decisions, for listings that do not list a resource for its own sake,
+     * e.g. the instances read to find what each disk is attached to.
+     * @param provider the provider whose project is listed
+     * @param operation the API trace name recorded for each zone listed
+     * @param zones the zones to list
+     * @param fetcher fetches the pages of each zone
+     * @param <P> the page type returned by the list call
+     * @param <I> the type of item listed
+     * @return the items of every zone
+     * @throws CloudException listing one of the zones failed
+     * @throws InternalException the caller was interrupted while waiting for the zones
+     */
+    static public @Nonnull <P,I> List<I> fetchAll(@Nonnull final Google provider, @Nonnull final String operation, @Nonnull Collection<String> zones, @Nonnull final ZoneFetcher<P,I> fetcher) throws CloudException, InternalException {
+        List<String> sorted = new ArrayList<String>(zones);
+
+        Collections.sort(sorted);
+        int parallelism = getParallelism(provider.getContext());
+        CompletionService<List<I>> completion = new ExecutorCompletionService<List<I>>(executor);
+        Map<Future<List<I>>,Integer> positions = new HashMap<Future<List<I>>, Integer>();
+        List<List<I>> results = new ArrayList<List<I>>();
+        int next = 0;
+
+        for( int i=0; i<sorted.size(); i++ ) {
+            results.add(null);
+        }
+        try {
+            while( next < sorted.size() || !positions.isEmpty() ) {
+                while( next < sorted.size() && positions.size() < parallelism ) {
+                    final String zone = sorted.get(next);
+
+                    positions.put(completion.submit(GoogleRateLimiter.withThreadPriority(new Callable<List<I>>() {
+                        public List<I> call() throws Exception {
+                            return listZone(provider, operation, zone, fetcher);
+                        }
+                    })), next++);
+                }
+                Future<List<I>> done = completion.take();
+
+                results.set(positions.remove(done), done.get());
+            }
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InternalException("Interrupted during " + operation);
+        }
+        catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+
+            if( cause instanceof CloudException ) {
+                throw (CloudException)cause;
+            }
+            if( cause instanceof InternalException ) {
+                throw (InternalException)cause;
+            }
+            if( cause instanceof RuntimeException ) {
+                throw (RuntimeException)cause;
+            }
+            throw new InternalException(cause);
+        }
+        finally {
+            for( Future<List<I>> pending : positions.keySet() ) {
+                pending.cancel(true);
+            }
+        }
+        List<I> items = new ArrayList<I>();
+
+        for( List<I> result : results ) {
+            items.addAll(result);
+        }
+        return items;
+    }
+
+    /**
+     * Records a zonal listing made without {@link #list(Google, String, String, Collection, ZoneFetcher)}, e.g. one
+     * that streamed its zones one after the other.
+     * @param provider the provider whose project and region were listed
+     * @param resource the kind of resource listed, e.g. {@code instances}
+     * @param regionItems the number of items listed in the region
+     */
+    static public void recordZonal(@Nonnull Google provider, @Nonnull String resource, long regionItems) {
+        ResourceStats stats = getStats(provider, resource);
+
+        stats.zonal.incrementAndGet();
+        stats.zonalSinceSample.incrementAndGet();
+        stats.regionItems = regionItems;
+    }
+
+    static private @Nonnull <P,I> List<I> listZone(@Nonnull Google provider, @Nonnull String operation, @Nonnull String zone, @Nonnull ZoneFetcher<P,I> fetcher) throws CloudException, InternalException {
+        List<I> items = new ArrayList<I>();
+        String pageToken = null;
+
+        do {
+            P page;
+
+            APITrace.begin(provider, operation);
+            try {
+                page = fetcher.fetch(zone, pageToken);
+            }
+            catch( IOException ex ) {
+                throw PagedIterable.toCloudException(ex, "An error occurred listing zone " + zone);
+            }
+            finally {
+                APITrace.end();
+            }
+            if( page == null ) {
+                break;
+            }
+            Collection<I> pageItems = fetcher.getItems(page);
+
+            if( pageItems != null ) {
+                items.addAll(pageItems);
+            }
+            pageToken = fetcher.getNextPageToken(page);
+        } while( pageToken != null );
+        return items;
+    }
+
+    static private int getParallelism(@Nullable ProviderContext ctx) {
+        Properties props = (ctx == null ? null : ctx.getCustomProperties());
+        String value = (props == null ? null : props.getProperty(PARALLELISM));
+
+        if( value != null ) {
+            try {
+                int p = Integer.parseInt(value.trim());
+
+                if( p > 0 ) {
+                    return Math.min(p, MAX_THREADS);
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // fall through to the default
+            }
+            logger.warn("Ignoring invalid value for " + PARALLELISM + ": " + value);
+        }
+        return DEFAULT_PARALLELISM;
+    }
+
+    /**
+     * The item counts seen by one aggregated listing. Nothing is recorded unless the listing reaches its last page,
+     * since the pages of a listing its consumer stopped early say nothing about the totals.
+     */
+    static public class Sample {
+        private final ResourceStats stats;
+        private long    total;
+        private long    inRegion;
+        private boolean complete;
+
+        private Sample(@Nonnull ResourceStats stats) {
+            this.stats = stats;
+        }
+
+        /**
+         * Adds a page of the aggregated listing to the sample.
+         * @param pageItems the number of items on the page
+         * @param regionItems the number of those items in the region being listed
+         */
+        public synchronized void add(int pageItems, int regionItems) {
+            if( complete ) {
+                return;
+            }
+            total += pageItems;
+            inRegion += regionItems;
+        }
+
+        /**
+         * Records the totals of the pages added, once the last page of the listing has been added. Pages added by
+         * iterating the listing again are ignored.
+         */
+        public synchronized void complete() {
+            if( complete ) {
+                return;
+            }
+            complete = true;
+            stats.totalItems = total;
+            stats.regionItems = inRegion;
+        }
+    }
+
+    /**
+     * What listings of one resource in one region of a project have transferred.
+     */
+    static public class ResourceStats {
+        private final String     name;
+        private final AtomicLong aggregated       = new AtomicLong(0);
+        private final AtomicLong zonal            = new AtomicLong(0);
+        private final AtomicLong zonalSinceSample = new AtomicLong(0);
+
+        private volatile long totalItems  = -1L;
+        private volatile long regionItems = -1L;
+
+        private ResourceStats(@Nonnull String name) {
+            this.name = name;
+        }
+
+        public @Nonnull String getName() {
+            return name;
+        }
+
+        /**
+         * @return the number of aggregated listings
+         */
+        public long getAggregatedCount() {
+            return aggregated.get();
+        }
+
+        /**
+         * @return the number of zonal listings
+         */
+        public long getZonalCount() {
+            return zonal.get();
+        }
+
+        /**
+         * @return the number of items in the whole project seen by the last aggregated listing, -1 if none was made
+         */
+        public long getTotalItems() {
+            return totalItems;
+        }
+
+        /**
+         * @return the number of items in the region seen by the last listing, -1 if none was made
+         */
+        public long getRegionItems() {
+            return regionItems;
+        }
+
+        @Override
+        public @Nonnull String toString() {
+            return name + "[aggregated=" + aggregated.get() + ", zonal=" + zonal.get() + ", totalItems=" + totalItems + ", regionItems=" + regionItems + "]";
+        }
+    }
+}
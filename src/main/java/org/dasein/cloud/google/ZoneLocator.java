@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.ProviderContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the zone of zonal resources such as instances by name, so operations on a single resource can call the
+ * zonal API directly instead of searching the whole project for it. Entries are recorded whenever a resource is
+ * listed, looked up or created and are dropped when it is removed or found missing from its zone. A located zone is
+ * only a hint: callers must fall back to a project-wide search if the resource is not found there.
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class ZoneLocator {
+    static private final Logger logger = Google.getLogger(ZoneLocator.class);
+
+    /**
+     * The number of entries beyond which the least recently used one is dropped rather than growing without bound.
+     */
+    static private final int MAX_ENTRIES = 10000;
+
+    private final String                        name;
+    // guarded by this, in access order
+    private final LinkedHashMap<String,String> zones;
+
+    private final AtomicLong hits          = new AtomicLong(0);
+    private final AtomicLong misses        = new AtomicLong(0);
+    private final AtomicLong invalidations = new AtomicLong(0);
+    private final AtomicLong evictions     = new AtomicLong(0);
+
+    /**
+     * @param name the kind of resource located, used in logging
+     */
+    public ZoneLocator(@Nonnull String name) {
+        this.name = name;
+        this.zones = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,String> eldest) {
+                if( size() > MAX_ENTRIES ) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    static private @Nonnull String getKey(@Nonnull Google provider, @Nonnull String resourceName) {
+        ProviderContext ctx = provider.getContext();
+
+        return (ctx == null ? "" : ctx.getAccountNumber()) + ":" + resourceName;
+    }
+
+    /**
+     * @param provider the provider whose project the resource belongs to
+     * @param resourceName the name of the resource
+     * @return the name of the zone the resource was last seen in, null if it is not known
+     */
+    public @Nullable String getZone(@Nonnull Google provider, @Nonnull String resourceName) {
+        String key = getKey(provider, resourceName);
+        String zone;
+
+        synchronized( this ) {
+            zone = zones.get(key);
+        }
+
+        if( zone == null ) {
+            misses.incrementAndGet();
+        }
+        else {
+            hits.incrementAndGet();
+        }
+        return zone;
+    }
+
+    /**
+     * Records the zone a resource was seen in.
+     * @param provider the provider whose project the resource belongs to
+     * @param resourceName the name of the resource
+     * @param zone the name or URL of the zone
+     */
+    public void put(@Nonnull Google provider, @Nonnull String resourceName, @Nullable String zone) {
+        if( zone == null || zone.equals("") ) {
+            return;
+        }
+        String key = getKey(provider, resourceName);
+        String zoneName = GoogleTopology.toName(zone);
+
+        synchronized( this ) {
+            zones.put(key, zoneName);
+        }
+    }
+
+    /**
+     * Forgets the zone of a resource, e.g. after it was removed or could not be found in its recorded zone.
+     * @param provider the provider whose project the resource belongs to
+     * @param resourceName the name of the resource
+     */
+    public void invalidate(@Nonnull Google provider, @Nonnull String resourceName) {
+        String key = getKey(provider, resourceName);
+        String removed;
+
+        synchronized( this ) {
+            removed = zones.remove(key);
+        }
+        if( removed != null ) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of lookups answered with a recorded zone
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups for a resource whose zone was not recorded
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of recorded zones dropped
+     */
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return the number of recorded zones dropped to make room for others
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public synchronized @Nonnull String toString() {
+        return name + "[entries=" + zones.size() + ", hits=" + hits.get() + ", misses=" + misses.get() + ", invalidations=" + invalidations.get() + ", evictions=" + evictions.get() + "]";
+    }
+}
@@ -21,8 +21,15 @@ package org.dasein.cloud.google.compute.server;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.services.compute.Compute;
@@ -30,13 +37,25 @@ import com.google.api.services.compute.model.*;
 import org.dasein.cloud.CloudErrorType;
 import org.dasein.cloud.CloudException;
 import org.dasein.cloud.InternalException;
+import org.dasein.cloud.ProviderContext;
 import org.dasein.cloud.Requirement;
 import org.dasein.cloud.ResourceStatus;
 import org.dasein.cloud.compute.*;
+import org.dasein.cloud.google.BulkResult;
 import org.dasein.cloud.google.Google;
+import org.dasein.cloud.google.GoogleCircuitBreaker;
 import org.dasein.cloud.google.GoogleException;
+import org.dasein.cloud.google.GoogleFields;
+import org.dasein.cloud.google.GoogleHedger;
 import org.dasein.cloud.google.GoogleMethod;
 import org.dasein.cloud.google.GoogleOperationType;
+import org.dasein.cloud.google.GoogleRateLimiter;
+import org.dasein.cloud.google.GoogleTopology;
+import org.dasein.cloud.google.OperationWatcher;
+import org.dasein.cloud.google.RequestCoalescer;
+import org.dasein.cloud.google.PagedIterable;
+import org.dasein.cloud.google.ZonalListing;
+import org.dasein.cloud.google.ZoneLocator;
 import org.dasein.cloud.google.capabilities.GCEVolumeCapabilities;
 import org.dasein.cloud.util.APITrace;
 import org.dasein.util.uom.storage.Gigabyte;
@@ -54,6 +73,74 @@ import org.apache.log4j.Logger;
 public class DiskSupport extends AbstractVolumeSupport {
 	static private final Logger logger = Google.getLogger(DiskSupport.class);
 
+    /**
+     * The disk fields read by {@link #toVolume(Disk)}.
+     */
+    static private final String DISK_FIELDS = "name,description,zone,creationTimestamp,status,sizeGb,sourceSnapshotId,selfLink";
+    /**
+     * The disk fields read when only the state of each volume is listed.
+     */
+    static private final String STATUS_FIELDS = "name,status,zone";
+    /**
+     * The instance fields read to find the instance a disk is attached to.
+     */
+    static private final String ATTACHMENT_FIELDS = "name,disks(source,deviceName)";
+
+    /**
+     * What a single volume lookup reads from the API, shared by concurrent lookups of the same volume and converted
+     * for each caller.
+     */
+    static public class DiskLookup {
+        private final Disk            disk;
+        private final AttachmentIndex attachments;
+
+        private DiskLookup(@Nonnull Disk disk, @Nonnull AttachmentIndex attachments) {
+            this.disk = disk;
+            this.attachments = attachments;
+        }
+    }
+
+    /**
+     * Shares concurrent lookups of the same volume.
+     */
+    static private final RequestCoalescer<DiskLookup> volumeLookups = new RequestCoalescer<DiskLookup>("getVolume");
+
+    static public @Nonnull RequestCoalescer<DiskLookup> getLookupCoalescer() {
+        return volumeLookups;
+    }
+
+    /**
+     * Remembers the zone of each volume seen, so lookups of a single volume can go straight to its zone.
+     */
+    static private final ZoneLocator volumeZones = new ZoneLocator("disks");
+
+    static public @Nonnull ZoneLocator getZoneLocator() {
+        return volumeZones;
+    }
+
+    /**
+     * The {@link ProviderContext} custom property limiting how many items of a bulk operation are in progress at once
+     * (default 10).
+     */
+    static public final String BULK_CONCURRENCY = "google.bulk.concurrency";
+
+    static private final int DEFAULT_BULK_CONCURRENCY = 10;
+
+    /**
+     * Sends the API calls of bulk operations, so that finished operations can be followed up without holding up
+     * the threads polling them.
+     */
+    static private final ExecutorService bulkExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        public Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-google-volume-bulk-" + count.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
 	private Google provider;
 
 	public DiskSupport(Google provider) {
@@ -71,14 +158,7 @@ public class DiskSupport extends AbstractVolumeSupport {
                 VirtualMachine vm = provider.getComputeServices().getVirtualMachineSupport().getVirtualMachine(toServer);
                 Volume volume = getVolume(volumeId);
 
-                AttachedDisk attachedDisk = new AttachedDisk();
-                attachedDisk.setSource(volume.getTag("contentLink"));
-                attachedDisk.setType("PERSISTENT");
-                attachedDisk.setMode("READ_WRITE");
-                attachedDisk.setBoot(false);
-                attachedDisk.setDeviceName(deviceId);
-
-                Operation job = gce.instances().attachDisk(provider.getContext().getAccountNumber(), vm.getProviderDataCenterId(), toServer, attachedDisk).execute();
+                Operation job = gce.instances().attachDisk(provider.getContext().getAccountNumber(), vm.getProviderDataCenterId(), toServer, toAttachedDisk((String)volume.getTag("contentLink"), deviceId)).execute();
 
                 GoogleMethod method = new GoogleMethod(provider);
                 if(!method.getOperationComplete(provider.getContext(), job, GoogleOperationType.ZONE_OPERATION, "", vm.getProviderDataCenterId())){
@@ -86,6 +166,7 @@ public class DiskSupport extends AbstractVolumeSupport {
                 }
 	        } catch (IOException ex) {
 				logger.error(ex.getMessage());
+				GoogleCircuitBreaker.rethrow(ex);
 				if (ex.getClass() == GoogleJsonResponseException.class) {
 					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -94,6 +175,7 @@ public class DiskSupport extends AbstractVolumeSupport {
 			}
         }
         finally{
+            volumeLookups.invalidate(provider, volumeId);
             APITrace.end();
         }
 	}
@@ -105,16 +187,15 @@ public class DiskSupport extends AbstractVolumeSupport {
             Compute gce = provider.getGoogleCompute();
 
             try{
-                Disk disk = new Disk();
-                disk.setName(options.getName());
-                disk.setSizeGb(options.getVolumeSize().longValue());
-                disk.setZone(options.getDataCenterId());
-                Operation job = gce.disks().insert(provider.getContext().getAccountNumber(), options.getDataCenterId(), disk).execute();
+                Operation job = gce.disks().insert(provider.getContext().getAccountNumber(), options.getDataCenterId(), toDisk(options)).execute();
 
                 GoogleMethod method = new GoogleMethod(provider);
-                return method.getOperationTarget(provider.getContext(), job, GoogleOperationType.ZONE_OPERATION, "", options.getDataCenterId(), false);
+                String volumeId = method.getOperationTarget(provider.getContext(), job, GoogleOperationType.ZONE_OPERATION, "", options.getDataCenterId(), false);
+                volumeZones.put(provider, volumeId, options.getDataCenterId());
+                return volumeId;
 	        } catch (IOException ex) {
 				logger.error(ex.getMessage());
+				GoogleCircuitBreaker.rethrow(ex);
 				if (ex.getClass() == GoogleJsonResponseException.class) {
 					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -127,6 +208,289 @@ public class DiskSupport extends AbstractVolumeSupport {
         }
 	}
 
+    /**
+     * Builds the disk inserted for the options of a new volume.
+     */
+    private @Nonnull Disk toDisk(@Nonnull VolumeCreateOptions options){
+        Disk disk = new Disk();
+        disk.setName(options.getName());
+        disk.setSizeGb(options.getVolumeSize().longValue());
+        disk.setZone(options.getDataCenterId());
+        return disk;
+    }
+
+    /**
+     * Builds the attachment of an existing persistent disk as a read-write data disk.
+     */
+    private @Nonnull AttachedDisk toAttachedDisk(@Nonnull String diskLink, @Nullable String deviceId){
+        AttachedDisk attachedDisk = new AttachedDisk();
+        attachedDisk.setSource(diskLink);
+        attachedDisk.setType("PERSISTENT");
+        attachedDisk.setMode("READ_WRITE");
+        attachedDisk.setBoot(false);
+        attachedDisk.setDeviceName(deviceId);
+        return attachedDisk;
+    }
+
+    /**
+     * Creates several volumes at once. Up to {@link #BULK_CONCURRENCY} volumes are in progress at the same time and
+     * their operations are tracked together. A volume whose options name a virtual machine is attached to it as
+     * soon as its own creation has finished, without waiting for the other volumes.
+     * @param options the options of each volume to create
+     * @return the outcome of each volume in the order of the options, holding the new volume ID on success
+     * @throws CloudException the bulk operation could not be started
+     * @throws InternalException the calling thread was interrupted while waiting for the volumes
+     */
+    public @Nonnull List<BulkResult<String>> createVolumes(@Nonnull List<VolumeCreateOptions> options) throws InternalException, CloudException {
+        APITrace.begin(getProvider(), "Volume.createVolumes");
+        try{
+            final Compute gce = provider.getGoogleCompute();
+            final String project = provider.getContext().getAccountNumber();
+            final OperationWatcher watcher = OperationWatcher.getInstance(provider);
+            final GoogleRateLimiter.Priority priority = GoogleRateLimiter.getThreadPriority();
+            final Bulk bulk = new Bulk(options.size());
+
+            for(int i=0; i<options.size(); i++){
+                final int index = i;
+                final VolumeCreateOptions item = options.get(i);
+
+                bulk.acquire();
+                bulkExecutor.execute(GoogleRateLimiter.withThreadPriority(new Runnable() {
+                    public void run() {
+                        try{
+                            Operation job = gce.disks().insert(project, item.getDataCenterId(), toDisk(item)).execute();
+
+                            watcher.watch(job, GoogleOperationType.ZONE_OPERATION, "", item.getDataCenterId(), new OperationWatcher.Callback() {
+                                public void onComplete(@Nonnull final Operation operation) {
+                                    final String volumeId = operation.getTargetLink().substring(operation.getTargetLink().lastIndexOf("/") + 1);
+
+                                    volumeZones.put(provider, volumeId, item.getDataCenterId());
+                                    if(item.getVirtualMachineId() == null){
+                                        bulk.succeed(index, item.getName(), volumeId);
+                                        return;
+                                    }
+                                    // runs on the watcher's thread, so the priority of the caller is set explicitly
+                                    bulkExecutor.execute(new Runnable() {
+                                        public void run() {
+                                            if(priority != null) GoogleRateLimiter.setThreadPriority(priority);
+                                            try{
+                                                startAttach(bulk, index, item.getName(), volumeId, operation.getTargetLink(), item.getDataCenterId(), item.getVirtualMachineId(), item.getDeviceId());
+                                            }
+                                            finally{
+                                                GoogleRateLimiter.clearThreadPriority();
+                                            }
+                                        }
+                                    });
+                                }
+
+                                public void onFailure(@Nonnull CloudException error) {
+                                    bulk.fail(index, item.getName(), error);
+                                }
+                            });
+                        }
+                        catch(IOException ex){
+                            bulk.fail(index, item.getName(), PagedIterable.toCloudException(ex, "An error occurred while creating the Volume"));
+                        }
+                        catch(RuntimeException ex){
+                            bulk.fail(index, item.getName(), ex);
+                        }
+                    }
+                }));
+            }
+            return bulk.await();
+        }
+        finally{
+            APITrace.end();
+        }
+    }
+
+    /**
+     * Attaches several volumes at once. Up to {@link #BULK_CONCURRENCY} attachments are in progress at the same time
+     * and their operations are tracked together.
+     * @param attachments the volumes to attach and where to attach them
+     * @return the outcome of each attachment in the order requested, holding the volume ID on success
+     * @throws CloudException the bulk operation could not be started
+     * @throws InternalException the calling thread was interrupted while waiting for the attachments
+     */
+    public @Nonnull List<BulkResult<String>> attachAll(@Nonnull List<AttachRequest> attachments) throws InternalException, CloudException {
+        APITrace.begin(getProvider(), "Volume.attachAll");
+        try{
+            final Bulk bulk = new Bulk(attachments.size());
+
+            for(int i=0; i<attachments.size(); i++){
+                final int index = i;
+                final AttachRequest item = attachments.get(i);
+
+                bulk.acquire();
+                bulkExecutor.execute(GoogleRateLimiter.withThreadPriority(new Runnable() {
+                    public void run() {
+                        try{
+                            Volume volume = getVolume(item.getVolumeId());
+                            if(volume == null){
+                                bulk.fail(index, item.getVolumeId(), new CloudException("The volume " + item.getVolumeId() + " does not exist"));
+                                return;
+                            }
+                            startAttach(bulk, index, item.getVolumeId(), item.getVolumeId(), (String)volume.getTag("contentLink"), volume.getProviderDataCenterId(), item.getServerId(), item.getDeviceId());
+                        }
+                        catch(CloudException ex){
+                            bulk.fail(index, item.getVolumeId(), ex);
+                        }
+                        catch(InternalException ex){
+                            bulk.fail(index, item.getVolumeId(), ex);
+                        }
+                        catch(RuntimeException ex){
+                            bulk.fail(index, item.getVolumeId(), ex);
+                        }
+                    }
+                }));
+            }
+            return bulk.await();
+        }
+        finally{
+            APITrace.end();
+        }
+    }
+
+    /**
+     * Sends the attachment of one item of a bulk operation and completes the item once the attachment finishes.
+     */
+    private void startAttach(@Nonnull final Bulk bulk, final int index, @Nonnull final String name, @Nonnull final String volumeId, @Nonnull String diskLink, @Nonnull String zone, @Nonnull String serverId, @Nullable String deviceId) {
+        try{
+            Operation job = provider.getGoogleCompute().instances().attachDisk(provider.getContext().getAccountNumber(), zone, serverId, toAttachedDisk(diskLink, deviceId)).execute();
+            OperationWatcher.getInstance(provider).watch(job, GoogleOperationType.ZONE_OPERATION, "", zone, new OperationWatcher.Callback() {
+                public void onComplete(@Nonnull Operation operation) {
+                    volumeLookups.invalidate(provider, volumeId);
+                    bulk.succeed(index, name, volumeId);
+                }
+
+                public void onFailure(@Nonnull CloudException error) {
+                    volumeLookups.invalidate(provider, volumeId);
+                    bulk.fail(index, name, new CloudException("The volume " + volumeId + " could not be attached: " + error.getMessage()));
+                }
+            });
+        }
+        catch(IOException ex){
+            bulk.fail(index, name, PagedIterable.toCloudException(ex, "An error occurred while attaching the disk " + volumeId));
+        }
+        catch(CloudException ex){
+            bulk.fail(index, name, ex);
+        }
+        catch(InternalException ex){
+            bulk.fail(index, name, ex);
+        }
+        catch(RuntimeException ex){
+            bulk.fail(index, name, ex);
+        }
+    }
+
+    /**
+     * A volume to attach with {@link #attachAll(List)}.
+     */
+    static public class AttachRequest {
+        private final String volumeId;
+        private final String serverId;
+        private final String deviceId;
+
+        /**
+         * @param volumeId the volume to attach
+         * @param serverId the virtual machine to attach it to, which must be in the same zone
+         * @param deviceId the device name to attach it as
+         */
+        public AttachRequest(@Nonnull String volumeId, @Nonnull String serverId, @Nonnull String deviceId) {
+            this.volumeId = volumeId;
+            this.serverId = serverId;
+            this.deviceId = deviceId;
+        }
+
+        public @Nonnull String getVolumeId() {
+            return volumeId;
+        }
+
+        public @Nonnull String getServerId() {
+            return serverId;
+        }
+
+        public @Nonnull String getDeviceId() {
+            return deviceId;
+        }
+    }
+
+    /**
+     * Tracks the items of one bulk operation and limits how many are in progress at once.
+     */
+    private class Bulk {
+        private final Semaphore                      permits;
+        private final CountDownLatch                 remaining;
+        private final ArrayList<BulkResult<String>> results = new ArrayList<BulkResult<String>>();
+
+        private Bulk(int size) {
+            permits = new Semaphore(getBulkConcurrency());
+            remaining = new CountDownLatch(size);
+            for(int i=0; i<size; i++){
+                results.add(null);
+            }
+        }
+
+        private void acquire() throws InternalException {
+            try{
+                permits.acquire();
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new InternalException("Interrupted while starting a bulk volume operation");
+            }
+        }
+
+        private void succeed(int index, @Nonnull String name, @Nonnull String value) {
+            complete(index, BulkResult.success(name, value));
+        }
+
+        private void fail(int index, @Nonnull String name, @Nonnull Exception error) {
+            logger.error("Bulk volume operation failed for " + name + ": " + error.getMessage());
+            complete(index, BulkResult.<String>failure(name, error));
+        }
+
+        private void complete(int index, @Nonnull BulkResult<String> result) {
+            synchronized(results){
+                if(results.get(index) != null) return;
+                results.set(index, result);
+            }
+            permits.release();
+            remaining.countDown();
+        }
+
+        private @Nonnull List<BulkResult<String>> await() throws InternalException {
+            try{
+                remaining.await();
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new InternalException("Interrupted while waiting for a bulk volume operation");
+            }
+            synchronized(results){
+                return new ArrayList<BulkResult<String>>(results);
+            }
+        }
+    }
+
+    private int getBulkConcurrency() {
+        ProviderContext ctx = provider.getContext();
+        Properties props = (ctx == null ? null : ctx.getCustomProperties());
+        String value = (props == null ? null : props.getProperty(BULK_CONCURRENCY));
+
+        if(value != null){
+            try{
+                int concurrency = Integer.parseInt(value.trim());
+                if(concurrency > 0) return concurrency;
+            }
+            catch(NumberFormatException ignore){
+                // fall through to the default
+            }
+            logger.warn("Ignoring invalid value for " + BULK_CONCURRENCY + ": " + value);
+        }
+        return DEFAULT_BULK_CONCURRENCY;
+    }
+
 	@Override
 	public void detach(@Nonnull String volumeId, boolean force) throws InternalException, CloudException {
         APITrace.begin(getProvider(), "Volume.detach");
@@ -143,6 +507,7 @@ public class DiskSupport extends AbstractVolumeSupport {
                 }
 	        } catch (IOException ex) {
 				logger.error(ex.getMessage());
+				GoogleCircuitBreaker.rethrow(ex);
 				if (ex.getClass() == GoogleJsonResponseException.class) {
 					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -151,6 +516,7 @@ public class DiskSupport extends AbstractVolumeSupport {
 			}
         }
         finally{
+            volumeLookups.invalidate(provider, volumeId);
             APITrace.end();
         }
 	}
@@ -185,24 +551,55 @@ public class DiskSupport extends AbstractVolumeSupport {
 	}
 
 	@Override
-	public Volume getVolume(@Nonnull String volumeId) throws InternalException, CloudException {
+	public Volume getVolume(@Nonnull final String volumeId) throws InternalException, CloudException {
+        DiskLookup lookup = volumeLookups.get(provider, volumeId, new RequestCoalescer.Loader<DiskLookup>() {
+            public DiskLookup load() throws CloudException, InternalException {
+                return loadVolume(volumeId);
+            }
+        });
+
+        // every caller gets a volume of its own, converted from the shared lookup
+        return (lookup == null ? null : toVolume(lookup.disk, lookup.attachments));
+    }
+
+	private DiskLookup loadVolume(@Nonnull final String volumeId) throws InternalException, CloudException {
         APITrace.begin(getProvider(), "Volume.getVolume");
         try{
-            Compute gce = provider.getGoogleCompute();
+            final Compute gce = provider.getGoogleCompute();
+            final String project = provider.getContext().getAccountNumber();
             try{
-                DiskAggregatedList diskList = gce.disks().aggregatedList(provider.getContext().getAccountNumber()).setFilter("name eq " + volumeId).execute();
+                final String zone = volumeZones.getZone(provider, volumeId);
+                if(zone != null){
+                    try{
+                        return toLookup(GoogleHedger.execute(provider, new GoogleHedger.RequestFactory<Disk>() {
+                            public @Nonnull Compute.Disks.Get newRequest() throws IOException {
+                                return gce.disks().get(project, zone, volumeId).setFields(GoogleFields.forResource(provider, DISK_FIELDS));
+                            }
+                        }));
+                    } catch (GoogleJsonResponseException ex) {
+                        if(ex.getStatusCode() != 404) throw ex;
+                        // deleted or recreated elsewhere since it was last seen, search the whole project
+                        volumeZones.invalidate(provider, volumeId);
+                    }
+                }
+                DiskAggregatedList diskList = GoogleHedger.execute(provider, new GoogleHedger.RequestFactory<DiskAggregatedList>() {
+                    public @Nonnull Compute.Disks.AggregatedList newRequest() throws IOException {
+                        return gce.disks().aggregatedList(project).setFilter("name eq " + volumeId).setFields(GoogleFields.forAggregatedList(provider, "disks", DISK_FIELDS));
+                    }
+                });
                 Iterator<String> zones = diskList.getItems().keySet().iterator();
                 while(zones.hasNext()){
-                    String zone = zones.next();
-                    if(diskList.getItems().get(zone) != null && diskList.getItems().get(zone).getDisks() != null){
-                        for(Disk disk : diskList.getItems().get(zone).getDisks()){
-                            if(disk.getName().equals(volumeId))return toVolume(disk);
+                    String scope = zones.next();
+                    if(diskList.getItems().get(scope) != null && diskList.getItems().get(scope).getDisks() != null){
+                        for(Disk disk : diskList.getItems().get(scope).getDisks()){
+                            if(disk.getName().equals(volumeId))return toLookup(disk);
                         }
                     }
                 }
                 return null;
 	        } catch (IOException ex) {
 				logger.error(ex.getMessage());
+				GoogleCircuitBreaker.rethrow(ex);
 				if (ex.getClass() == GoogleJsonResponseException.class) {
 					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -260,57 +657,152 @@ public class DiskSupport extends AbstractVolumeSupport {
 		return Collections.emptyList();
 	}
 
+    /**
+     * With the aggregated listing, pages after the first are fetched while iterating, so a failure to fetch one is
+     * thrown from the iterator as a {@link PagedIterable.PagingException}.
+     */
 	@Override
 	public @Nonnull Iterable<ResourceStatus> listVolumeStatus() throws InternalException, CloudException {
-		List<ResourceStatus> status = new ArrayList<ResourceStatus>();
-
-		Iterable<Volume> volumes = listVolumes();
-		for (Volume volume: volumes) {
-			VolumeState state = volume.getCurrentState();
-			ResourceStatus resStatus = new ResourceStatus(volume.getProviderVolumeId(), state);
-			status.add(resStatus);
-		}
-		return status;
+        final Compute gce = provider.getGoogleCompute();
+        final String project = provider.getContext().getAccountNumber();
+        final String regionId = provider.getContext().getRegionId();
+
+        if(ZonalListing.choose(provider, "disks") == ZonalListing.Strategy.ZONAL){
+            List<ResourceStatus> status = new ArrayList<ResourceStatus>();
+            for(Disk disk : ZonalListing.list(provider, "disks", "Volume.listVolumeStatus", GoogleTopology.getInstance(provider).getZonesInRegion(regionId), getDiskFetcher(gce, project, STATUS_FIELDS))){
+                status.add(toStatus(disk));
+            }
+            return status;
+        }
+        final ZonalListing.Sample sample = ZonalListing.startSample(provider, "disks");
+
+        return new PagedIterable<DiskAggregatedList, ResourceStatus>(provider, "Volume.listVolumeStatus") {
+            @Override
+            protected DiskAggregatedList fetch(String pageToken) throws IOException {
+                return gce.disks().aggregatedList(project).setMaxResults(PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forAggregatedList(provider, "disks", STATUS_FIELDS)).execute();
+            }
+
+            @Override
+            protected String getNextPageToken(@Nonnull DiskAggregatedList page) {
+                return page.getNextPageToken();
+            }
+
+            @Override
+            protected @Nonnull Iterable<ResourceStatus> getItems(@Nonnull DiskAggregatedList diskList) throws CloudException, InternalException {
+                List<ResourceStatus> status = new ArrayList<ResourceStatus>();
+                if(diskList.getItems() == null) return status;
+                int total = 0;
+                for(Map.Entry<String,DisksScopedList> entry : diskList.getItems().entrySet()){
+                    if(entry.getValue() == null || entry.getValue().getDisks() == null) continue;
+                    total += entry.getValue().getDisks().size();
+                    if(!regionId.equals(provider.getDataCenterServices().getRegionFromZone(entry.getKey()))) continue;
+                    for(Disk disk : entry.getValue().getDisks()){
+                        status.add(toStatus(disk));
+                    }
+                }
+                sample.add(total, status.size());
+                if(isLastPage(diskList)) sample.complete();
+                return status;
+            }
+
+            @Override
+            protected @Nonnull String getErrorMessage() {
+                return "An error occurred listing Volume status";
+            }
+        }.load();
 	}
 
+    /**
+     * Fetches the disks of one zone with the specified partial response fields.
+     */
+    private @Nonnull ZonalListing.ZoneFetcher<DiskList, Disk> getDiskFetcher(@Nonnull final Compute gce, @Nonnull final String project, @Nonnull final String fields) {
+        return new ZonalListing.ZoneFetcher<DiskList, Disk>() {
+            public DiskList fetch(@Nonnull String zone, String pageToken) throws IOException {
+                return gce.disks().list(project, zone).setMaxResults(PagedIterable.PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forList(provider, fields)).execute();
+            }
+
+            public String getNextPageToken(@Nonnull DiskList page) {
+                return page.getNextPageToken();
+            }
+
+            public Collection<Disk> getItems(@Nonnull DiskList page) {
+                return page.getItems();
+            }
+        };
+    }
+
 	@Override
 	public @Nonnull Iterable<Volume> listVolumes() throws InternalException, CloudException {
 		return listVolumes(null);
 	}
 
+    /**
+     * Lists the volumes of the context region. With the aggregated listing, pages after the first are fetched while
+     * iterating, so a failure to fetch one is thrown from the iterator as a {@link PagedIterable.PagingException}.
+     */
 	@Override
-	public @Nonnull Iterable<Volume> listVolumes(VolumeFilterOptions options) throws InternalException, CloudException {
-        APITrace.begin(getProvider(), "Volume.listVolumes");
-        try{
+	public @Nonnull Iterable<Volume> listVolumes(final VolumeFilterOptions options) throws InternalException, CloudException {
+        final Compute gce = provider.getGoogleCompute();
+        final String project = provider.getContext().getAccountNumber();
+        final String regionId = provider.getContext().getRegionId();
+
+        if(ZonalListing.choose(provider, "disks") == ZonalListing.Strategy.ZONAL){
+            List<Disk> disks = ZonalListing.list(provider, "disks", "Volume.listVolumes", GoogleTopology.getInstance(provider).getZonesInRegion(regionId), getDiskFetcher(gce, project, DISK_FIELDS));
             ArrayList<Volume> volumes = new ArrayList<Volume>();
-            Compute gce = provider.getGoogleCompute();
-            try{
-                DiskAggregatedList diskList = gce.disks().aggregatedList(provider.getContext().getAccountNumber()).execute();
+            AttachmentIndex attachments = new AttachmentIndex(gce, project, GoogleTopology.getInstance(provider).getZonesInRegion(regionId));
+            for(Disk disk : disks){
+                Volume volume = toVolume(disk, attachments);
+                if( volume != null && (options == null || options.matches(volume)) ) {
+                    volumes.add(volume);
+                }
+            }
+            return volumes;
+        }
+        final ZonalListing.Sample sample = ZonalListing.startSample(provider, "disks");
+        final AttachmentIndex attachments = new AttachmentIndex(gce, project, GoogleTopology.getInstance(provider).getZonesInRegion(regionId));
+
+        return new PagedIterable<DiskAggregatedList, Volume>(provider, "Volume.listVolumes") {
+            @Override
+            protected DiskAggregatedList fetch(String pageToken) throws IOException {
+                return gce.disks().aggregatedList(project).setMaxResults(PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forAggregatedList(provider, "disks", DISK_FIELDS)).execute();
+            }
+
+            @Override
+            protected String getNextPageToken(@Nonnull DiskAggregatedList page) {
+                return page.getNextPageToken();
+            }
+
+            @Override
+            protected @Nonnull Iterable<Volume> getItems(@Nonnull DiskAggregatedList diskList) throws CloudException, InternalException {
+                ArrayList<Volume> volumes = new ArrayList<Volume>();
+                if(diskList.getItems() == null) return volumes;
+                int total = 0;
+                int inRegion = 0;
                 Iterator<String> zones = diskList.getItems().keySet().iterator();
                 while(zones.hasNext()){
                     String zone = zones.next();
                     if(diskList.getItems().get(zone) != null && diskList.getItems().get(zone).getDisks() != null){
+                        total += diskList.getItems().get(zone).getDisks().size();
+                        if(!regionId.equals(provider.getDataCenterServices().getRegionFromZone(zone))) continue;
+                        inRegion += diskList.getItems().get(zone).getDisks().size();
                         for(Disk disk : diskList.getItems().get(zone).getDisks()){
-                            Volume volume = toVolume(disk);
+                            Volume volume = toVolume(disk, attachments);
                             if( volume != null && (options == null || options.matches(volume)) ) {
                                 volumes.add(volume);
                             }
                         }
                     }
                 }
+                sample.add(total, inRegion);
+                if(isLastPage(diskList)) sample.complete();
                 return volumes;
-	        } catch (IOException ex) {
-				logger.error(ex.getMessage());
-				if (ex.getClass() == GoogleJsonResponseException.class) {
-					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-				} else
-	                throw new CloudException("An error occurred listing Volumes: " + ex.getMessage());
-			}
-        }
-        finally{
-            APITrace.end();
-        }
+            }
+
+            @Override
+            protected @Nonnull String getErrorMessage() {
+                return "An error occurred listing Volumes";
+            }
+        }.load();
 	}
 
 	@Override
@@ -333,6 +825,7 @@ public class DiskSupport extends AbstractVolumeSupport {
                 }
 	        } catch (IOException ex) {
 				logger.error(ex.getMessage());
+				GoogleCircuitBreaker.rethrow(ex);
 				if (ex.getClass() == GoogleJsonResponseException.class) {
 					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -341,11 +834,48 @@ public class DiskSupport extends AbstractVolumeSupport {
 			}
         }
         finally {
+            volumeLookups.invalidate(provider, volumeId);
+            volumeZones.invalidate(provider, volumeId);
             APITrace.end();
         }
     }
 
+    /**
+     * Reads the attachments of a single disk within the shared lookup, so that converting it needs no further API
+     * calls.
+     */
+    private @Nonnull DiskLookup toLookup(@Nonnull Disk disk) throws InternalException, CloudException{
+        //We only care about instances in the same zone as the disk
+        String zone = disk.getZone().substring(disk.getZone().lastIndexOf("/") + 1);
+        AttachmentIndex attachments = new AttachmentIndex(provider.getGoogleCompute(), provider.getContext().getAccountNumber(), Collections.singletonList(zone));
+
+        attachments.get(disk.getSelfLink());
+        return new DiskLookup(disk, attachments);
+    }
+
+    /**
+     * Converts a single disk. A disk does not name the instance it is attached to, so this lists every instance in
+     * the disk's zone to find it: one list call per page of instances for each disk converted. Listings convert their
+     * disks against one attachment index for all of them instead.
+     * @param disk the disk, read with at least {@link #DISK_FIELDS}
+     * @return the volume
+     * @throws CloudException the instances of the disk's zone could not be listed
+     */
     public Volume toVolume(Disk disk) throws InternalException, CloudException{
+        DiskLookup lookup = toLookup(disk);
+
+        return toVolume(lookup.disk, lookup.attachments);
+    }
+
+    /**
+     * Converts a disk, taking the instance it is attached to from the attachment index shared by the disks being
+     * converted.
+     * @param disk the disk, read with at least {@link #DISK_FIELDS}
+     * @param attachments the attachments of the zones of the disks being converted
+     * @return the volume
+     * @throws CloudException the instances of the disk's zone could not be listed
+     */
+    private @Nonnull Volume toVolume(@Nonnull Disk disk, @Nonnull AttachmentIndex attachments) throws InternalException, CloudException{
         Volume volume = new Volume();
         volume.setProviderVolumeId(disk.getName());
         volume.setName(disk.getName());
@@ -357,34 +887,88 @@ public class DiskSupport extends AbstractVolumeSupport {
         DateTime dt = DateTime.parse(disk.getCreationTimestamp(), fmt);
         volume.setCreationTimestamp(dt.toDate().getTime());
         volume.setProviderDataCenterId(disk.getZone().substring(disk.getZone().lastIndexOf("/") + 1));
-        volume.setCurrentState((disk.getStatus().equals("DONE") || disk.getStatus().equals("READY")) ? VolumeState.AVAILABLE : VolumeState.PENDING);
+        volumeZones.put(provider, disk.getName(), volume.getProviderDataCenterId());
+        volume.setCurrentState(toVolumeState(disk.getStatus()));
         volume.setType(VolumeType.HDD);
         volume.setFormat(VolumeFormat.BLOCK);
         volume.setSize(new Storage<Gigabyte>(disk.getSizeGb(), Storage.GIGABYTE));
         if(disk.getSourceSnapshotId() != null && !disk.getSourceSnapshotId().equals(""))volume.setProviderSnapshotId(disk.getSourceSnapshotId());
         volume.setTag("contentLink", disk.getSelfLink());
 
-        //In order to list volumes with the attached VM, VMs must be listed. Doing it for now but, ick!
-        Compute gce = provider.getGoogleCompute();
-        try{
-            //We only care about instances in the same zone as the disk
-            InstanceList list = gce.instances().list(provider.getContext().getAccountNumber(), disk.getZone().substring(disk.getZone().lastIndexOf("/") + 1)).execute();
-            if(list.getItems() != null){
-                for(Instance instance : list.getItems()){
-                    for(AttachedDisk attachedDisk : instance.getDisks()){
-                        if(attachedDisk.getSource().equals(disk.getSelfLink())){
-                            volume.setDeviceId(attachedDisk.getDeviceName());
-                            volume.setProviderVirtualMachineId(instance.getName());
-                            break;
-                        }
-                    }
+        AttachedDisk attachment = attachments.get(disk.getSelfLink());
+        if(attachment != null){
+            volume.setDeviceId(attachment.getDeviceName());
+            volume.setProviderVirtualMachineId(attachments.getInstanceName(disk.getSelfLink()));
+        }
+        return volume;
+    }
+
+    /**
+     * The instance and device name every disk of some zones is attached as, built on first use from one listing of
+     * the instances in those zones, so that converting the disks of a listing needs no further API calls.
+     */
+    private class AttachmentIndex {
+        private final Compute            gce;
+        private final String             project;
+        private final Collection<String> zones;
+
+        // guarded by this, keyed by disk self link
+        private Map<String,AttachedDisk> attachments;
+        private Map<String,String>       instances;
+
+        private AttachmentIndex(@Nonnull Compute gce, @Nonnull String project, @Nonnull Collection<String> zones) {
+            this.gce = gce;
+            this.project = project;
+            this.zones = zones;
+        }
+
+        private synchronized @Nullable AttachedDisk get(@Nonnull String selfLink) throws CloudException, InternalException {
+            if(attachments == null) load();
+            return attachments.get(selfLink);
+        }
+
+        private synchronized @Nullable String getInstanceName(@Nonnull String selfLink) {
+            return (instances == null ? null : instances.get(selfLink));
+        }
+
+        private void load() throws CloudException, InternalException {
+            Map<String,AttachedDisk> byDisk = new HashMap<String, AttachedDisk>();
+            Map<String,String> byInstance = new HashMap<String, String>();
+            List<Instance> list = ZonalListing.fetchAll(provider, "Volume.listAttachments", zones, new ZonalListing.ZoneFetcher<InstanceList, Instance>() {
+                public InstanceList fetch(@Nonnull String zone, String pageToken) throws IOException {
+                    return gce.instances().list(project, zone).setMaxResults(PagedIterable.PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forList(provider, ATTACHMENT_FIELDS)).execute();
+                }
+
+                public String getNextPageToken(@Nonnull InstanceList page) {
+                    return page.getNextPageToken();
+                }
+
+                public Collection<Instance> getItems(@Nonnull InstanceList page) {
+                    return page.getItems();
+                }
+            });
+            for(Instance instance : list){
+                if(instance.getDisks() == null) continue;
+                for(AttachedDisk attachedDisk : instance.getDisks()){
+                    if(attachedDisk.getSource() == null) continue;
+                    byDisk.put(attachedDisk.getSource(), attachedDisk);
+                    byInstance.put(attachedDisk.getSource(), instance.getName());
                 }
             }
+            attachments = byDisk;
+            instances = byInstance;
         }
-        catch(IOException ex){
-            logger.error(ex.getMessage());
-            return null;
-        }
-        return volume;
+    }
+
+    /**
+     * Converts a disk read with only {@link #STATUS_FIELDS}, recording its zone on the way.
+     */
+    private @Nonnull ResourceStatus toStatus(@Nonnull Disk disk){
+        volumeZones.put(provider, disk.getName(), disk.getZone());
+        return new ResourceStatus(disk.getName(), toVolumeState(disk.getStatus()));
+    }
+
+    private @Nonnull VolumeState toVolumeState(@Nonnull String status){
+        return (status.equals("DONE") || status.equals("READY")) ? VolumeState.AVAILABLE : VolumeState.PENDING;
     }
 }
@@ -25,6 +25,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.services.compute.Compute;
@@ -35,9 +36,15 @@ import org.apache.log4j.Logger;
 import org.dasein.cloud.*;
 import org.dasein.cloud.compute.*;
 import org.dasein.cloud.google.Google;
+import org.dasein.cloud.google.GoogleCircuitBreaker;
 import org.dasein.cloud.google.GoogleException;
+import org.dasein.cloud.google.GoogleFields;
+import org.dasein.cloud.google.GoogleHedger;
 import org.dasein.cloud.google.GoogleMethod;
 import org.dasein.cloud.google.GoogleOperationType;
+import org.dasein.cloud.google.LruCache;
+import org.dasein.cloud.google.RequestCoalescer;
+import org.dasein.cloud.google.PagedIterable;
 import org.dasein.cloud.google.capabilities.GCEImageCapabilities;
 import org.dasein.cloud.util.APITrace;
 
@@ -45,6 +52,47 @@ public class ImageSupport extends AbstractImageSupport {
 	private Google provider;
 	static private final Logger logger = Google.getLogger(ImageSupport.class);
 
+    /**
+     * The image fields read by {@link #toMachineImage(Image)}.
+     */
+    static private final String IMAGE_FIELDS = "name,description,status,selfLink,deprecated/state";
+
+    /**
+     * Shares concurrent lookups of the same image.
+     */
+    static private final RequestCoalescer<Image> imageLookups = new RequestCoalescer<Image>("getImage");
+
+    static public @Nonnull RequestCoalescer<Image> getLookupCoalescer() {
+        return imageLookups;
+    }
+
+    /**
+     * The custom property holding how long in minutes an image may be served from {@link #imageCache}.
+     */
+    static public final String CACHE_MINUTES = "google.image.cacheMinutes";
+
+    static private final long DEFAULT_CACHE_MINUTES = 60L;
+
+    /**
+     * Images fetched by {@link #getImage(String)}, by account and image ID. Only ready images are cached: their content
+     * never changes, so the entries can live for a long time and launching many instances from one image fetches it
+     * once. The Google model is cached rather than the converted image so every caller gets an image of its own.
+     */
+    static private final LruCache<Image> imageCache = new LruCache<Image>("images", 1000);
+
+    static public @Nonnull LruCache<Image> getImageCache() {
+        return imageCache;
+    }
+
+    /**
+     * The images of the public image projects, shared by every account since their content does not depend on it.
+     */
+    static private final PublicImageCatalog publicCatalog = new PublicImageCatalog("public images");
+
+    static public @Nonnull PublicImageCatalog getPublicCatalog() {
+        return publicCatalog;
+    }
+
     private enum ImageProject{
         DEBIAN(Platform.DEBIAN, "debian-cloud"),
         CENT_OS(Platform.CENT_OS, "centos-cloud"),
@@ -107,27 +155,74 @@ public class ImageSupport extends AbstractImageSupport {
     }
 
 	@Override
-	public MachineImage getImage(@Nonnull String providerImageId) throws CloudException, InternalException {
+	public MachineImage getImage(@Nonnull final String providerImageId) throws CloudException, InternalException {
+        Image image = imageCache.get(getCacheKey(providerImageId), getCacheTtl());
+
+        if( image == null ) {
+            image = imageLookups.get(provider, providerImageId, new RequestCoalescer.Loader<Image>() {
+                public Image load() throws CloudException, InternalException {
+                    return loadImage(providerImageId);
+                }
+            });
+        }
+        // every caller gets an image of its own, converted from the cached or shared one
+        return (image == null ? null : toMachineImage(image));
+    }
+
+    private @Nonnull String getCacheKey(@Nonnull String providerImageId) {
+        ProviderContext ctx = provider.getContext();
+
+        return (ctx == null ? "" : ctx.getAccountNumber()) + ":" + providerImageId;
+    }
+
+    private long getCacheTtl() {
+        ProviderContext ctx = provider.getContext();
+        Properties props = (ctx == null ? null : ctx.getCustomProperties());
+        String value = (props == null ? null : props.getProperty(CACHE_MINUTES));
+
+        if(value != null){
+            try{
+                long minutes = Long.parseLong(value.trim());
+                if(minutes >= 0) return minutes * 60000L;
+            }
+            catch(NumberFormatException ignore){
+                // fall through to the default
+            }
+            logger.warn("Ignoring invalid value for " + CACHE_MINUTES + ": " + value);
+        }
+        return DEFAULT_CACHE_MINUTES * 60000L;
+    }
+
+	private Image loadImage(@Nonnull String providerImageId) throws CloudException, InternalException {
         APITrace.begin(provider, "Image.getImage");
         try{
             ProviderContext ctx = provider.getContext();
             if( ctx == null ) {
                 throw new CloudException("No context has been established for this request");
             }
-            Compute gce = provider.getGoogleCompute();
+            final Compute gce = provider.getGoogleCompute();
             Image image;
             try{
-                String[] parts = providerImageId.split("_");
-                image = gce.images().get(parts[0], parts[1]).execute();
+                final String[] parts = providerImageId.split("_");
+                image = GoogleHedger.execute(provider, new GoogleHedger.RequestFactory<Image>() {
+                    public @Nonnull Compute.Images.Get newRequest() throws IOException {
+                        return gce.images().get(parts[0], parts[1]).setFields(GoogleFields.forResource(provider, IMAGE_FIELDS));
+                    }
+                });
 		    } catch (IOException ex) {
 				logger.error("An error occurred while getting image: " + providerImageId + ": " + ex.getMessage());
+				GoogleCircuitBreaker.rethrow(ex);
 				if (ex.getClass() == GoogleJsonResponseException.class) {
 					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
 				} else
 					throw new CloudException(ex.getMessage());
 			}
-            return toMachineImage(image);
+            MachineImage machineImage = toMachineImage(image);
+            if(machineImage != null && machineImage.getCurrentState() == MachineImageState.ACTIVE){
+                imageCache.put(getCacheKey(providerImageId), image);
+            }
+            return image;
         }
         finally {
             APITrace.end();
@@ -168,7 +263,7 @@ public class ImageSupport extends AbstractImageSupport {
 	public @Nonnull Iterable<ResourceStatus> listImageStatus(@Nonnull ImageClass cls) throws CloudException, InternalException {
 		List<ResourceStatus> status = new ArrayList<ResourceStatus>();
 
-		Iterable<MachineImage> images = listImages(cls);
+		List<MachineImage> images = PagedIterable.toList(listImages(cls));
 		for (MachineImage image : images) {
 			MachineImageState state = image.getCurrentState();
 			ResourceStatus resStatus = new ResourceStatus(image.getProviderMachineImageId(), state);
@@ -177,14 +272,29 @@ public class ImageSupport extends AbstractImageSupport {
 		return status;
 	}
 
+    /**
+     * Lists the images of the project a page at a time. Pages after the first are fetched while iterating, so a
+     * failure to fetch one is thrown from the iterator as a {@link PagedIterable.PagingException}.
+     */
 	@Override
 	public @Nonnull Iterable<MachineImage> listImages(ImageFilterOptions options) throws CloudException, InternalException {
-        APITrace.begin(getProvider(), "Image.listImages");
-        try{
-            ArrayList<MachineImage> images = new ArrayList<MachineImage>();
-            try{
-                Compute gce = provider.getGoogleCompute();
-                ImageList imgList = gce.images().list(provider.getContext().getAccountNumber()).execute();
+        final Compute gce = provider.getGoogleCompute();
+        final String project = provider.getContext().getAccountNumber();
+
+        return new PagedIterable<ImageList, MachineImage>(provider, "Image.listImages") {
+            @Override
+            protected ImageList fetch(String pageToken) throws IOException {
+                return gce.images().list(project).setMaxResults(PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forList(provider, IMAGE_FIELDS)).execute();
+            }
+
+            @Override
+            protected String getNextPageToken(@Nonnull ImageList page) {
+                return page.getNextPageToken();
+            }
+
+            @Override
+            protected @Nonnull Iterable<MachineImage> getItems(@Nonnull ImageList imgList) {
+                ArrayList<MachineImage> images = new ArrayList<MachineImage>();
                 //TODO: Add filter options
                 if(imgList.getItems() != null){
                     for(Image img : imgList.getItems()){
@@ -192,19 +302,14 @@ public class ImageSupport extends AbstractImageSupport {
                         if(image != null)images.add(image);
                     }
                 }
-		    } catch (IOException ex) {
-				logger.error("An error occurred while listing images: " + ex.getMessage());
-				if (ex.getClass() == GoogleJsonResponseException.class) {
-					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-				} else
-					throw new CloudException(ex.getMessage());
-			}
-            return images;
-        }
-        finally {
-            APITrace.end();
-        }
+                return images;
+            }
+
+            @Override
+            protected @Nonnull String getErrorMessage() {
+                return "An error occurred while listing images";
+            }
+        }.load();
     }
 
 	@Override
@@ -243,9 +348,12 @@ public class ImageSupport extends AbstractImageSupport {
 
                 GoogleMethod method = new GoogleMethod(provider);
                 method.getOperationComplete(provider.getContext(), job, GoogleOperationType.GLOBAL_OPERATION, "", "");
+                imageLookups.invalidate(provider, providerImageId);
+                imageCache.invalidate(getCacheKey(providerImageId));
             }
 	    } catch (IOException ex) {
 			logger.error(ex.getMessage());
+			GoogleCircuitBreaker.rethrow(ex);
 			if (ex.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -276,9 +384,11 @@ public class ImageSupport extends AbstractImageSupport {
             ArrayList<MachineImage> results = new ArrayList<MachineImage>();
             Collection<MachineImage> images = new ArrayList<MachineImage>();
             if(accountNumber == null){
-                images.addAll((Collection<MachineImage>)searchPublicImages(ImageFilterOptions.getInstance()));
+                for(MachineImage image : searchPublicImages(ImageFilterOptions.getInstance())){
+                    images.add(image);
+                }
             }
-            images.addAll((Collection<MachineImage>)listImages(ImageFilterOptions.getInstance()));
+            images.addAll(PagedIterable.toList(listImages(ImageFilterOptions.getInstance())));
 
             for( MachineImage image : images ) {
                 if(image != null){
@@ -326,44 +436,28 @@ public class ImageSupport extends AbstractImageSupport {
     public @Nonnull Iterable<MachineImage> searchPublicImages(@Nonnull ImageFilterOptions options) throws InternalException, CloudException{
         APITrace.begin(getProvider(), "Image.searchPublicImages");
         try{
-            ArrayList<MachineImage> images = new ArrayList<MachineImage>();
-            try{
-                Compute gce = provider.getGoogleCompute();
-                Platform platform = options.getPlatform();
-                ImageList imgList;
-
-                if(platform != null){
-                    String imageProject = ImageProject.getImageProject(platform);
-                    imgList = gce.images().list(imageProject).execute();
-                    if(imgList != null && imgList.getItems() != null){
-                        for(Image img : imgList.getItems()){
-                            MachineImage image = toMachineImage(img);
-                            if(image != null)images.add(image);
-                        }
-                    }
-                }
-                else{
-                    for(ImageProject imageProject : ImageProject.values()){
-                        try{
-                            imgList = gce.images().list(imageProject.projectName).execute();
-                            if(imgList != null && imgList.getItems() != null){
-                                for(Image img : imgList.getItems()){
-                                    MachineImage image = toMachineImage(img);
-                                    if(image != null)images.add(image);
-                                }
-                            }
-                        }
-                        catch(IOException ex){/*Don't really care, likely means the image project doesn't exist*/}
-                    }
+            final Compute gce = provider.getGoogleCompute();
+            Platform platform = options.getPlatform();
+            String imageProject = (platform == null ? null : ImageProject.getImageProject(platform));
+            List<String> projects = new ArrayList<String>();
+
+            for(ImageProject project : ImageProject.values()){
+                projects.add(project.projectName);
+            }
+            List<Image> catalog = publicCatalog.getImages(provider, projects, new PublicImageCatalog.ProjectLoader() {
+                public @Nonnull List<Image> load(@Nonnull String project) throws CloudException, InternalException {
+                    return listProjectImages(gce, project);
                 }
-    	    } catch (IOException ex) {
-				logger.error("An error occurred while listing images: " + ex.getMessage());
-    			if (ex.getClass() == GoogleJsonResponseException.class) {
-    				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-    				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-    			} else
-    				throw new CloudException(ex.getMessage());
-    		}
+            });
+            ArrayList<MachineImage> images = new ArrayList<MachineImage>();
+
+            // the catalog is shared, so each search converts its own copy of the images
+            for(Image img : catalog){
+                MachineImage image = toMachineImage(img);
+                if(image == null) continue;
+                if(imageProject != null && !imageProject.equals(image.getTag("project"))) continue;
+                if(options.matches(image)) images.add(image);
+            }
             return images;
         }
         finally {
@@ -371,6 +465,37 @@ public class ImageSupport extends AbstractImageSupport {
         }
     }
 
+    private @Nonnull List<Image> listProjectImages(@Nonnull Compute gce, @Nonnull String project) throws CloudException, InternalException {
+        List<Image> images = new ArrayList<Image>();
+        String pageToken = null;
+
+        do{
+            ImageList imgList;
+
+            APITrace.begin(provider, "Image.listPublicImages");
+            try{
+                imgList = gce.images().list(project).setMaxResults(PagedIterable.PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forList(provider, IMAGE_FIELDS)).execute();
+            }
+            catch(IOException ex){
+                if(ex instanceof GoogleJsonResponseException && ((GoogleJsonResponseException)ex).getStatusCode() == 404){
+                    return images; // the image project does not exist
+                }
+                throw PagedIterable.toCloudException(ex, "An error occurred while listing images in " + project);
+            }
+            finally {
+                APITrace.end();
+            }
+            if(imgList == null){
+                break;
+            }
+            if(imgList.getItems() != null){
+                images.addAll(imgList.getItems());
+            }
+            pageToken = imgList.getNextPageToken();
+        } while(pageToken != null);
+        return images;
+    }
+
 	@Override
 	public void updateTags(@Nonnull String imageId, @Nonnull Tag... tags) throws CloudException, InternalException {
 		throw new OperationNotSupportedException ("Google image does not have meta data");
@@ -391,7 +516,7 @@ public class ImageSupport extends AbstractImageSupport {
 		throw new OperationNotSupportedException ("Google image does not have meta data");
 	}
 
-    private MachineImage toMachineImage(Image img){
+    private @Nullable MachineImage toMachineImage(Image img){
         if(img.getDeprecated() != null && (img.getDeprecated().getState().equals("DELETED") || img.getDeprecated().getState().equals("DEPRECATED"))){
             return null;
         }
@@ -417,7 +542,6 @@ public class ImageSupport extends AbstractImageSupport {
         MachineImage image = MachineImage.getImageInstance(owner, "", project + "_" + img.getName(), ImageClass.MACHINE, state, img.getName(), img.getDescription(), arch, platform, MachineImageFormat.RAW, VisibleScope.ACCOUNT_GLOBAL);
         image.setTag("contentLink", img.getSelfLink());
         image.setTag("project", project);
-
         return image;
     }
 }
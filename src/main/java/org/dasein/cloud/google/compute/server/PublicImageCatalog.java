@@ -0,0 +1,338 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google.compute.server;
+
+import com.google.api.services.compute.model.Image;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.google.Google;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory catalog of the images published in the public image projects. The projects are listed concurrently
+ * and the merged result is shared by every search until it is older than the refresh interval, at which point the
+ * next search starts a refresh on the catalog's threads and keeps answering from the previous catalog until it
+ * completes. Only the very first search waits for the projects to be listed.
+ * <p>The catalog holds the Google image models, which are never modified once listed, and hands them out read-only;
+ * each search converts the images it returns so no caller shares them with another.</p>
+ * <p>A project that fails to list during a refresh keeps the images it had in the previous catalog. A refresh lists
+ * the projects with the loader of the search that started it, which only has to be able to read public projects.</p>
+ * <p>The refresh interval is set with the {@link #REFRESH_MINUTES} {@link ProviderContext} custom property.</p>
+ * @version 2014.05 initial version
+ * @since 2014.05
+ */
+public class PublicImageCatalog {
+    static private final Logger logger = Google.getLogger(PublicImageCatalog.class);
+
+    static public final String REFRESH_MINUTES = "google.image.catalogRefreshMinutes";
+
+    static private final long DEFAULT_REFRESH_MINUTES = 30L;
+
+    static private final int MAX_THREADS = 8;
+
+    /**
+     * Lists the images of one public project.
+     */
+    public interface ProjectLoader {
+        /**
+         * @param project the name of the image project
+         * @return the images of the project, empty if the project does not exist
+         * @throws CloudException listing the project failed
+         * @throws InternalException listing the project failed within Dasein Cloud
+         */
+        @Nonnull List<Image> load(@Nonnull String project) throws CloudException, InternalException;
+    }
+
+    static private final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        public Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-google-image-catalog-" + count.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    static private class Snapshot {
+        private final Map<String,List<Image>> projects;
+        private final List<Image>             images;
+        private final long                    loadedAt;
+
+        private Snapshot(@Nonnull Map<String,List<Image>> projects) {
+            List<Image> all = new ArrayList<Image>();
+
+            for( List<Image> list : projects.values() ) {
+                all.addAll(list);
+            }
+            this.projects = projects;
+            this.images = Collections.unmodifiableList(all);
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+
+    private final String        name;
+    private final Object        loadLock   = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private volatile Snapshot   snapshot;
+
+    private final AtomicLong searches = new AtomicLong(0);
+    private final AtomicLong loads    = new AtomicLong(0);
+    private final AtomicLong failures = new AtomicLong(0);
+
+    /**
+     * @param name the name of the catalog, used in logging
+     */
+    public PublicImageCatalog(@Nonnull String name) {
+        this.name = name;
+    }
+
+    /**
+     * Provides the images of the catalog, listing the projects only if nothing has been listed yet.
+     * @param provider the provider issuing the list calls
+     * @param projects the names of the public image projects
+     * @param loader lists the images of one project
+     * @return the images of every project, in project order, which must not be modified
+     * @throws CloudException none of the projects could be listed
+     * @throws InternalException the caller was interrupted while waiting for the projects
+     */
+    public @Nonnull List<Image> getImages(@Nonnull final Google provider, @Nonnull final Collection<String> projects, @Nonnull final ProjectLoader loader) throws CloudException, InternalException {
+        Snapshot current = snapshot;
+
+        searches.incrementAndGet();
+        if( current == null ) {
+            synchronized( loadLock ) {
+                current = snapshot;
+                if( current == null ) {
+                    current = load(projects, loader);
+                    snapshot = current;
+                }
+            }
+        }
+        else if( System.currentTimeMillis() - current.loadedAt >= getRefreshInterval(provider.getContext()) && refreshing.compareAndSet(false, true) ) {
+            refresh(new ArrayList<String>(projects), loader, current);
+        }
+        return current.images;
+    }
+
+    /**
+     * Lists every project on the catalog's threads and publishes the new catalog once the last of them is done. No
+     * task waits on another, so a refresh cannot starve the pool it runs in.
+     */
+    private void refresh(@Nonnull final List<String> projects, @Nonnull final ProjectLoader loader, @Nonnull final Snapshot previous) {
+        final Map<String,List<Image>> loaded = new HashMap<String, List<Image>>();
+        final AtomicInteger remaining = new AtomicInteger(projects.size());
+
+        loads.incrementAndGet();
+        if( projects.isEmpty() ) {
+            publish(projects, loaded);
+            return;
+        }
+        for( final String project : projects ) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    List<Image> images = null;
+
+                    try {
+                        images = loader.load(project);
+                    }
+                    catch( Throwable e ) {
+                        failures.incrementAndGet();
+                        logger.warn("Unable to list the images of " + project + " for the " + name + " catalog: " + e.getMessage());
+                        images = previous.projects.get(project);
+                    }
+                    finally {
+                        synchronized( loaded ) {
+                            if( images != null ) {
+                                loaded.put(project, images);
+                            }
+                        }
+                        if( remaining.decrementAndGet() == 0 ) {
+                            publish(projects, loaded);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private void publish(@Nonnull List<String> projects, @Nonnull Map<String,List<Image>> loaded) {
+        Map<String,List<Image>> ordered = new LinkedHashMap<String, List<Image>>();
+
+        synchronized( loaded ) {
+            for( String project : projects ) {
+                if( loaded.containsKey(project) ) {
+                    ordered.put(project, loaded.get(project));
+                }
+            }
+        }
+        snapshot = new Snapshot(ordered);
+        refreshing.set(false);
+    }
+
+    private @Nonnull Snapshot load(@Nonnull Collection<String> projects, @Nonnull final ProjectLoader loader) throws CloudException, InternalException {
+        Map<String,Future<List<Image>>> pending = new LinkedHashMap<String, Future<List<Image>>>();
+        Map<String,List<Image>> loaded = new LinkedHashMap<String, List<Image>>();
+        Exception firstError = null;
+
+        loads.incrementAndGet();
+        for( final String project : projects ) {
+            pending.put(project, executor.submit(new Callable<List<Image>>() {
+                public List<Image> call() throws Exception {
+                    return loader.load(project);
+                }
+            }));
+        }
+        try {
+            for( Map.Entry<String,Future<List<Image>>> entry : pending.entrySet() ) {
+                String project = entry.getKey();
+
+                try {
+                    loaded.put(project, entry.getValue().get());
+                }
+                catch( ExecutionException e ) {
+                    Throwable cause = e.getCause();
+
+                    failures.incrementAndGet();
+                    logger.warn("Unable to list the images of " + project + " for the " + name + " catalog: " + cause.getMessage());
+                    if( firstError == null && cause instanceof Exception ) {
+                        firstError = (Exception)cause;
+                    }
+                }
+            }
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InternalException("Interrupted while listing the " + name + " catalog");
+        }
+        finally {
+            for( Future<List<Image>> future : pending.values() ) {
+                future.cancel(true);
+            }
+        }
+        if( loaded.isEmpty() && firstError != null ) {
+            if( firstError instanceof CloudException ) {
+                throw (CloudException)firstError;
+            }
+            if( firstError instanceof InternalException ) {
+                throw (InternalException)firstError;
+            }
+            throw new InternalException(firstError);
+        }
+        return new Snapshot(loaded);
+    }
+
+    private long getRefreshInterval(@Nullable ProviderContext ctx) {
+        Properties props = (ctx == null ? null : ctx.getCustomProperties());
+        String value = (props == null ? null : props.getProperty(REFRESH_MINUTES));
+
+        if( value != null ) {
+            try {
+                long minutes = Long.parseLong(value.trim());
+
+                if( minutes >= 0 ) {
+                    return minutes * 60000L;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // fall through to the default
+            }
+            logger.warn("Ignoring invalid value for " + REFRESH_MINUTES + ": " + value);
+        }
+        return DEFAULT_REFRESH_MINUTES * 60000L;
+    }
+
+    /**
+     * Drops the catalog so the next search lists the projects again.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * @return the number of images in the catalog, 0 if it has not been listed yet
+     */
+    public int getImageCount() {
+        Snapshot current = snapshot;
+
+        return (current == null ? 0 : current.images.size());
+    }
+
+    /**
+     * @return when the catalog was last listed, -1 if it has not been listed yet
+     */
+    public long getLoadedAt() {
+        Snapshot current = snapshot;
+
+        return (current == null ? -1L : current.loadedAt);
+    }
+
+    /**
+     * @return the number of searches answered by the catalog
+     */
+    public long getSearchCount() {
+        return searches.get();
+    }
+
+    /**
+     * @return the number of times the projects were listed
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * @return the number of project listings that failed
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return name + "[images=" + getImageCount() + ", searches=" + searches.get() + ", loads=" + loads.get() + ", failures=" + failures.get() + "]";
+    }
+}
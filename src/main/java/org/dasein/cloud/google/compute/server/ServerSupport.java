@@ -21,10 +21,18 @@ package org.dasein.cloud.google.compute.server;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.google.api.services.compute.Compute;
 import com.google.api.services.compute.model.*;
@@ -36,8 +44,20 @@ import org.dasein.cloud.compute.*;
 import org.dasein.cloud.google.Google;
 import org.dasein.cloud.google.GoogleMethod;
 import org.dasein.cloud.google.GoogleOperationType;
+import org.dasein.cloud.google.RequestCoalescer;
+import org.dasein.cloud.google.GoogleBatch;
+import org.dasein.cloud.google.GoogleCircuitBreaker;
 import org.dasein.cloud.google.GoogleException;
+import org.dasein.cloud.google.GoogleFields;
+import org.dasein.cloud.google.GoogleHedger;
+import org.dasein.cloud.google.GoogleRateLimiter;
+import org.dasein.cloud.google.GoogleTopology;
+import org.dasein.cloud.google.PagedIterable;
+import org.dasein.cloud.google.ResourceVisitor;
+import org.dasein.cloud.google.ZonalListing;
+import org.dasein.cloud.google.ZoneLocator;
 import org.dasein.cloud.google.capabilities.GCEInstanceCapabilities;
+import org.dasein.cloud.google.network.IPAddressSupport;
 import org.dasein.cloud.network.RawAddress;
 import org.dasein.cloud.util.APITrace;
 import org.dasein.cloud.util.Cache;
@@ -57,6 +77,71 @@ public class ServerSupport extends AbstractVMSupport {
 	private Google provider;
 	static private final Logger logger = Google.getLogger(ServerSupport.class);
 
+    /**
+     * The instance fields read by {@link #toVirtualMachine(Instance, Map, IPAddressSupport.AddressIndex)}.
+     */
+    static private final String INSTANCE_FIELDS = "name,description,status,zone,creationTimestamp,machineType,selfLink,disks(boot,source),networkInterfaces(network,networkIP,accessConfigs/natIP)";
+    /**
+     * The instance fields read when only the state of each VM is listed.
+     */
+    static private final String STATUS_FIELDS = "name,status,zone";
+    /**
+     * The disk fields read from the boot disk of an instance.
+     */
+    static private final String BOOT_DISK_FIELDS = "sourceImage";
+    /**
+     * The disk fields read when indexing every disk of the project by self link.
+     */
+    static private final String DISK_INDEX_FIELDS = "selfLink,sourceImage";
+
+    /**
+     * Runs the API calls a VM listing makes alongside the instance list.
+     */
+    static private final ExecutorService listExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        public Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-google-vm-list-" + count.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * What a single VM lookup reads from the API, shared by concurrent lookups of the same VM and converted for each
+     * caller.
+     */
+    static public class InstanceLookup {
+        private final Instance                      instance;
+        private final Map<String,Disk>              bootDisks;
+        private final IPAddressSupport.AddressIndex addresses;
+
+        private InstanceLookup(@Nonnull Instance instance, @Nonnull Map<String,Disk> bootDisks, @Nullable IPAddressSupport.AddressIndex addresses) {
+            this.instance = instance;
+            this.bootDisks = bootDisks;
+            this.addresses = addresses;
+        }
+    }
+
+    /**
+     * Shares concurrent lookups of the same VM.
+     */
+    static private final RequestCoalescer<InstanceLookup> vmLookups = new RequestCoalescer<InstanceLookup>("getVirtualMachine");
+
+    static public @Nonnull RequestCoalescer<InstanceLookup> getLookupCoalescer() {
+        return vmLookups;
+    }
+
+    /**
+     * Remembers the zone of each VM seen, so single-VM operations can go straight to its zone.
+     */
+    static private final ZoneLocator vmZones = new ZoneLocator("instances");
+
+    static public @Nonnull ZoneLocator getZoneLocator() {
+        return vmZones;
+    }
+
 	public ServerSupport(Google provider){
         super(provider);
         this.provider = provider;
@@ -99,22 +184,26 @@ public class ServerSupport extends AbstractVMSupport {
 	@Override
 	public @Nonnull String getConsoleOutput(@Nonnull String vmId) throws InternalException, CloudException {
 		try{
-            for(VirtualMachine vm : listVirtualMachines()){
-                if(vm.getProviderVirtualMachineId().equalsIgnoreCase(vmId)){
-                    Compute gce = provider.getGoogleCompute();
-                    SerialPortOutput output = gce.instances().getSerialPortOutput(provider.getContext().getAccountNumber(), vm.getProviderDataCenterId(), vmId).execute();
-                    return output.getContents();
-                }
+            Compute gce = provider.getGoogleCompute();
+            String zone = locateZone(vmId);
+            SerialPortOutput output;
+            try{
+                output = gce.instances().getSerialPortOutput(provider.getContext().getAccountNumber(), zone, vmId).execute();
+            } catch (IOException ex) {
+                String found = relocate(ex, vmId, zone);
+                if(found == null) throw ex;
+                output = gce.instances().getSerialPortOutput(provider.getContext().getAccountNumber(), found, vmId).execute();
             }
+            return output.getContents();
 		} catch (IOException ex) {
 			logger.error(ex.getMessage());
+			GoogleCircuitBreaker.rethrow(ex);
 			if (ex.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
 			} else
 				throw new CloudException("An error occurred when getting console output for VM: " + vmId + ": " + ex.getMessage());
 		}
-        throw new InternalException("The Virtual Machine: " + vmId + " could not be found.");
 	}
 
 	@Override
@@ -129,6 +218,7 @@ public class ServerSupport extends AbstractVMSupport {
             throw new CloudException("The product: " + productId + " could not be found.");
 		} catch (IOException ex) {
 			logger.error(ex.getMessage());
+			GoogleCircuitBreaker.rethrow(ex);
 			if (ex.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -138,24 +228,56 @@ public class ServerSupport extends AbstractVMSupport {
 	}
 
 	@Override
-	public VirtualMachine getVirtualMachine(@Nonnull String vmId)throws InternalException, CloudException {
+	public VirtualMachine getVirtualMachine(@Nonnull final String vmId)throws InternalException, CloudException {
+        InstanceLookup lookup = vmLookups.get(provider, vmId, new RequestCoalescer.Loader<InstanceLookup>() {
+            public InstanceLookup load() throws CloudException, InternalException {
+                return loadVirtualMachine(vmId);
+            }
+        });
+
+        // every caller gets a VM of its own, converted from the shared lookup
+        return (lookup == null ? null : toVirtualMachine(lookup.instance, lookup.bootDisks, lookup.addresses));
+    }
+
+	private InstanceLookup loadVirtualMachine(@Nonnull final String vmId)throws InternalException, CloudException {
         APITrace.begin(getProvider(), "getVirtualMachine");
         try{
             try{
-                Compute gce = provider.getGoogleCompute();
-                InstanceAggregatedList instances = gce.instances().aggregatedList(provider.getContext().getAccountNumber()).setFilter("name eq " + vmId).execute();
+                final Compute gce = provider.getGoogleCompute();
+                final String project = provider.getContext().getAccountNumber();
+                final String zone = vmZones.getZone(provider, vmId);
+                if(zone != null){
+                    try{
+                        Instance instance = GoogleHedger.execute(provider, new GoogleHedger.RequestFactory<Instance>() {
+                            public @Nonnull Compute.Instances.Get newRequest() throws IOException {
+                                return gce.instances().get(project, zone, vmId).setFields(GoogleFields.forResource(provider, INSTANCE_FIELDS));
+                            }
+                        });
+                        return new InstanceLookup(instance, getBootDisks(Collections.singletonList(instance)), getAddressIndex(instance));
+                    } catch (GoogleJsonResponseException ex) {
+                        if(ex.getStatusCode() != 404) throw ex;
+                        // deleted or recreated elsewhere since it was last seen, search the whole project
+                        vmZones.invalidate(provider, vmId);
+                    }
+                }
+                InstanceAggregatedList instances = GoogleHedger.execute(provider, new GoogleHedger.RequestFactory<InstanceAggregatedList>() {
+                    public @Nonnull Compute.Instances.AggregatedList newRequest() throws IOException {
+                        return gce.instances().aggregatedList(project).setFilter("name eq " + vmId).setFields(GoogleFields.forAggregatedList(provider, "instances", INSTANCE_FIELDS));
+                    }
+                });
                 Iterator<String> it = instances.getItems().keySet().iterator();
                 while(it.hasNext()){
-                    String zone = it.next();
-                    if(instances.getItems() != null && instances.getItems().get(zone) != null && instances.getItems().get(zone).getInstances() != null){
-                        for(Instance instance : instances.getItems().get(zone).getInstances()){
-                            if(instance.getName().equals(vmId))return toVirtualMachine(instance);
+                    String scope = it.next();
+                    if(instances.getItems() != null && instances.getItems().get(scope) != null && instances.getItems().get(scope).getInstances() != null){
+                        for(Instance instance : instances.getItems().get(scope).getInstances()){
+                            if(instance.getName().equals(vmId))return new InstanceLookup(instance, getBootDisks(Collections.singletonList(instance)), getAddressIndex(instance));
                         }
                     }
                 }
                 throw new CloudException("The Virtual Machine: " + vmId + " could not be found.");
             } catch (IOException ex) {
 				logger.error(ex.getMessage());
+				GoogleCircuitBreaker.rethrow(ex);
 				if (ex.getClass() == GoogleJsonResponseException.class) {
 					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -271,6 +393,7 @@ public class ServerSupport extends AbstractVMSupport {
                 vmId = method.getOperationTarget(provider.getContext(), job, GoogleOperationType.ZONE_OPERATION, "", withLaunchOptions.getDataCenterId(), false);
 	        } catch (IOException ex) {
 				logger.error(ex.getMessage());
+				GoogleCircuitBreaker.rethrow(ex);
 				if (ex.getClass() == GoogleJsonResponseException.class) {
 					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -278,6 +401,7 @@ public class ServerSupport extends AbstractVMSupport {
 					throw new CloudException("An error occurred launching the instance: " + ex.getMessage());
 			}
             if(!vmId.equals("")){
+                vmZones.put(provider, vmId, withLaunchOptions.getDataCenterId());
                 return getVirtualMachine(vmId);
             }
             else throw new CloudException("Could not find the instance: " + withLaunchOptions.getFriendlyName() + " after launch.");
@@ -311,24 +435,52 @@ public class ServerSupport extends AbstractVMSupport {
         if(products == null){
             try{
                 products = new ArrayList<VirtualMachineProduct>();
-                Compute gce = provider.getGoogleCompute();
-                MachineTypeAggregatedList machineTypes = gce.machineTypes().aggregatedList(provider.getContext().getAccountNumber()).execute();
-                Iterator it = machineTypes.getItems().keySet().iterator();
-                while(it.hasNext()){
-                	Object dataCenterId = it.next();
-                	if ((preferredDataCenterId == null) || (dataCenterId.toString().endsWith(preferredDataCenterId)))
-                	   for(MachineType type : machineTypes.getItems().get(dataCenterId).getMachineTypes()){
-                	       //TODO: Filter out deprecated states somehow
-                	       if (provider.getContext().getRegionId().equals(provider.getDataCenterServices().getDataCenter(type.getZone()).getRegionId())) {
-                	           VirtualMachineProduct product = toProduct(type);
-                	           products.add(product);
-                	       }
-                	   }
+                final Compute gce = provider.getGoogleCompute();
+                final String project = provider.getContext().getAccountNumber();
+                if(ZonalListing.choose(provider, "machineTypes") == ZonalListing.Strategy.ZONAL){
+                    ArrayList<String> zones = new ArrayList<String>();
+                    for(String zone : GoogleTopology.getInstance(provider).getZonesInRegion(provider.getContext().getRegionId())){
+                        if(preferredDataCenterId == null || zone.endsWith(preferredDataCenterId)) zones.add(zone);
+                    }
+                    ZonalListing.ZoneFetcher<MachineTypeList, MachineType> fetcher = new ZonalListing.ZoneFetcher<MachineTypeList, MachineType>() {
+                        public MachineTypeList fetch(@Nonnull String zone, String pageToken) throws IOException {
+                            return gce.machineTypes().list(project, zone).setPageToken(pageToken).execute();
+                        }
+
+                        public String getNextPageToken(@Nonnull MachineTypeList page) {
+                            return page.getNextPageToken();
+                        }
+
+                        public Collection<MachineType> getItems(@Nonnull MachineTypeList page) {
+                            return page.getItems();
+                        }
+                    };
+                    // a listing narrowed to one zone says nothing about the share of the region
+                    if(preferredDataCenterId == null) addProducts(products, ZonalListing.list(provider, "machineTypes", "listProducts", zones, fetcher));
+                    else addProducts(products, ZonalListing.fetchAll(provider, "listProducts", zones, fetcher));
+                }
+                else{
+                    // a listing narrowed to one zone says nothing about the share of the region
+                    ZonalListing.Sample sample = (preferredDataCenterId == null ? ZonalListing.startSample(provider, "machineTypes") : null);
+                    MachineTypeAggregatedList machineTypes = gce.machineTypes().aggregatedList(project).execute();
+                    int total = 0;
+                    int inRegion = 0;
+                    for(Map.Entry<String,MachineTypesScopedList> entry : machineTypes.getItems().entrySet()){
+                	    if(entry.getValue() == null || entry.getValue().getMachineTypes() == null) continue;
+                	    total += entry.getValue().getMachineTypes().size();
+                	    if ((preferredDataCenterId == null) || (entry.getKey().endsWith(preferredDataCenterId)))
+                	        inRegion += addProducts(products, entry.getValue().getMachineTypes());
+                    }
+                    if(sample != null){
+                        sample.add(total, inRegion);
+                        sample.complete();
+                    }
                 }
                 cache.put(provider.getContext(), products);
                 return products;
 	        } catch (IOException ex) {
 				logger.error(ex.getMessage());
+				GoogleCircuitBreaker.rethrow(ex);
 				if (ex.getClass() == GoogleJsonResponseException.class) {
 					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -339,40 +491,248 @@ public class ServerSupport extends AbstractVMSupport {
         else return products;
 	}
 
+    /**
+     * Lists the VMs of the context region. With the aggregated listing, pages after the first are fetched while
+     * iterating, so a failure to fetch one is thrown from the iterator as a {@link PagedIterable.PagingException}.
+     * Use {@link #visitVirtualMachines(VMFilterOptions, ResourceVisitor)} to have such failures thrown as checked
+     * exceptions.
+     */
 	@Override
-	public @Nonnull Iterable<VirtualMachine> listVirtualMachines(VMFilterOptions options)throws InternalException, CloudException {
-        APITrace.begin(getProvider(), "listVirtualMachines");
-        try{
-            try{
-                ArrayList<VirtualMachine> vms = new ArrayList<VirtualMachine>();
-                Compute gce = provider.getGoogleCompute();
-                InstanceAggregatedList instances = gce.instances().aggregatedList(provider.getContext().getAccountNumber()).execute();
+	public @Nonnull Iterable<VirtualMachine> listVirtualMachines(final VMFilterOptions options)throws InternalException, CloudException {
+        final Compute gce = provider.getGoogleCompute();
+        final String project = provider.getContext().getAccountNumber();
+        final String regionId = getContext().getRegionId();
+
+        if(ZonalListing.choose(provider, "instances") == ZonalListing.Strategy.ZONAL){
+            List<Instance> inRegion = ZonalListing.list(provider, "instances", "listVirtualMachines", GoogleTopology.getInstance(provider).getZonesInRegion(regionId), getInstanceFetcher(gce, project, INSTANCE_FIELDS));
+            if(inRegion.isEmpty()) return new ArrayList<VirtualMachine>();
+            // the instances of the region are already known, so their boot disks are batched instead of indexed
+            return toVirtualMachines(inRegion, options, getBootDisks(inRegion), provider.getNetworkServices().getIpAddressSupport().getAddressIndex(regionId));
+        }
+        final ListingIndexes indexes = new ListingIndexes(gce, project, regionId);
+        final ZonalListing.Sample sample = ZonalListing.startSample(provider, "instances");
+
+        return new PagedIterable<InstanceAggregatedList, VirtualMachine>(provider, "listVirtualMachines") {
+            @Override
+            protected InstanceAggregatedList fetch(String pageToken) throws IOException {
+                return GoogleHedger.execute(provider, getAggregatedInstancesRequest(gce, project, pageToken));
+            }
+
+            @Override
+            protected String getNextPageToken(@Nonnull InstanceAggregatedList page) {
+                return page.getNextPageToken();
+            }
+
+            @Override
+            protected @Nonnull Iterable<VirtualMachine> getItems(@Nonnull InstanceAggregatedList instances) throws CloudException, InternalException {
+                if(instances.getItems() == null) return new ArrayList<VirtualMachine>();
+                ArrayList<Instance> inRegion = new ArrayList<Instance>();
+                int total = 0;
                 Iterator<String> it = instances.getItems().keySet().iterator();
                 while(it.hasNext()){
                     String zone = it.next();
-                    if(getContext().getRegionId().equals(provider.getDataCenterServices().getRegionFromZone(zone))){
-                        if(instances.getItems() != null && instances.getItems().get(zone) != null && instances.getItems().get(zone).getInstances() != null){
-                            for(Instance instance : instances.getItems().get(zone).getInstances()){
-                                VirtualMachine vm = toVirtualMachine(instance);
-                                if(options == null || options.matches(vm))vms.add(vm);
-                            }
+                    if(instances.getItems().get(zone) != null && instances.getItems().get(zone).getInstances() != null){
+                        total += instances.getItems().get(zone).getInstances().size();
+                        if(regionId.equals(provider.getDataCenterServices().getRegionFromZone(zone))){
+                            inRegion.addAll(instances.getItems().get(zone).getInstances());
                         }
                     }
                 }
-                return vms;
-	        } catch (IOException ex) {
-				logger.error(ex.getMessage());
-				if (ex.getClass() == GoogleJsonResponseException.class) {
-					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-				} else
-					throw new CloudException("An error occurred while listing Virtual Machines.");
-			}
+                sample.add(total, inRegion.size());
+                if(isLastPage(instances)) sample.complete();
+                return indexes.toVirtualMachines(inRegion, options);
+            }
+
+            @Override
+            protected @Nonnull String getErrorMessage() {
+                return "An error occurred while listing Virtual Machines";
+            }
+        }.load();
+	}
+
+    /**
+     * Streams the VMs of the context region to a visitor, converting and handing out one page of instances at a time
+     * so that memory use is bounded by the page size rather than by the size of the inventory. Unlike
+     * {@link #listVirtualMachines(VMFilterOptions)}, boot disks are looked up per page instead of joined from an index
+     * of every disk in the region.
+     * @param options the filter the VMs must match, null for every VM
+     * @param visitor receives each VM, and stops the listing by returning false
+     * @return the number of VMs visited
+     * @throws InternalException an error occurred within Dasein Cloud or in the visitor
+     * @throws CloudException an error occurred in the cloud provider or in the visitor
+     */
+    public int visitVirtualMachines(@Nullable VMFilterOptions options, @Nonnull ResourceVisitor<VirtualMachine> visitor) throws InternalException, CloudException {
+        Compute gce = provider.getGoogleCompute();
+        String project = provider.getContext().getAccountNumber();
+        String regionId = getContext().getRegionId();
+        VisitState state = new VisitState(options, visitor);
+
+        if(ZonalListing.choose(provider, "instances") == ZonalListing.Strategy.ZONAL){
+            List<String> zones = new ArrayList<String>(GoogleTopology.getInstance(provider).getZonesInRegion(regionId));
+            Collections.sort(zones);
+            ZonalListing.ZoneFetcher<InstanceList, Instance> fetcher = getInstanceFetcher(gce, project, INSTANCE_FIELDS);
+            int listed = 0;
+            for(String zone : zones){
+                String pageToken = null;
+                do{
+                    InstanceList page = fetchPage(fetcher, zone, pageToken);
+                    if(page == null) break;
+                    if(page.getItems() != null){
+                        listed += page.getItems().size();
+                        if(!visitPage(page.getItems(), state)) return state.visited;
+                    }
+                    pageToken = page.getNextPageToken();
+                } while(pageToken != null);
+            }
+            // only a complete listing tells how many instances the region holds
+            ZonalListing.recordZonal(provider, "instances", listed);
+            return state.visited;
+        }
+        ZonalListing.Sample sample = ZonalListing.startSample(provider, "instances");
+        String pageToken = null;
+        do{
+            InstanceAggregatedList page;
+            APITrace.begin(provider, "listVirtualMachines");
+            try{
+                page = GoogleHedger.execute(provider, getAggregatedInstancesRequest(gce, project, pageToken));
+            } catch (IOException ex) {
+                throw PagedIterable.toCloudException(ex, "An error occurred while listing Virtual Machines");
+            }
+            finally{
+                APITrace.end();
+            }
+            if(page == null) break;
+            if(page.getItems() != null){
+                ArrayList<Instance> inRegion = new ArrayList<Instance>();
+                int total = 0;
+                for(Map.Entry<String,InstancesScopedList> entry : page.getItems().entrySet()){
+                    if(entry.getValue() == null || entry.getValue().getInstances() == null) continue;
+                    total += entry.getValue().getInstances().size();
+                    if(regionId.equals(provider.getDataCenterServices().getRegionFromZone(entry.getKey()))){
+                        inRegion.addAll(entry.getValue().getInstances());
+                    }
+                }
+                sample.add(total, inRegion.size());
+                if(!visitPage(inRegion, state)) return state.visited;
+            }
+            pageToken = page.getNextPageToken();
+        } while(pageToken != null);
+        sample.complete();
+        return state.visited;
+    }
+
+    /**
+     * The progress of one {@link #visitVirtualMachines(VMFilterOptions, ResourceVisitor)} call.
+     */
+    private class VisitState {
+        private final VMFilterOptions                 options;
+        private final ResourceVisitor<VirtualMachine> visitor;
+        private IPAddressSupport.AddressIndex         addresses;
+        private int                                   visited;
+
+        private VisitState(@Nullable VMFilterOptions options, @Nonnull ResourceVisitor<VirtualMachine> visitor) {
+            this.options = options;
+            this.visitor = visitor;
+        }
+    }
+
+    private @Nullable InstanceList fetchPage(@Nonnull ZonalListing.ZoneFetcher<InstanceList, Instance> fetcher, @Nonnull String zone, @Nullable String pageToken) throws CloudException{
+        APITrace.begin(provider, "listVirtualMachines");
+        try{
+            return fetcher.fetch(zone, pageToken);
+        } catch (IOException ex) {
+            throw PagedIterable.toCloudException(ex, "An error occurred while listing Virtual Machines in " + zone);
         }
         finally{
             APITrace.end();
         }
-	}
+    }
+
+    /**
+     * Converts one page of instances and hands each matching VM to the visitor.
+     * @return false if the visitor stopped the listing
+     */
+    private boolean visitPage(@Nonnull List<Instance> instances, @Nonnull VisitState state) throws InternalException, CloudException{
+        if(instances.isEmpty()) return true;
+        if(state.addresses == null) state.addresses = provider.getNetworkServices().getIpAddressSupport().getAddressIndex(getContext().getRegionId());
+        Map<String,Disk> bootDisks = getBootDisks(instances);
+        for(Instance instance : instances){
+            VirtualMachine vm = toVirtualMachine(instance, bootDisks, state.addresses);
+            if(vm == null || (state.options != null && !state.options.matches(vm))) continue;
+            state.visited++;
+            if(!state.visitor.visit(vm)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The disks and static addresses of the context region, indexed in the background once the first page of an
+     * aggregated listing has instances to convert and shared by every later page. Nothing is listed for a listing
+     * that fails before its first page, and the indexes still being listed are cancelled if a page fails to convert.
+     */
+    private class ListingIndexes {
+        private final Compute gce;
+        private final String  project;
+        private final String  regionId;
+
+        // guarded by this
+        private Future<Map<String,Disk>>              diskIndex;
+        private Future<IPAddressSupport.AddressIndex> addressIndex;
+
+        private ListingIndexes(@Nonnull Compute gce, @Nonnull String project, @Nonnull String regionId) {
+            this.gce = gce;
+            this.project = project;
+            this.regionId = regionId;
+        }
+
+        private synchronized void start() {
+            if(diskIndex != null) return;
+            diskIndex = listDisks(gce, project, regionId);
+            addressIndex = listExecutor.submit(GoogleRateLimiter.withThreadPriority(new Callable<IPAddressSupport.AddressIndex>() {
+                public IPAddressSupport.AddressIndex call() throws Exception {
+                    return provider.getNetworkServices().getIpAddressSupport().getAddressIndex(regionId);
+                }
+            }));
+        }
+
+        private synchronized void cancel() {
+            if(diskIndex == null) return;
+            diskIndex.cancel(true);
+            addressIndex.cancel(true);
+        }
+
+        /**
+         * Converts one page of instances, joining their boot disks and static addresses from the indexes.
+         */
+        private @Nonnull List<VirtualMachine> toVirtualMachines(@Nonnull Collection<Instance> instances, @Nullable VMFilterOptions options) throws InternalException, CloudException{
+            if(instances.isEmpty()) return new ArrayList<VirtualMachine>();
+            start();
+            try{
+                return ServerSupport.this.toVirtualMachines(instances, options, getBootDisks(instances, diskIndex), getAddressIndex(addressIndex));
+            }
+            catch(CloudException ex){
+                cancel();
+                throw ex;
+            }
+            catch(InternalException ex){
+                cancel();
+                throw ex;
+            }
+            catch(RuntimeException ex){
+                cancel();
+                throw ex;
+            }
+        }
+    }
+
+    private @Nonnull List<VirtualMachine> toVirtualMachines(@Nonnull Collection<Instance> instances, @Nullable VMFilterOptions options, @Nonnull Map<String,Disk> bootDisks, @Nonnull IPAddressSupport.AddressIndex addresses) throws InternalException, CloudException{
+        ArrayList<VirtualMachine> vms = new ArrayList<VirtualMachine>();
+        for(Instance instance : instances){
+            VirtualMachine vm = toVirtualMachine(instance, bootDisks, addresses);
+            if(vm != null && (options == null || options.matches(vm)))vms.add(vm);
+        }
+        return vms;
+    }
 
     @Override
     public @Nonnull Iterable<VirtualMachine> listVirtualMachines()throws InternalException, CloudException {
@@ -380,14 +740,93 @@ public class ServerSupport extends AbstractVMSupport {
         return listVirtualMachines(options);
     }
 
+    /**
+     * With the aggregated listing, pages after the first are fetched while iterating, so a failure to fetch one is
+     * thrown from the iterator as a {@link PagedIterable.PagingException}.
+     */
     @Override
     public @Nonnull Iterable<ResourceStatus> listVirtualMachineStatus() throws InternalException, CloudException {
-        ArrayList<ResourceStatus> vmStatuses = new ArrayList<ResourceStatus>();
-        for(VirtualMachine vm : listVirtualMachines()){
-            ResourceStatus status = new ResourceStatus(vm.getProviderVirtualMachineId(), vm.getCurrentState());
-            vmStatuses.add(status);
+        final Compute gce = provider.getGoogleCompute();
+        final String project = provider.getContext().getAccountNumber();
+        final String regionId = getContext().getRegionId();
+
+        if(ZonalListing.choose(provider, "instances") == ZonalListing.Strategy.ZONAL){
+            ArrayList<ResourceStatus> vmStatuses = new ArrayList<ResourceStatus>();
+            for(Instance instance : ZonalListing.list(provider, "instances", "listVirtualMachineStatus", GoogleTopology.getInstance(provider).getZonesInRegion(regionId), getInstanceFetcher(gce, project, STATUS_FIELDS))){
+                vmStatuses.add(toStatus(instance));
+            }
+            return vmStatuses;
         }
-        return vmStatuses;
+        final ZonalListing.Sample sample = ZonalListing.startSample(provider, "instances");
+
+        return new PagedIterable<InstanceAggregatedList, ResourceStatus>(provider, "listVirtualMachineStatus") {
+            @Override
+            protected InstanceAggregatedList fetch(String pageToken) throws IOException {
+                return gce.instances().aggregatedList(project).setMaxResults(PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forAggregatedList(provider, "instances", STATUS_FIELDS)).execute();
+            }
+
+            @Override
+            protected String getNextPageToken(@Nonnull InstanceAggregatedList page) {
+                return page.getNextPageToken();
+            }
+
+            @Override
+            protected @Nonnull Iterable<ResourceStatus> getItems(@Nonnull InstanceAggregatedList instances) throws CloudException, InternalException {
+                ArrayList<ResourceStatus> vmStatuses = new ArrayList<ResourceStatus>();
+                if(instances.getItems() == null) return vmStatuses;
+                int total = 0;
+                for(Map.Entry<String,InstancesScopedList> entry : instances.getItems().entrySet()){
+                    if(entry.getValue() == null || entry.getValue().getInstances() == null) continue;
+                    total += entry.getValue().getInstances().size();
+                    if(!regionId.equals(provider.getDataCenterServices().getRegionFromZone(entry.getKey()))) continue;
+                    for(Instance instance : entry.getValue().getInstances()){
+                        vmStatuses.add(toStatus(instance));
+                    }
+                }
+                sample.add(total, vmStatuses.size());
+                if(isLastPage(instances)) sample.complete();
+                return vmStatuses;
+            }
+
+            @Override
+            protected @Nonnull String getErrorMessage() {
+                return "An error occurred while listing Virtual Machine status";
+            }
+        }.load();
+    }
+
+    /**
+     * Builds the request for one page of the project-wide instance listing.
+     */
+    private @Nonnull GoogleHedger.RequestFactory<InstanceAggregatedList> getAggregatedInstancesRequest(@Nonnull final Compute gce, @Nonnull final String project, @Nullable final String pageToken) {
+        return new GoogleHedger.RequestFactory<InstanceAggregatedList>() {
+            public @Nonnull Compute.Instances.AggregatedList newRequest() throws IOException {
+                return gce.instances().aggregatedList(project).setMaxResults(PagedIterable.PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forAggregatedList(provider, "instances", INSTANCE_FIELDS));
+            }
+        };
+    }
+
+    /**
+     * Fetches the instances of one zone with the specified partial response fields.
+     */
+    private @Nonnull ZonalListing.ZoneFetcher<InstanceList, Instance> getInstanceFetcher(@Nonnull final Compute gce, @Nonnull final String project, @Nonnull final String fields) {
+        return new ZonalListing.ZoneFetcher<InstanceList, Instance>() {
+            public InstanceList fetch(@Nonnull final String zone, final String pageToken) throws IOException {
+                return GoogleHedger.execute(provider, new GoogleHedger.RequestFactory<InstanceList>() {
+                    public @Nonnull Compute.Instances.List newRequest() throws IOException {
+                        return gce.instances().list(project, zone).setMaxResults(PagedIterable.PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forList(provider, fields));
+                    }
+                });
+            }
+
+            public String getNextPageToken(@Nonnull InstanceList page) {
+                return page.getNextPageToken();
+            }
+
+            public Collection<Instance> getItems(@Nonnull InstanceList page) {
+                return page.getItems();
+            }
+        };
     }
 
 	@Override
@@ -400,15 +839,16 @@ public class ServerSupport extends AbstractVMSupport {
         APITrace.begin(getProvider(), "rebootVM");
         try{
             try{
-                Operation job = null;
-                String zone = null;
-                for(VirtualMachine vm : listVirtualMachines()){
-                    if(vm.getProviderVirtualMachineId().equalsIgnoreCase(vmId)){
-                        zone = vm.getProviderDataCenterId();
-                        Compute gce = provider.getGoogleCompute();
-                        job = gce.instances().reset(provider.getContext().getAccountNumber(), vm.getProviderDataCenterId(), vmId).execute();
-                        break;
-                    }
+                Compute gce = provider.getGoogleCompute();
+                String zone = locateZone(vmId);
+                Operation job;
+                try{
+                    job = gce.instances().reset(provider.getContext().getAccountNumber(), zone, vmId).execute();
+                } catch (IOException ex) {
+                    String found = relocate(ex, vmId, zone);
+                    if(found == null) throw ex;
+                    zone = found;
+                    job = gce.instances().reset(provider.getContext().getAccountNumber(), zone, vmId).execute();
                 }
                 if(job != null){
                     GoogleMethod method = new GoogleMethod(provider);
@@ -416,6 +856,7 @@ public class ServerSupport extends AbstractVMSupport {
                 }
 	        } catch (IOException ex) {
 				logger.error(ex.getMessage());
+				GoogleCircuitBreaker.rethrow(ex);
 				if (ex.getClass() == GoogleJsonResponseException.class) {
 					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -424,6 +865,7 @@ public class ServerSupport extends AbstractVMSupport {
 			}
         }
         finally{
+            vmLookups.invalidate(provider, vmId);
             APITrace.end();
         }
 	}
@@ -459,9 +901,16 @@ public class ServerSupport extends AbstractVMSupport {
         try{
             try{
                 Compute gce = provider.getGoogleCompute();
-                VirtualMachine vm = getVirtualMachine(vmId);
-                String zone = vm.getProviderDataCenterId();
-                Operation job = gce.instances().delete(provider.getContext().getAccountNumber(), zone, vmId).execute();
+                String zone = locateZone(vmId);
+                Operation job;
+                try{
+                    job = gce.instances().delete(provider.getContext().getAccountNumber(), zone, vmId).execute();
+                } catch (IOException ex) {
+                    String found = relocate(ex, vmId, zone);
+                    if(found == null) throw ex;
+                    zone = found;
+                    job = gce.instances().delete(provider.getContext().getAccountNumber(), zone, vmId).execute();
+                }
                 if(job != null){
                     GoogleMethod method = new GoogleMethod(provider);
                     if(method.getOperationComplete(provider.getContext(), job, GoogleOperationType.ZONE_OPERATION, null, zone)){
@@ -473,6 +922,7 @@ public class ServerSupport extends AbstractVMSupport {
                 }
 	        } catch (IOException ex) {
 				logger.error(ex.getMessage());
+				GoogleCircuitBreaker.rethrow(ex);
 				if (ex.getClass() == GoogleJsonResponseException.class) {
 					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -481,6 +931,8 @@ public class ServerSupport extends AbstractVMSupport {
 			}
         }
         finally{
+            vmLookups.invalidate(provider, vmId);
+            vmZones.invalidate(provider, vmId);
             APITrace.end();
         }
     }
@@ -510,7 +962,217 @@ public class ServerSupport extends AbstractVMSupport {
 		throw new OperationNotSupportedException("Google does not support removing meta data from vms");
 	}
 
-    private VirtualMachine toVirtualMachine(Instance instance) throws InternalException, CloudException{
+    /**
+     * Finds the zone of a VM, searching the project for it only if its zone has not been recorded.
+     * @param vmId the name of the VM
+     * @return the name of the zone the VM is in
+     * @throws CloudException the VM does not exist or could not be looked up
+     */
+    private @Nonnull String locateZone(@Nonnull String vmId) throws InternalException, CloudException{
+        String zone = vmZones.getZone(provider, vmId);
+        if(zone != null) return zone;
+        return findZone(vmId);
+    }
+
+    /**
+     * Searches the whole project for the zone of a VM, reading only its {@link #STATUS_FIELDS} rather than converting
+     * it, and records the zone found.
+     * @param vmId the name of the VM
+     * @return the zone the VM is in
+     * @throws CloudException the VM does not exist or the search failed
+     */
+    private @Nonnull String findZone(@Nonnull final String vmId) throws InternalException, CloudException{
+        APITrace.begin(getProvider(), "locateVirtualMachine");
+        try{
+            final Compute gce = provider.getGoogleCompute();
+            final String project = provider.getContext().getAccountNumber();
+            InstanceAggregatedList instances = GoogleHedger.execute(provider, new GoogleHedger.RequestFactory<InstanceAggregatedList>() {
+                public @Nonnull Compute.Instances.AggregatedList newRequest() throws IOException {
+                    return gce.instances().aggregatedList(project).setFilter("name eq " + vmId).setFields(GoogleFields.forAggregatedList(provider, "instances", STATUS_FIELDS));
+                }
+            });
+            if(instances.getItems() != null){
+                for(InstancesScopedList scoped : instances.getItems().values()){
+                    if(scoped == null || scoped.getInstances() == null) continue;
+                    for(Instance instance : scoped.getInstances()){
+                        if(!vmId.equals(instance.getName())) continue;
+                        String zone = GoogleTopology.toName(instance.getZone());
+                        vmZones.put(provider, vmId, zone);
+                        return zone;
+                    }
+                }
+            }
+            throw new CloudException("The Virtual Machine: " + vmId + " could not be found.");
+        } catch (IOException ex) {
+            throw PagedIterable.toCloudException(ex, "An error occurred locating VM: " + vmId);
+        }
+        finally {
+            APITrace.end();
+        }
+    }
+
+    /**
+     * Checks whether a call to the recorded zone of a VM failed because the VM is no longer there, in which case the
+     * recorded zone is dropped and the project searched for the VM again.
+     * @param ex the exception raised by the zonal call
+     * @param vmId the name of the VM
+     * @param zone the zone the call was sent to
+     * @return the zone the VM was found in, null if the call should not be sent again
+     * @throws CloudException the VM no longer exists
+     */
+    private @Nullable String relocate(@Nonnull IOException ex, @Nonnull String vmId, @Nonnull String zone) throws InternalException, CloudException{
+        if(ex.getClass() != GoogleJsonResponseException.class || ((GoogleJsonResponseException)ex).getStatusCode() != 404) return null;
+        vmZones.invalidate(provider, vmId);
+        vmLookups.invalidate(provider, vmId);
+        String found = findZone(vmId);
+        return (zone.equals(found) ? null : found);
+    }
+
+    /**
+     * Starts listing the disks of the region's zones in the background so boot disks can be joined to instances in
+     * memory instead of being looked up one by one.
+     * @param gce the Compute client
+     * @param project the project whose disks are listed
+     * @param regionId the region whose zones are listed
+     * @return the disks keyed by their self link, once listed
+     */
+    private @Nonnull Future<Map<String,Disk>> listDisks(@Nonnull final Compute gce, @Nonnull final String project, @Nonnull final String regionId) {
+        return listExecutor.submit(GoogleRateLimiter.withThreadPriority(new Callable<Map<String,Disk>>() {
+            public Map<String,Disk> call() throws Exception {
+                Map<String,Disk> index = new HashMap<String, Disk>();
+                List<Disk> disks = ZonalListing.list(provider, "disks", "listBootDisks", GoogleTopology.getInstance(provider).getZonesInRegion(regionId), new ZonalListing.ZoneFetcher<DiskList, Disk>() {
+                    public DiskList fetch(@Nonnull String zone, String pageToken) throws IOException {
+                        return gce.disks().list(project, zone).setMaxResults(PagedIterable.PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forList(provider, DISK_INDEX_FIELDS)).execute();
+                    }
+
+                    public String getNextPageToken(@Nonnull DiskList page) {
+                        return page.getNextPageToken();
+                    }
+
+                    public Collection<Disk> getItems(@Nonnull DiskList page) {
+                        return page.getItems();
+                    }
+                });
+                for(Disk disk : disks){
+                    if(disk.getSelfLink() != null) index.put(disk.getSelfLink(), disk);
+                }
+                return index;
+            }
+        }));
+    }
+
+    /**
+     * Joins the boot disks of the specified instances from the disk index of the region, looking up any disk the
+     * index does not hold individually. If the index could not be built, every boot disk is looked up.
+     * @param instances the instances whose boot disks are needed
+     * @param diskIndex the disks of the region keyed by self link
+     * @return the boot disks keyed by their self link
+     */
+    private @Nonnull Map<String,Disk> getBootDisks(@Nonnull Collection<Instance> instances, @Nonnull Future<Map<String,Disk>> diskIndex) throws InternalException, CloudException{
+        Map<String,Disk> index;
+        try{
+            index = diskIndex.get();
+        }
+        catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new InternalException("Interrupted while listing disks");
+        }
+        catch(ExecutionException ex){
+            logger.warn("Unable to list the disks of the region, looking up boot disks individually: " + ex.getCause().getMessage());
+            return getBootDisks(instances);
+        }
+        Map<String,Disk> bootDisks = new HashMap<String, Disk>();
+        ArrayList<Instance> missing = new ArrayList<Instance>();
+        for(Instance instance : instances){
+            if(instance.getDisks() == null) continue;
+            for(AttachedDisk disk : instance.getDisks()){
+                if(disk != null && disk.getBoot() != null && disk.getBoot() && disk.getSource() != null){
+                    Disk bootDisk = index.get(disk.getSource());
+                    // a disk created after the index was listed
+                    if(bootDisk == null) missing.add(instance);
+                    else bootDisks.put(disk.getSource(), bootDisk);
+                }
+            }
+        }
+        if(!missing.isEmpty()) bootDisks.putAll(getBootDisks(missing));
+        return bootDisks;
+    }
+
+    /**
+     * Indexes the static addresses of the instance's region if the instance has a public IP that may be one of them.
+     * @param instance the instance being converted
+     * @return the address index, null if the instance has no public IP
+     */
+    private @Nullable IPAddressSupport.AddressIndex getAddressIndex(@Nonnull Instance instance) throws InternalException, CloudException{
+        if(instance.getNetworkInterfaces() != null){
+            for(NetworkInterface nic : instance.getNetworkInterfaces()){
+                if(nic.getAccessConfigs() == null) continue;
+                for(AccessConfig accessConfig : nic.getAccessConfigs()){
+                    if(accessConfig.getNatIP() != null){
+                        String regionId = provider.getDataCenterServices().getRegionFromZone(GoogleTopology.toName(instance.getZone()));
+
+                        return (regionId == null ? null : provider.getNetworkServices().getIpAddressSupport().getAddressIndex(regionId));
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private @Nonnull IPAddressSupport.AddressIndex getAddressIndex(@Nonnull Future<IPAddressSupport.AddressIndex> addressIndex) throws InternalException, CloudException{
+        try{
+            return addressIndex.get();
+        }
+        catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new InternalException("Interrupted while listing addresses");
+        }
+        catch(ExecutionException ex){
+            if(ex.getCause() instanceof CloudException) throw (CloudException)ex.getCause();
+            if(ex.getCause() instanceof InternalException) throw (InternalException)ex.getCause();
+            throw new InternalException(ex.getCause());
+        }
+    }
+
+    /**
+     * Fetches the boot disks of the specified instances, batching the lookups into as few calls as possible.
+     * @param instances the instances whose boot disks are needed
+     * @return the boot disks keyed by their self link
+     */
+    private @Nonnull Map<String,Disk> getBootDisks(@Nonnull Collection<Instance> instances) throws InternalException, CloudException{
+        Map<String,Disk> bootDisks = new HashMap<String, Disk>();
+        Compute gce = provider.getGoogleCompute();
+        GoogleBatch<Disk> batch = new GoogleBatch<Disk>(provider, "getBootDisks");
+        ArrayList<String> sources = new ArrayList<String>();
+        try{
+            for(Instance instance : instances){
+                if(instance.getDisks() == null) continue;
+                String zone = instance.getZone().substring(instance.getZone().lastIndexOf("/") + 1);
+                for(AttachedDisk disk : instance.getDisks()){
+                    if(disk != null && disk.getBoot() != null && disk.getBoot() && disk.getSource() != null){
+                        String diskName = disk.getSource().substring(disk.getSource().lastIndexOf("/") + 1);
+                        batch.add(gce.disks().get(provider.getContext().getAccountNumber(), zone, diskName).setFields(GoogleFields.forResource(provider, BOOT_DISK_FIELDS)));
+                        sources.add(disk.getSource());
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            logger.error(ex.getMessage());
+            GoogleCircuitBreaker.rethrow(ex);
+            if (ex.getClass() == GoogleJsonResponseException.class) {
+                GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
+                throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
+            } else
+                throw new InternalException("An error occurred getting the source image of the VM");
+        }
+        List<Disk> disks = batch.execute();
+        for(int i=0; i<disks.size(); i++){
+            if(disks.get(i) != null) bootDisks.put(sources.get(i), disks.get(i));
+        }
+        return bootDisks;
+    }
+
+    private VirtualMachine toVirtualMachine(Instance instance, Map<String,Disk> bootDisks, @Nullable IPAddressSupport.AddressIndex addresses) throws InternalException, CloudException{
         VirtualMachine vm = new VirtualMachine();
         vm.setProviderVirtualMachineId(instance.getName());
         vm.setName(instance.getName());
@@ -518,13 +1180,7 @@ public class ServerSupport extends AbstractVMSupport {
         else vm.setDescription(instance.getName());
         vm.setProviderOwnerId(provider.getContext().getAccountNumber());
 
-        VmState vmState = null;
-        if(instance.getStatus().equalsIgnoreCase("provisioning") || instance.getStatus().equalsIgnoreCase("staging"))vmState = VmState.PENDING;
-        else if(instance.getStatus().equalsIgnoreCase("stopping"))vmState = VmState.STOPPING;
-        else if(instance.getStatus().equalsIgnoreCase("stopped"))vmState = VmState.STOPPED;
-        else if(instance.getStatus().equalsIgnoreCase("terminated"))vmState = VmState.TERMINATED;
-        else vmState = VmState.RUNNING;
-        vm.setCurrentState(vmState);
+        vm.setCurrentState(toVmState(instance.getStatus()));
         String regionId = "";
         try{
             regionId = provider.getDataCenterServices().getRegionFromZone(instance.getZone().substring(instance.getZone().lastIndexOf("/") + 1));
@@ -537,6 +1193,7 @@ public class ServerSupport extends AbstractVMSupport {
         String zone = instance.getZone();
         zone = zone.substring(zone.lastIndexOf("/") + 1);
         vm.setProviderDataCenterId(zone);
+        vmZones.put(provider, instance.getName(), zone);
 
         DateTimeFormatter fmt = ISODateTimeFormat.dateTime();
         DateTime dt = DateTime.parse(instance.getCreationTimestamp(), fmt);
@@ -545,28 +1202,17 @@ public class ServerSupport extends AbstractVMSupport {
         if(instance.getDisks() != null){
             for(AttachedDisk disk : instance.getDisks()){
                 if(disk != null && disk.getBoot() != null && disk.getBoot()){
-                    String diskName = disk.getSource().substring(disk.getSource().lastIndexOf("/") + 1);
-                    Compute gce = provider.getGoogleCompute();
-                    try{
-                        Disk sourceDisk = gce.disks().get(provider.getContext().getAccountNumber(), zone, diskName).execute();
-                        if (sourceDisk != null && sourceDisk.getSourceImage() != null) {
-                            String project = "";
-                            Pattern p = Pattern.compile("/projects/(.*?)/");
-                            Matcher m = p.matcher(sourceDisk.getSourceImage());
-                            while(m.find()){
-                                project = m.group(1);
-                                break;
-                            }
-                            vm.setProviderMachineImageId(project + "_" + sourceDisk.getSourceImage().substring(sourceDisk.getSourceImage().lastIndexOf("/") + 1));
+                    Disk sourceDisk = bootDisks.get(disk.getSource());
+                    if (sourceDisk != null && sourceDisk.getSourceImage() != null) {
+                        String project = "";
+                        Pattern p = Pattern.compile("/projects/(.*?)/");
+                        Matcher m = p.matcher(sourceDisk.getSourceImage());
+                        while(m.find()){
+                            project = m.group(1);
+                            break;
                         }
-	    	        } catch (IOException ex) {
-    					logger.error(ex.getMessage());
-	    				if (ex.getClass() == GoogleJsonResponseException.class) {
-	    					GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-	    					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-	    				} else
-	    					throw new InternalException("An error occurred getting the source image of the VM");
-	    			}
+                        vm.setProviderMachineImageId(project + "_" + sourceDisk.getSourceImage().substring(sourceDisk.getSourceImage().lastIndexOf("/") + 1));
+                    }
                 }
             }
         }
@@ -591,12 +1237,11 @@ public class ServerSupport extends AbstractVMSupport {
                 for (AccessConfig accessConfig : nic.getAccessConfigs()) {
                     if (accessConfig.getNatIP() != null) {
                         publicAddresses.add(new RawAddress(accessConfig.getNatIP()));
-                        if(!isSet){
-                            try{
-                                isSet = true;
-                                providerAssignedIpAddressId = provider.getNetworkServices().getIpAddressSupport().getIpAddressIdFromIP(accessConfig.getNatIP(), regionId);
-                            }
-                            catch(InternalException ex){/*Likely to be an ephemeral IP*/}
+                        if(!isSet && addresses != null){
+                            isSet = true;
+                            String addressId = addresses.getAddressId(regionId, accessConfig.getNatIP());
+                            // no static address holds ephemeral IPs
+                            if(addressId != null) providerAssignedIpAddressId = addressId;
                         }
                     }
                 }
@@ -620,6 +1265,40 @@ public class ServerSupport extends AbstractVMSupport {
         return vm;
     }
 
+    private @Nonnull VmState toVmState(@Nonnull String status){
+        if(status.equalsIgnoreCase("provisioning") || status.equalsIgnoreCase("staging"))return VmState.PENDING;
+        else if(status.equalsIgnoreCase("stopping"))return VmState.STOPPING;
+        else if(status.equalsIgnoreCase("stopped"))return VmState.STOPPED;
+        else if(status.equalsIgnoreCase("terminated"))return VmState.TERMINATED;
+        else return VmState.RUNNING;
+    }
+
+    /**
+     * Converts an instance read with only {@link #STATUS_FIELDS}, recording its zone on the way.
+     */
+    private @Nonnull ResourceStatus toStatus(@Nonnull Instance instance){
+        vmZones.put(provider, instance.getName(), instance.getZone());
+        return new ResourceStatus(instance.getName(), toVmState(instance.getStatus()));
+    }
+
+    /**
+     * Converts the machine types of the context region into products, leaving out those of other regions.
+     * @param products the products to add to
+     * @param types the machine types to convert
+     * @return the number of machine types in the context region
+     */
+    private int addProducts(@Nonnull Collection<VirtualMachineProduct> products, @Nonnull Collection<MachineType> types) throws InternalException, CloudException{
+        String regionId = provider.getContext().getRegionId();
+        int inRegion = 0;
+        for(MachineType type : types){
+            //TODO: Filter out deprecated states somehow
+            if(!regionId.equals(provider.getDataCenterServices().getRegionFromZone(type.getZone()))) continue;
+            products.add(toProduct(type));
+            inRegion++;
+        }
+        return inRegion;
+    }
+
     private VirtualMachineProduct toProduct(MachineType machineType){
         VirtualMachineProduct product = new VirtualMachineProduct();
         product.setProviderProductId(machineType.getName() + "+" + machineType.getZone());
@@ -27,9 +27,12 @@ import org.dasein.cloud.*;
 import org.dasein.cloud.compute.*;
 import org.dasein.cloud.compute.Snapshot;
 import org.dasein.cloud.google.Google;
+import org.dasein.cloud.google.GoogleCircuitBreaker;
 import org.dasein.cloud.google.GoogleException;
+import org.dasein.cloud.google.GoogleFields;
 import org.dasein.cloud.google.GoogleMethod;
 import org.dasein.cloud.google.GoogleOperationType;
+import org.dasein.cloud.google.PagedIterable;
 import org.dasein.cloud.google.capabilities.GCESnapshotCapabilities;
 import org.dasein.cloud.util.APITrace;
 import org.joda.time.DateTime;
@@ -51,6 +54,12 @@ import java.util.*;
 
 public class SnapshotSupport extends AbstractSnapshotSupport{
     static private final Logger logger = Google.getLogger(SnapshotSupport.class);
+    /**
+     * The snapshot fields read when only the state of each snapshot is listed. Snapshots are global, so unlike
+     * instances and disks they have no zone to read.
+     */
+    static private final String STATUS_FIELDS = "name,status";
+
     private Google provider;
 
     public SnapshotSupport(Google provider){
@@ -93,6 +102,7 @@ public class SnapshotSupport extends AbstractSnapshotSupport{
                 throw new CloudException("An error occurred creating the snapshot: Operation Timedout");
     	    } catch (IOException ex) {
                 logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -129,6 +139,7 @@ public class SnapshotSupport extends AbstractSnapshotSupport{
                 return toSnapshot(snapshot);
     	    } catch (IOException ex) {
                 logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -156,62 +167,82 @@ public class SnapshotSupport extends AbstractSnapshotSupport{
         return Collections.emptyList();
     }
 
+    /**
+     * Pages after the first are fetched while iterating, so a failure to fetch one is thrown from the iterator as a
+     * {@link PagedIterable.PagingException}.
+     */
     @Override
     public @Nonnull Iterable<ResourceStatus> listSnapshotStatus() throws InternalException, CloudException{
-        APITrace.begin(provider, "Snapshot.listSnapshotStatus");
-        try{
-            ArrayList<ResourceStatus> statuses = new ArrayList<ResourceStatus>();
-            Compute gce = provider.getGoogleCompute();
-            try{
-                SnapshotList list = gce.snapshots().list(provider.getContext().getAccountNumber()).execute();
-                if(list != null && list.size() > 0){
+        final Compute gce = provider.getGoogleCompute();
+        final String project = provider.getContext().getAccountNumber();
+
+        return new PagedIterable<SnapshotList, ResourceStatus>(provider, "Snapshot.listSnapshotStatus") {
+            @Override
+            protected SnapshotList fetch(String pageToken) throws IOException {
+                return gce.snapshots().list(project).setMaxResults(PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forList(provider, STATUS_FIELDS)).execute();
+            }
+
+            @Override
+            protected String getNextPageToken(@Nonnull SnapshotList page) {
+                return page.getNextPageToken();
+            }
+
+            @Override
+            protected @Nonnull Iterable<ResourceStatus> getItems(@Nonnull SnapshotList list) throws CloudException {
+                ArrayList<ResourceStatus> statuses = new ArrayList<ResourceStatus>();
+                if(list.getItems() != null){
                     for(com.google.api.services.compute.model.Snapshot googleSnapshot : list.getItems()){
                         ResourceStatus status = toStatus(googleSnapshot);
                         if(status != null)statuses.add(status);
                     }
                 }
                 return statuses;
-    	    } catch (IOException ex) {
-                logger.error(ex.getMessage());
-    			if (ex.getClass() == GoogleJsonResponseException.class) {
-    				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-    				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-    			} else
-                    throw new CloudException("An error occurred retrieving snapshot status");
-    		}
-        }
-        finally {
-            APITrace.end();
-        }
+            }
+
+            @Override
+            protected @Nonnull String getErrorMessage() {
+                return "An error occurred retrieving snapshot status";
+            }
+        }.load();
     }
 
+    /**
+     * Lists the snapshots of the project a page at a time. Pages after the first are fetched while iterating, so a
+     * failure to fetch one is thrown from the iterator as a {@link PagedIterable.PagingException}.
+     */
     @Override
     public @Nonnull Iterable<Snapshot> listSnapshots() throws InternalException, CloudException{
-        APITrace.begin(provider, "Snapshot.listSnapshots");
-        try{
-            ArrayList<Snapshot> snapshots = new ArrayList<Snapshot>();
-            Compute gce = provider.getGoogleCompute();
-            try{
-                SnapshotList list = gce.snapshots().list(provider.getContext().getAccountNumber()).execute();
-                if(list != null && list.getItems() != null && list.getItems().size() > 0){
+        final Compute gce = provider.getGoogleCompute();
+        final String project = provider.getContext().getAccountNumber();
+
+        return new PagedIterable<SnapshotList, Snapshot>(provider, "Snapshot.listSnapshots") {
+            @Override
+            protected SnapshotList fetch(String pageToken) throws IOException {
+                return gce.snapshots().list(project).setMaxResults(PAGE_SIZE).setPageToken(pageToken).execute();
+            }
+
+            @Override
+            protected String getNextPageToken(@Nonnull SnapshotList page) {
+                return page.getNextPageToken();
+            }
+
+            @Override
+            protected @Nonnull Iterable<Snapshot> getItems(@Nonnull SnapshotList list) {
+                ArrayList<Snapshot> snapshots = new ArrayList<Snapshot>();
+                if(list.getItems() != null && list.getItems().size() > 0){
                     for(com.google.api.services.compute.model.Snapshot googleSnapshot : list.getItems()){
                         Snapshot snapshot = toSnapshot(googleSnapshot);
                         if(snapshot != null)snapshots.add(snapshot);
                     }
                 }
                 return snapshots;
-    	    } catch (IOException ex) {
-                logger.error(ex.getMessage());
-    			if (ex.getClass() == GoogleJsonResponseException.class) {
-    				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-    				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-    			} else
-                    throw new CloudException("An error occurred while listing snapshots: " + ex.getMessage());
-    		}
-        }
-        finally {
-            APITrace.end();
-        }
+            }
+
+            @Override
+            protected @Nonnull String getErrorMessage() {
+                return "An error occurred while listing snapshots";
+            }
+        }.load();
     }
 
     @Override
@@ -232,6 +263,7 @@ public class SnapshotSupport extends AbstractSnapshotSupport{
                     throw new CloudException("An error occurred deleting the snapshot: Operation timed out");
                 }
     	    } catch (IOException ex) {
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
                     logger.error(ex.getMessage());
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
@@ -278,7 +310,7 @@ public class SnapshotSupport extends AbstractSnapshotSupport{
         APITrace.begin(provider, "Snapshot.searchSnapshots");
         try{
             ArrayList<Snapshot> snapshots = new ArrayList<Snapshot>();
-            for(Snapshot snapshot : listSnapshots()){
+            for(Snapshot snapshot : PagedIterable.toList(listSnapshots())){
                 if(options == null || options.matches(snapshot, null)){
                     snapshots.add(snapshot);
                 }
@@ -28,6 +28,7 @@ import org.apache.http.conn.util.InetAddressUtils;
 import org.apache.log4j.Logger;
 import org.dasein.cloud.*;
 import org.dasein.cloud.google.Google;
+import org.dasein.cloud.google.GoogleCircuitBreaker;
 import org.dasein.cloud.google.GoogleException;
 import org.dasein.cloud.google.GoogleMethod;
 import org.dasein.cloud.google.GoogleOperationType;
@@ -114,6 +115,7 @@ public class FirewallSupport extends AbstractFirewallSupport{
                 return method.getOperationTarget(provider.getContext(), job, GoogleOperationType.GLOBAL_OPERATION, "", "", false);
     	    } catch (IOException ex) {
                 logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -159,6 +161,7 @@ public class FirewallSupport extends AbstractFirewallSupport{
             return toFirewall(firewall, rules);
 	    } catch (IOException ex) {
 			logger.error("An error occurred while getting firewall " + firewallId + ": " + ex.getMessage());
+			GoogleCircuitBreaker.rethrow(ex);
 			if (ex.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -183,6 +186,7 @@ public class FirewallSupport extends AbstractFirewallSupport{
             else return Collections.emptyList();
 	    } catch (IOException ex) {
             logger.error("An error occurred while getting firewall " + firewallId + ": " + ex.getMessage());
+			GoogleCircuitBreaker.rethrow(ex);
 			if (ex.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -219,6 +223,7 @@ public class FirewallSupport extends AbstractFirewallSupport{
             }
 	    } catch (IOException ex) {
             logger.error(ex.getMessage());
+			GoogleCircuitBreaker.rethrow(ex);
 			if (ex.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -285,6 +290,7 @@ public class FirewallSupport extends AbstractFirewallSupport{
                 }
     	    } catch (IOException ex) {
 	            logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
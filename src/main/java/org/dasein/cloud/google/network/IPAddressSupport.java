@@ -26,9 +26,13 @@ import org.apache.log4j.Logger;
 import org.dasein.cloud.*;
 import org.dasein.cloud.compute.VirtualMachine;
 import org.dasein.cloud.google.Google;
+import org.dasein.cloud.google.GoogleCircuitBreaker;
 import org.dasein.cloud.google.GoogleException;
+import org.dasein.cloud.google.GoogleFields;
 import org.dasein.cloud.google.GoogleMethod;
 import org.dasein.cloud.google.GoogleOperationType;
+import org.dasein.cloud.google.GoogleTopology;
+import org.dasein.cloud.google.PagedIterable;
 import org.dasein.cloud.google.capabilities.GCEIPAddressCapabilities;
 import org.dasein.cloud.identity.ServiceAction;
 import org.dasein.cloud.network.*;
@@ -79,6 +83,7 @@ public class IPAddressSupport implements IpAddressSupport {
                 }
     	    } catch (IOException ex) {
 	            logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -132,6 +137,7 @@ public class IPAddressSupport implements IpAddressSupport {
                 }
     	    } catch (IOException ex) {
 	            logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -158,6 +164,7 @@ public class IPAddressSupport implements IpAddressSupport {
             throw new InternalException("An address could not be found matching " + ipAddress + " in " + regionId);
 	    } catch (IOException ex) {
             logger.error(ex.getMessage());
+			GoogleCircuitBreaker.rethrow(ex);
 			if (ex.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -166,6 +173,148 @@ public class IPAddressSupport implements IpAddressSupport {
 		}
     }
 
+    /**
+     * The static addresses of a project keyed by region and raw IP, so the address of a VM's public IP can be found
+     * without listing the region's addresses for every VM.
+     */
+    static public class AddressIndex {
+        private final Map<String,Map<String,String>> byRegion = new HashMap<String, Map<String,String>>();
+
+        private void add(@Nonnull Address address) {
+            String regionId = GoogleTopology.toName(address.getRegion());
+            Map<String,String> inRegion = byRegion.get(regionId);
+
+            if( inRegion == null ) {
+                inRegion = new HashMap<String, String>();
+                byRegion.put(regionId, inRegion);
+            }
+            inRegion.put(address.getAddress(), address.getName());
+        }
+
+        /**
+         * @param regionId the region of the IP
+         * @param ipAddress the raw IP
+         * @return the name of the static address holding the IP, null if the IP is ephemeral
+         */
+        public @Nullable String getAddressId(@Nonnull String regionId, @Nonnull String ipAddress) {
+            Map<String,String> inRegion = byRegion.get(regionId);
+
+            return (inRegion == null ? null : inRegion.get(ipAddress));
+        }
+
+        /**
+         * @param regionId the region of the IP
+         * @param ipAddress the raw IP
+         * @return true if no static address holds the IP
+         */
+        public boolean isEphemeral(@Nonnull String regionId, @Nonnull String ipAddress) {
+            return (getAddressId(regionId, ipAddress) == null);
+        }
+    }
+
+    /**
+     * The address fields read when indexing addresses.
+     */
+    static private final String INDEX_FIELDS = "name,address,region";
+
+    /**
+     * Indexes the static addresses of every region of the project with a single aggregated list call.
+     * @return the address index
+     * @throws CloudException the addresses could not be listed
+     * @throws InternalException an internal error occurred listing the addresses
+     */
+    public @Nonnull AddressIndex getAddressIndex() throws InternalException, CloudException {
+        final Compute gce = provider.getGoogleCompute();
+        final String project = getIndexProject();
+
+        return toAddressIndex(new PagedIterable<AddressAggregatedList, Address>(provider, "IpAddress.getAddressIndex") {
+            @Override
+            protected AddressAggregatedList fetch(String pageToken) throws IOException {
+                return gce.addresses().aggregatedList(project).setMaxResults(PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forAggregatedList(provider, "addresses", INDEX_FIELDS)).execute();
+            }
+
+            @Override
+            protected String getNextPageToken(@Nonnull AddressAggregatedList page) {
+                return page.getNextPageToken();
+            }
+
+            @Override
+            protected @Nonnull Iterable<Address> getItems(@Nonnull AddressAggregatedList page) {
+                ArrayList<Address> items = new ArrayList<Address>();
+                if(page.getItems() != null){
+                    for(AddressesScopedList scoped : page.getItems().values()){
+                        if(scoped != null && scoped.getAddresses() != null)items.addAll(scoped.getAddresses());
+                    }
+                }
+                return items;
+            }
+
+            @Override
+            protected @Nonnull String getErrorMessage() {
+                return "An error occurred listing addresses";
+            }
+        });
+    }
+
+    /**
+     * Indexes the static addresses of a single region, for callers that only need the addresses of VMs in that region.
+     * @param regionId the region whose addresses are indexed
+     * @return the address index
+     * @throws CloudException the addresses could not be listed
+     * @throws InternalException an internal error occurred listing the addresses
+     */
+    public @Nonnull AddressIndex getAddressIndex(@Nonnull final String regionId) throws InternalException, CloudException {
+        final Compute gce = provider.getGoogleCompute();
+        final String project = getIndexProject();
+
+        return toAddressIndex(new PagedIterable<AddressList, Address>(provider, "IpAddress.getAddressIndex") {
+            @Override
+            protected AddressList fetch(String pageToken) throws IOException {
+                return gce.addresses().list(project, regionId).setMaxResults(PAGE_SIZE).setPageToken(pageToken).setFields(GoogleFields.forList(provider, INDEX_FIELDS)).execute();
+            }
+
+            @Override
+            protected String getNextPageToken(@Nonnull AddressList page) {
+                return page.getNextPageToken();
+            }
+
+            @Override
+            protected @Nonnull Iterable<Address> getItems(@Nonnull AddressList page) {
+                return (page.getItems() == null ? Collections.<Address>emptyList() : page.getItems());
+            }
+
+            @Override
+            protected @Nonnull String getErrorMessage() {
+                return "An error occurred listing addresses in " + regionId;
+            }
+        });
+    }
+
+    private @Nonnull String getIndexProject() throws CloudException {
+        ProviderContext ctx = provider.getContext();
+
+        if( ctx == null ) {
+            throw new CloudException("No context was set for this request");
+        }
+        return ctx.getAccountNumber();
+    }
+
+    /**
+     * Lists the addresses of an index, leaving out those without an IP or region.
+     * @param addresses the addresses to index
+     * @return the address index
+     * @throws CloudException the addresses could not be listed
+     * @throws InternalException an internal error occurred listing the addresses
+     */
+    private @Nonnull AddressIndex toAddressIndex(@Nonnull PagedIterable<?, Address> addresses) throws InternalException, CloudException {
+        AddressIndex index = new AddressIndex();
+
+        for(Address address : PagedIterable.toList(addresses.load())){
+            if(address.getAddress() != null && address.getRegion() != null)index.add(address);
+        }
+        return index;
+    }
+
     @Override
     @Deprecated
     public @Nonnull String getProviderTermForIpAddress(@Nonnull Locale locale) {
@@ -241,43 +390,54 @@ public class IPAddressSupport implements IpAddressSupport {
         return listIpPool(IPVersion.IPV4, unassignedOnly);
     }
 
+    /**
+     * Pages after the first are fetched while iterating, so a failure to fetch one is thrown from the iterator as a
+     * {@link PagedIterable.PagingException}.
+     */
     @Nonnull
     @Override
     public Iterable<IpAddress> listIpPool(@Nonnull IPVersion version, boolean unassignedOnly) throws InternalException, CloudException {
-        APITrace.begin(provider, "IpAddress.listIpPool");
-        try{
-            if( !version.equals(IPVersion.IPV4) ) {
-                return Collections.emptyList();
+        if( !version.equals(IPVersion.IPV4) ) {
+            return Collections.emptyList();
+        }
+        ProviderContext ctx = provider.getContext();
+
+        if( ctx == null ) {
+            throw new CloudException("No context was set for this request");
+        }
+
+        final Compute gce = provider.getGoogleCompute();
+        final String project = ctx.getAccountNumber();
+        final String regionId = ctx.getRegionId();
+
+        return new PagedIterable<AddressList, IpAddress>(provider, "IpAddress.listIpPool") {
+            @Override
+            protected AddressList fetch(String pageToken) throws IOException {
+                return gce.addresses().list(project, regionId).setMaxResults(PAGE_SIZE).setPageToken(pageToken).execute();
             }
-            ProviderContext ctx = provider.getContext();
 
-            if( ctx == null ) {
-                throw new CloudException("No context was set for this request");
+            @Override
+            protected String getNextPageToken(@Nonnull AddressList page) {
+                return page.getNextPageToken();
             }
 
-            ArrayList<IpAddress> addresses = new ArrayList<IpAddress>();
-            try{
-                Compute gce = provider.getGoogleCompute();
-                AddressList addressList = gce.addresses().list(provider.getContext().getAccountNumber(), provider.getContext().getRegionId()).execute();
-                if(addressList != null && addressList.getItems() != null && !addressList.getItems().isEmpty()){
+            @Override
+            protected @Nonnull Iterable<IpAddress> getItems(@Nonnull AddressList addressList) {
+                ArrayList<IpAddress> addresses = new ArrayList<IpAddress>();
+                if(addressList.getItems() != null && !addressList.getItems().isEmpty()){
                     for(Address address : addressList.getItems()){
                         IpAddress ipAddress = toIpAddress(address);
                         if(ipAddress != null)addresses.add(ipAddress);
                     }
                 }
                 return addresses;
-    	    } catch (IOException ex) {
-	            logger.error(ex.getMessage());
-    			if (ex.getClass() == GoogleJsonResponseException.class) {
-    				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-    				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-    			} else
-                    throw new CloudException("An error occurred listing IPs: " + ex.getMessage());
-    		}
-        }
-        finally {
-            APITrace.end();
-        }
+            }
+
+            @Override
+            protected @Nonnull String getErrorMessage() {
+                return "An error occurred listing IPs";
+            }
+        }.load();
     }
 
     @Nonnull
@@ -310,6 +470,7 @@ public class IPAddressSupport implements IpAddressSupport {
                 return statuses;
     	    } catch (IOException ex) {
 	            logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -349,6 +510,7 @@ public class IPAddressSupport implements IpAddressSupport {
                 }
     	    } catch (IOException ex) {
 	            logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -390,6 +552,7 @@ public class IPAddressSupport implements IpAddressSupport {
                 }
     	    } catch (IOException ex) {
 	            logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -426,6 +589,7 @@ public class IPAddressSupport implements IpAddressSupport {
                     return method.getOperationTarget(provider.getContext(), job, GoogleOperationType.REGION_OPERATION, provider.getContext().getRegionId(), "", false);
         	    } catch (IOException ex) {
     	            logger.error(ex.getMessage());
+        			GoogleCircuitBreaker.rethrow(ex);
         			if (ex.getClass() == GoogleJsonResponseException.class) {
         				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
         				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
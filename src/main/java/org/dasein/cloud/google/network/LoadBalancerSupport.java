@@ -35,10 +35,14 @@ import org.dasein.cloud.OperationNotSupportedException;
 import org.dasein.cloud.ProviderContext;
 import org.dasein.cloud.ResourceStatus;
 import org.dasein.cloud.compute.VirtualMachine;
+import org.dasein.cloud.google.CircuitOpenException;
 import org.dasein.cloud.google.Google;
+import org.dasein.cloud.google.GoogleBatch;
+import org.dasein.cloud.google.GoogleCircuitBreaker;
 import org.dasein.cloud.google.GoogleException;
 import org.dasein.cloud.google.GoogleMethod;
 import org.dasein.cloud.google.GoogleOperationType;
+import org.dasein.cloud.google.GoogleTopology;
 import org.dasein.cloud.google.capabilities.GCELoadBalancerCapabilities;
 import org.dasein.cloud.network.AbstractLoadBalancerSupport;
 import org.dasein.cloud.network.HealthCheckFilterOptions;
@@ -70,7 +74,6 @@ import com.google.api.services.compute.model.HealthCheckReference;
 import com.google.api.services.compute.model.HttpHealthCheck;
 import com.google.api.services.compute.model.InstanceReference;
 import com.google.api.services.compute.model.Operation;
-import com.google.api.services.compute.model.Region;
 import com.google.api.services.compute.model.TargetPool;
 import com.google.api.services.compute.model.TargetPoolList;
 import com.google.api.services.compute.model.TargetPoolsAddHealthCheckRequest;
@@ -142,6 +145,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
         } catch (CloudException e) {
         	throw new CloudException(e);
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -159,6 +163,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 		try {
 			tp = gce.targetPools().get(ctx.getAccountNumber(), ctx.getRegionId(), loadBalancerId).execute();
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -198,6 +203,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 						forwardingRuleNames.add(fr.getName());
 				}
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -218,6 +224,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 			GoogleMethod method = new GoogleMethod(provider);
         	method.getOperationComplete(ctx, job, GoogleOperationType.REGION_OPERATION, ctx.getRegionId(), "");
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -245,6 +252,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 	        	Operation job = gce.targetPools().insert(ctx.getAccountNumber(), ctx.getRegionId(), tp).execute();
 	        	method.getOperationComplete(ctx, job, GoogleOperationType.REGION_OPERATION, ctx.getRegionId(), "");
    			} catch (IOException e) {
+   				GoogleCircuitBreaker.rethrow(e);
    				if (e.getClass() == GoogleJsonResponseException.class) {
    					GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
    					throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -317,6 +325,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 	            method.getOperationComplete(ctx, job, GoogleOperationType.REGION_OPERATION, ctx.getRegionId(), "");
 	    	}
 	    } catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -366,6 +375,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
         	Operation job = gce.httpHealthChecks().insert(ctx.getAccountNumber(), hc).execute();
         	method.getOperationComplete(ctx, job, GoogleOperationType.GLOBAL_OPERATION, ctx.getRegionId(), "");
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -387,6 +397,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
     	try {
 			hc = (gce.httpHealthChecks().get(ctx.getAccountNumber(), providerLBHealthCheckId)).execute();
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -404,6 +415,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
     	try {
 		    gce.targetPools().addHealthCheck(ctx.getAccountNumber(), ctx.getRegionId(), providerLoadBalancerId, tphcr).execute();
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -474,6 +486,8 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 
     		if ((tpl != null) && (tpl.getItems() != null)) {
 	    		Iterator<TargetPool> loadBalancers = tpl.getItems().iterator();
+	    		GoogleBatch<HttpHealthCheck> batch = new GoogleBatch<HttpHealthCheck>(provider, "LB.getHealthChecks");
+	    		List<String> loadBalancerNames = new ArrayList<String>();
 
 				while (loadBalancers.hasNext()) {
 					TargetPool lb = loadBalancers.next();
@@ -484,16 +498,22 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 						String healthCheckName = hcs.get(0);
 						if (healthCheckName != null) {
 							healthCheckName = healthCheckName.substring(healthCheckName.lastIndexOf("/") + 1);
-							HttpHealthCheck hc = gce.httpHealthChecks().get(ctx.getAccountNumber(), healthCheckName).execute();
-							if (hc != null) {
-								LoadBalancerHealthCheck healthCheckItem = toLoadBalancerHealthCheck(loadBalancerName, hc);
-								lbhc.add(healthCheckItem);
-							}
+							batch.add(gce.httpHealthChecks().get(ctx.getAccountNumber(), healthCheckName));
+							loadBalancerNames.add(loadBalancerName);
 						}
 					}
 				}
+				List<HttpHealthCheck> healthChecks = batch.execute();
+				for (int i = 0; i < healthChecks.size(); i++) {
+					HttpHealthCheck hc = healthChecks.get(i);
+					if (hc != null) {
+						LoadBalancerHealthCheck healthCheckItem = toLoadBalancerHealthCheck(loadBalancerNames.get(i), hc);
+						lbhc.add(healthCheckItem);
+					}
+				}
     		}
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -517,6 +537,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 			GoogleMethod method = new GoogleMethod(provider);
 			method.getOperationComplete(ctx, job, GoogleOperationType.GLOBAL_OPERATION, ctx.getRegionId(), "");  // Causes CloudException if HC still in use.
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -537,6 +558,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
     	try {
 			hc = (gce.httpHealthChecks().get(ctx.getAccountNumber(), providerLBHealthCheckId)).execute();
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -563,6 +585,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
     	try {
 			gce.httpHealthChecks().update(ctx.getAccountNumber(), providerLBHealthCheckId, hc).execute();
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -594,6 +617,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
     	} catch (NullPointerException e) {
 			// not found, return null
     	} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -639,6 +663,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 
 	    	gce.targetPools().addInstance(ctx.getAccountNumber(), vmRegion, toLoadBalancerId, new TargetPoolsAddInstanceRequest().setInstances(instances)).execute();
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -673,6 +698,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 			gce.targetPools().removeInstance(ctx.getAccountNumber(), ctx.getRegionId(), fromLoadBalancerId, content).execute();
 
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -693,6 +719,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
     	try {
 			tp = gce.targetPools().get(ctx.getAccountNumber(), ctx.getRegionId(), forLoadBalancerId).execute();
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -741,6 +768,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
     		}
     		return list;
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -773,6 +801,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
     		}
     		return list;
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			if (e.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)e;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -806,8 +835,20 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 		List<LbListener> listeners = new ArrayList<LbListener>();
 		try {
 			List<String> forwardingRuleNames = getForwardingRule(tp.getName());
+			GoogleBatch<ForwardingRule> batch = new GoogleBatch<ForwardingRule>(provider, "LB.getForwardingRules");
 			for (String forwardingRuleName : forwardingRuleNames) {
-				fr = gce.forwardingRules().get(ctx.getAccountNumber(), ctx.getRegionId(), forwardingRuleName).execute();
+				batch.add(gce.forwardingRules().get(ctx.getAccountNumber(), ctx.getRegionId(), forwardingRuleName));
+			}
+			List<ForwardingRule> forwardingRules;
+			try {
+				forwardingRules = batch.execute();
+			} catch (CloudException e) {
+				if (e instanceof CircuitOpenException) throw e;
+				// Guess no forwarding rules for this one.
+				forwardingRules = new ArrayList<ForwardingRule>();
+			}
+			for (ForwardingRule rule : forwardingRules) {
+				fr = rule;
 				if (fr != null) {
 					forwardingRuleAddress = fr.getIPAddress();
 					forwardingRulePortRange = fr.getPortRange();
@@ -821,6 +862,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 				}
 			}
 		} catch (IOException e) {
+			GoogleCircuitBreaker.rethrow(e);
 			// Guess no forwarding rules for this one.
 		}
 
@@ -829,13 +871,7 @@ public class LoadBalancerSupport extends AbstractLoadBalancerSupport<Google>  {
 
         List<String> zones = new ArrayList<String>();
         try {
-            Region puzzle = gce.regions().get(ctx.getAccountNumber(), ctx.getRegionId()).execute();
-            List<String> longZones = puzzle.getZones();
-
-            for( String zone : longZones ) {
-                zone = zone.substring(zone.lastIndexOf("/") + 1);
-                zones.add(zone);
-            }
+            zones.addAll(GoogleTopology.getInstance(provider).getZonesInRegion(region));
         }
         catch( Throwable ignore ) {
 
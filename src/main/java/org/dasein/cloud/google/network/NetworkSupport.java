@@ -32,6 +32,7 @@ import org.apache.log4j.Logger;
 import org.dasein.cloud.*;
 import org.dasein.cloud.compute.VirtualMachine;
 import org.dasein.cloud.google.Google;
+import org.dasein.cloud.google.GoogleCircuitBreaker;
 import org.dasein.cloud.google.GoogleException;
 import org.dasein.cloud.google.GoogleMethod;
 import org.dasein.cloud.google.GoogleOperationType;
@@ -103,6 +104,7 @@ public class NetworkSupport extends AbstractVLANSupport {
             return r;
 	    } catch (IOException ex) {
             logger.error(ex.getMessage());
+			GoogleCircuitBreaker.rethrow(ex);
 			if (ex.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -146,6 +148,7 @@ public class NetworkSupport extends AbstractVLANSupport {
             return vLan;
 	    } catch (IOException ex) {
 			logger.error("An error occurred while creating vlan: " + ex.getMessage());
+			GoogleCircuitBreaker.rethrow(ex);
 			if (ex.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -209,6 +212,7 @@ public class NetworkSupport extends AbstractVLANSupport {
             return toVlan(network, ctx);
 	    } catch (IOException ex) {
 	    	logger.error("An error occurred while getting network " + vlanId + ": " + ex.getMessage());
+			GoogleCircuitBreaker.rethrow(ex);
 			if (ex.getClass() == GoogleJsonResponseException.class) {
 	            GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -333,6 +337,7 @@ public class NetworkSupport extends AbstractVLANSupport {
                 return statuses;
     	    } catch (IOException ex) {
                 logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -363,6 +368,7 @@ public class NetworkSupport extends AbstractVLANSupport {
             }
 	    } catch (IOException ex) {
             logger.error(ex.getMessage());
+			GoogleCircuitBreaker.rethrow(ex);
 			if (ex.getClass() == GoogleJsonResponseException.class) {
 				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
 				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -387,6 +393,7 @@ public class NetworkSupport extends AbstractVLANSupport {
                 }
     	    } catch (IOException ex) {
 	            logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
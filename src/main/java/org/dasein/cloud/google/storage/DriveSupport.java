@@ -37,7 +37,9 @@ import org.dasein.cloud.InternalException;
 import org.dasein.cloud.OperationNotSupportedException;
 import org.dasein.cloud.ProviderContext;
 import org.dasein.cloud.google.Google;
+import org.dasein.cloud.google.GoogleCircuitBreaker;
 import org.dasein.cloud.google.GoogleException;
+import org.dasein.cloud.google.PagedIterable;
 import org.dasein.cloud.identity.ServiceAction;
 import org.dasein.cloud.storage.AbstractBlobStoreSupport;
 import org.dasein.cloud.storage.Blob;
@@ -97,10 +99,12 @@ public class DriveSupport extends AbstractBlobStoreSupport{
                 }
                 catch( IOException e ) {
                     logger.error("Could not fetch file to " + toFile + ": " + e.getMessage());
+                    GoogleCircuitBreaker.rethrow(e);
                     throw new CloudException(e);
                 }
     		} catch (IOException ex) {
 				logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -148,6 +152,7 @@ public class DriveSupport extends AbstractBlobStoreSupport{
                 insertObject.execute();
     		} catch (IOException ex) {
 				logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -185,6 +190,7 @@ public class DriveSupport extends AbstractBlobStoreSupport{
                 }
             } catch( IOException e ) {
                 logger.error("Failed to write file: " + e.getMessage());
+                GoogleCircuitBreaker.rethrow(e);
                 e.printStackTrace();
                 throw new InternalException(e);
             }
@@ -223,6 +229,7 @@ public class DriveSupport extends AbstractBlobStoreSupport{
                 return toBucket(newBucket);
     		} catch (IOException ex) {
     			logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -267,6 +274,7 @@ public class DriveSupport extends AbstractBlobStoreSupport{
                 }
                 return null;
     		} catch (IOException ex) {
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getMessage().contains("404 Not Found"))  {
                     return null;
                 }
@@ -296,6 +304,7 @@ public class DriveSupport extends AbstractBlobStoreSupport{
                 Blob blob = toObject(myObject);
                 return blob;
     		} catch (IOException ex) {
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getMessage().contains("404 Not Found"))  {
                     return null;
                 }
@@ -392,6 +401,7 @@ public class DriveSupport extends AbstractBlobStoreSupport{
                 return false;
     		} catch (IOException ex) {
     			logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -408,51 +418,68 @@ public class DriveSupport extends AbstractBlobStoreSupport{
         return true;
     }
 
-    @Nonnull @Override public Iterable<Blob> list(@Nullable String bucket) throws CloudException, InternalException{
-        APITrace.begin(provider, "Blob.list");
-        try {
-            ProviderContext ctx = provider.getContext();
-            if (ctx == null) {
-                throw new InternalException("Context is null");
-            }
-            try {
-                ArrayList<Blob> list = new ArrayList<Blob>();
-                com.google.api.services.storage.Storage storage = provider.getGoogleStorage();
-                if (bucket == null) {
-                    Buckets buckets = storage.buckets().list(ctx.getAccountNumber()).execute();
-                    if(buckets != null && buckets.getItems() != null){
-                        for (int i = 0; i<buckets.getItems().size(); i++) {
-                            Blob blob = toBucket(buckets.getItems().get(i));
+    /**
+     * Lists the buckets, or the objects of a bucket, a page at a time. Pages after the first are fetched while
+     * iterating, so a failure to fetch one is thrown from the iterator as a {@link PagedIterable.PagingException}.
+     */
+    @Nonnull @Override public Iterable<Blob> list(@Nullable final String bucket) throws CloudException, InternalException{
+        final ProviderContext ctx = provider.getContext();
+        if (ctx == null) {
+            throw new InternalException("Context is null");
+        }
+        final com.google.api.services.storage.Storage storage = provider.getGoogleStorage();
+        if (bucket == null) {
+            return new PagedIterable<Buckets, Blob>(provider, "Blob.list") {
+                @Override
+                protected Buckets fetch(String pageToken) throws IOException {
+                    return storage.buckets().list(ctx.getAccountNumber()).setPageToken(pageToken).execute();
+                }
+
+                @Override
+                protected String getNextPageToken(@Nonnull Buckets page) {
+                    return page.getNextPageToken();
+                }
+
+                @Override
+                protected @Nonnull Iterable<Blob> getItems(@Nonnull Buckets buckets) throws CloudException, InternalException {
+                    ArrayList<Blob> list = new ArrayList<Blob>();
+                    if (buckets.getItems() != null) {
+                        for (Bucket b : buckets.getItems()) {
+                            Blob blob = toBucket(b);
                             if (blob != null) {
                                 list.add(blob);
                             }
                         }
                     }
+                    return list;
                 }
-                else {
-                    Objects objects = storage.objects().list(bucket).execute();
-                    if (objects.getItems() != null) {
-                        for (int i = 0; i<objects.getItems().size(); i++) {
-                            Blob blob = toObject(objects.getItems().get(i));
-                            if (blob != null) {
-                                list.add(blob);
-                            }
+            }.load();
+        }
+        return new PagedIterable<Objects, Blob>(provider, "Blob.list") {
+            @Override
+            protected Objects fetch(String pageToken) throws IOException {
+                return storage.objects().list(bucket).setPageToken(pageToken).execute();
+            }
+
+            @Override
+            protected String getNextPageToken(@Nonnull Objects page) {
+                return page.getNextPageToken();
+            }
+
+            @Override
+            protected @Nonnull Iterable<Blob> getItems(@Nonnull Objects objects) throws CloudException, InternalException {
+                ArrayList<Blob> list = new ArrayList<Blob>();
+                if (objects.getItems() != null) {
+                    for (StorageObject object : objects.getItems()) {
+                        Blob blob = toObject(object);
+                        if (blob != null) {
+                            list.add(blob);
                         }
                     }
                 }
                 return list;
-    		} catch (IOException ex) {
-    			logger.error(ex.getMessage());
-    			if (ex.getClass() == GoogleJsonResponseException.class) {
-    				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
-    				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
-    			} else
-                    throw new InternalException(ex);
-    		}
-        }
-        finally {
-            APITrace.end();
-        }
+            }
+        }.load();
     }
 
     @Override public void makePublic(@Nonnull String bucket) throws InternalException, CloudException{
@@ -466,6 +493,7 @@ public class DriveSupport extends AbstractBlobStoreSupport{
                 storage.bucketAccessControls().insert(bucket, new BucketAccessControl().setRole("WRITER").setEntity("allUsers"));
     		} catch (IOException ex) {
     			logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -489,6 +517,7 @@ public class DriveSupport extends AbstractBlobStoreSupport{
                 storage.objectAccessControls().insert(bucket, object, new ObjectAccessControl().setEntity("allUsers").setRole("READER"));
     		} catch (IOException ex) {
     			logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -531,6 +560,7 @@ public class DriveSupport extends AbstractBlobStoreSupport{
                 storage.buckets().delete(bucket).execute();
     		} catch (IOException ex) {
     			logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -554,6 +584,7 @@ public class DriveSupport extends AbstractBlobStoreSupport{
                 storage.objects().delete(bucket, object).execute();
     		} catch (IOException ex) {
     			logger.error(ex.getMessage());
+    			GoogleCircuitBreaker.rethrow(ex);
     			if (ex.getClass() == GoogleJsonResponseException.class) {
     				GoogleJsonResponseException gjre = (GoogleJsonResponseException)ex;
     				throw new GoogleException(CloudErrorType.GENERAL, gjre.getStatusCode(), gjre.getContent(), gjre.getDetails().getMessage());
@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.testing.http.MockHttpTransport;
+import org.dasein.cloud.ProviderContext;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the state transitions of the circuits of {@link GoogleCircuitBreaker}. Circuits are shared per project, so
+ * every test uses a project of its own.
+ */
+public class GoogleCircuitBreakerTest {
+    static private final AtomicInteger projects = new AtomicInteger(0);
+
+    static private final long OPEN_MILLIS = 100L;
+
+    private final String project = "breaker-test-" + projects.incrementAndGet();
+
+    private @Nonnull GoogleCircuitBreaker newBreaker(@Nonnull String threshold) {
+        ProviderContext ctx = new ProviderContext(project, "us-central1");
+        Properties props = new Properties();
+
+        props.setProperty(GoogleCircuitBreaker.FAILURE_THRESHOLD, threshold);
+        props.setProperty(GoogleCircuitBreaker.OPEN_MILLIS, String.valueOf(OPEN_MILLIS));
+        ctx.setCustomProperties(props);
+        return new GoogleCircuitBreaker(ctx);
+    }
+
+    private @Nonnull HttpRequest newRequest(@Nonnull String path) throws IOException {
+        return new MockHttpTransport().createRequestFactory().buildGetRequest(new GenericUrl("https://www.googleapis.com/compute/v1/projects/" + project + path));
+    }
+
+    private @Nonnull GoogleCircuitBreaker.Circuit trip(@Nonnull GoogleCircuitBreaker breaker, int failures) throws IOException {
+        GoogleCircuitBreaker.Circuit circuit = null;
+
+        for( int i=0; i<failures; i++ ) {
+            circuit = breaker.acquire(newRequest("/zones/us-central1-a/instances"));
+            assertNotNull(circuit);
+            circuit.onFailure();
+        }
+        assertNotNull(circuit);
+        return circuit;
+    }
+
+    private void assertRejected(@Nonnull GoogleCircuitBreaker breaker) throws IOException {
+        try {
+            breaker.acquire(newRequest("/zones/us-central1-a/instances"));
+            fail("The request was let through an open circuit");
+        }
+        catch( GoogleCircuitBreaker.OpenException expected ) {
+            // the circuit failed fast
+        }
+    }
+
+    @Test
+    public void requestsAreGroupedByApiAndLocation() throws IOException {
+        assertEquals(project + "/compute/zones/us-central1-a", GoogleCircuitBreaker.getCircuitName(project, newRequest("/zones/us-central1-a/instances/vm1")));
+        assertEquals(project + "/compute/regions/us-central1", GoogleCircuitBreaker.getCircuitName(project, newRequest("/regions/us-central1/addresses")));
+        assertEquals(project + "/compute/global", GoogleCircuitBreaker.getCircuitName(project, newRequest("/aggregated/instances")));
+    }
+
+    @Test
+    public void circuitStaysClosedBelowThreshold() throws IOException {
+        GoogleCircuitBreaker.Circuit circuit = trip(newBreaker("3"), 2);
+
+        assertEquals(GoogleCircuitBreaker.State.CLOSED, circuit.getState());
+        assertEquals(2, circuit.getFailureCount());
+    }
+
+    @Test
+    public void successResetsTheFailureRun() throws IOException {
+        GoogleCircuitBreaker breaker = newBreaker("3");
+        GoogleCircuitBreaker.Circuit circuit = trip(breaker, 2);
+
+        circuit.onSuccess();
+        trip(breaker, 2);
+        assertEquals(GoogleCircuitBreaker.State.CLOSED, circuit.getState());
+    }
+
+    @Test
+    public void circuitOpensAtThresholdAndFailsFast() throws IOException {
+        GoogleCircuitBreaker breaker = newBreaker("3");
+        GoogleCircuitBreaker.Circuit circuit = trip(breaker, 3);
+
+        assertEquals(GoogleCircuitBreaker.State.OPEN, circuit.getState());
+        assertEquals(1, circuit.getOpenedCount());
+        assertRejected(breaker);
+        assertEquals(1, circuit.getRejectedCount());
+    }
+
+    @Test
+    public void openCircuitLetsOneProbeThroughAfterOpenPeriod() throws Exception {
+        GoogleCircuitBreaker breaker = newBreaker("3");
+        GoogleCircuitBreaker.Circuit circuit = trip(breaker, 3);
+
+        Thread.sleep(OPEN_MILLIS + 50L);
+        assertSame(circuit, breaker.acquire(newRequest("/zones/us-central1-a/instances")));
+        assertEquals(GoogleCircuitBreaker.State.HALF_OPEN, circuit.getState());
+        // the probe has not reported back yet
+        assertRejected(breaker);
+    }
+
+    @Test
+    public void successfulProbeClosesTheCircuit() throws Exception {
+        GoogleCircuitBreaker breaker = newBreaker("3");
+        GoogleCircuitBreaker.Circuit circuit = trip(breaker, 3);
+
+        Thread.sleep(OPEN_MILLIS + 50L);
+        breaker.acquire(newRequest("/zones/us-central1-a/instances"));
+        circuit.onSuccess();
+        assertEquals(GoogleCircuitBreaker.State.CLOSED, circuit.getState());
+        assertNotNull(breaker.acquire(newRequest("/zones/us-central1-a/instances")));
+    }
+
+    @Test
+    public void failedProbeOpensTheCircuitAgain() throws Exception {
+        GoogleCircuitBreaker breaker = newBreaker("3");
+        GoogleCircuitBreaker.Circuit circuit = trip(breaker, 3);
+
+        Thread.sleep(OPEN_MILLIS + 50L);
+        breaker.acquire(newRequest("/zones/us-central1-a/instances"));
+        circuit.onFailure();
+        assertEquals(GoogleCircuitBreaker.State.OPEN, circuit.getState());
+        // reopening from half-open is not a new opening
+        assertEquals(1, circuit.getOpenedCount());
+        assertRejected(breaker);
+    }
+
+    @Test
+    public void otherLocationsAreNotAffected() throws IOException {
+        GoogleCircuitBreaker breaker = newBreaker("3");
+
+        trip(breaker, 3);
+        assertNotNull(breaker.acquire(newRequest("/zones/us-central1-b/instances")));
+    }
+
+    @Test
+    public void zeroThresholdDisablesBreakers() throws IOException {
+        assertNull(newBreaker("0").acquire(newRequest("/zones/us-central1-a/instances")));
+    }
+
+    @Test
+    public void openExceptionConvertsToCircuitOpenException() throws IOException {
+        GoogleCircuitBreaker breaker = newBreaker("1");
+
+        trip(breaker, 1);
+        try {
+            breaker.acquire(newRequest("/zones/us-central1-a/instances"));
+            fail("The request was let through an open circuit");
+        }
+        catch( GoogleCircuitBreaker.OpenException e ) {
+            try {
+                GoogleCircuitBreaker.rethrow(e);
+                fail("The open circuit was not rethrown");
+            }
+            catch( CircuitOpenException expected ) {
+                assertEquals(project + "/compute/zones/us-central1-a", expected.getCircuit());
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.testing.http.MockHttpTransport;
+import org.dasein.cloud.ProviderContext;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the token buckets and request priorities of {@link GoogleRateLimiter}. Buckets are shared per project, so
+ * every test uses a project of its own.
+ */
+public class GoogleRateLimiterTest {
+    static private final AtomicInteger projects = new AtomicInteger(0);
+
+    static private @Nonnull String newProject() {
+        return "rate-test-" + projects.incrementAndGet();
+    }
+
+    static private @Nonnull GoogleRateLimiter newLimiter(@Nonnull String project, @Nonnull String readRate) {
+        ProviderContext ctx = new ProviderContext(project, "us-central1");
+        Properties props = new Properties();
+
+        props.setProperty(GoogleRateLimiter.COMPUTE_READ_RATE, readRate);
+        ctx.setCustomProperties(props);
+        return new GoogleRateLimiter(ctx);
+    }
+
+    static private @Nonnull HttpRequest newRequest(@Nonnull String method, @Nonnull String path) throws IOException {
+        return new MockHttpTransport().createRequestFactory().buildRequest(method, new GenericUrl("https://www.googleapis.com" + path), null);
+    }
+
+    @Test
+    public void classifiesRequestsByFamily() throws IOException {
+        assertEquals(GoogleRateLimiter.Family.COMPUTE_READ, GoogleRateLimiter.getFamily(newRequest("GET", "/compute/v1/projects/p/zones/z/instances")));
+        assertEquals(GoogleRateLimiter.Family.COMPUTE_WRITE, GoogleRateLimiter.getFamily(newRequest("POST", "/compute/v1/projects/p/zones/z/instances")));
+        assertEquals(GoogleRateLimiter.Family.STORAGE, GoogleRateLimiter.getFamily(newRequest("GET", "/storage/v1beta2/b/bucket/o")));
+        assertEquals(GoogleRateLimiter.Family.STORAGE, GoogleRateLimiter.getFamily(newRequest("POST", "/upload/storage/v1beta2/b/bucket/o")));
+        assertEquals(GoogleRateLimiter.Family.COMPUTE_READ, GoogleRateLimiter.getFamily(newRequest("POST", "/batch")));
+    }
+
+    @Test
+    public void burstIsLetThroughWithoutWaiting() throws IOException {
+        String project = newProject();
+        GoogleRateLimiter limiter = newLimiter(project, "5");
+
+        for( int i=0; i<5; i++ ) {
+            limiter.intercept(newRequest("GET", "/compute/v1/projects/" + project + "/zones"));
+        }
+        GoogleRateLimiter.Bucket bucket = GoogleRateLimiter.getBucket(project, GoogleRateLimiter.Family.COMPUTE_READ);
+
+        assertNotNull(bucket);
+        assertEquals(5, bucket.getAcquiredCount());
+        assertEquals(0, bucket.getDelayedCount());
+    }
+
+    @Test
+    public void requestBeyondBurstWaitsForRefill() throws IOException {
+        String project = newProject();
+        GoogleRateLimiter limiter = newLimiter(project, "5");
+
+        for( int i=0; i<5; i++ ) {
+            limiter.intercept(newRequest("GET", "/compute/v1/projects/" + project + "/zones"));
+        }
+        long start = System.currentTimeMillis();
+
+        limiter.intercept(newRequest("GET", "/compute/v1/projects/" + project + "/zones"));
+        long elapsed = System.currentTimeMillis() - start;
+        GoogleRateLimiter.Bucket bucket = GoogleRateLimiter.getBucket(project, GoogleRateLimiter.Family.COMPUTE_READ);
+
+        assertNotNull(bucket);
+        assertEquals(6, bucket.getAcquiredCount());
+        assertEquals(1, bucket.getDelayedCount());
+        // one token takes 200ms to refill at 5 requests per second
+        assertTrue("Waited only " + elapsed + "ms", elapsed >= 150L);
+        assertTrue(bucket.getMaxWaitMillis() >= 150L);
+    }
+
+    @Test
+    public void zeroRateDisablesLimiting() throws IOException {
+        String project = newProject();
+        GoogleRateLimiter limiter = newLimiter(project, "0");
+
+        for( int i=0; i<20; i++ ) {
+            limiter.intercept(newRequest("GET", "/compute/v1/projects/" + project + "/zones"));
+        }
+        assertNull(GoogleRateLimiter.getBucket(project, GoogleRateLimiter.Family.COMPUTE_READ));
+    }
+
+    @Test
+    public void interactiveRequestOvertakesQueuedBulkRequest() throws Exception {
+        final String project = newProject();
+        final GoogleRateLimiter limiter = newLimiter(project, "2");
+        final List<GoogleRateLimiter.Priority> order = Collections.synchronizedList(new ArrayList<GoogleRateLimiter.Priority>());
+
+        // drain the burst so both requests below have to queue
+        for( int i=0; i<2; i++ ) {
+            limiter.intercept(newRequest("GET", "/compute/v1/projects/" + project + "/zones"));
+        }
+        Thread bulk = newRequestThread(limiter, project, GoogleRateLimiter.Priority.BULK, order);
+        Thread interactive = newRequestThread(limiter, project, GoogleRateLimiter.Priority.INTERACTIVE, order);
+
+        bulk.start();
+        Thread.sleep(100L);
+        interactive.start();
+        bulk.join(5000L);
+        interactive.join(5000L);
+        assertEquals(2, order.size());
+        assertEquals(GoogleRateLimiter.Priority.INTERACTIVE, order.get(0));
+        assertEquals(GoogleRateLimiter.Priority.BULK, order.get(1));
+    }
+
+    @Test
+    public void threadPriorityIsClearedPerThread() {
+        GoogleRateLimiter.setThreadPriority(GoogleRateLimiter.Priority.BULK);
+        try {
+            assertEquals(GoogleRateLimiter.Priority.BULK, GoogleRateLimiter.getThreadPriority());
+        }
+        finally {
+            GoogleRateLimiter.clearThreadPriority();
+        }
+        assertNull(GoogleRateLimiter.getThreadPriority());
+    }
+
+    @Test
+    public void submittedTaskRunsAtTheSubmitterPriority() throws Exception {
+        final List<GoogleRateLimiter.Priority> seen = Collections.synchronizedList(new ArrayList<GoogleRateLimiter.Priority>());
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Runnable task = new Runnable() {
+            public void run() {
+                seen.add(GoogleRateLimiter.getThreadPriority());
+            }
+        };
+
+        try {
+            GoogleRateLimiter.setThreadPriority(GoogleRateLimiter.Priority.BULK);
+            try {
+                pool.submit(GoogleRateLimiter.withThreadPriority(task)).get();
+            }
+            finally {
+                GoogleRateLimiter.clearThreadPriority();
+            }
+            // the pool thread does not keep the priority for later tasks
+            pool.submit(task).get();
+        }
+        finally {
+            pool.shutdown();
+        }
+        assertEquals(Arrays.asList(GoogleRateLimiter.Priority.BULK, null), seen);
+    }
+
+    private @Nonnull Thread newRequestThread(@Nonnull final GoogleRateLimiter limiter, @Nonnull final String project, @Nonnull final GoogleRateLimiter.Priority priority, @Nonnull final List<GoogleRateLimiter.Priority> order) {
+        return new Thread(new Runnable() {
+            public void run() {
+                GoogleRateLimiter.setThreadPriority(priority);
+                try {
+                    limiter.intercept(newRequest("GET", "/compute/v1/projects/" + project + "/zones"));
+                    order.add(priority);
+                }
+                catch( IOException e ) {
+                    throw new RuntimeException(e);
+                }
+                finally {
+                    GoogleRateLimiter.clearThreadPriority();
+                }
+            }
+        }, "rate-test-" + priority);
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.testing.http.MockHttpTransport;
+import org.dasein.cloud.ProviderContext;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the backoff delays, retry decisions and retry budget of {@link GoogleRetryPolicy}. Statistics are shared
+ * per endpoint, so every test that sends requests uses an endpoint of its own.
+ */
+public class GoogleRetryPolicyTest {
+    static private final AtomicInteger endpoints = new AtomicInteger(0);
+
+    static private @Nonnull GoogleRetryPolicy newPolicy(@Nonnull String maxAttempts) {
+        ProviderContext ctx = new ProviderContext("retry-test", "us-central1");
+        Properties props = new Properties();
+
+        props.setProperty(GoogleRetryPolicy.MAX_ATTEMPTS, maxAttempts);
+        ctx.setCustomProperties(props);
+        return new GoogleRetryPolicy(ctx);
+    }
+
+    static private @Nonnull HttpRequest newRequest(@Nonnull String method) throws IOException {
+        // a collection of its own gives the request an endpoint no other test uses
+        String path = "/compute/v1/projects/p/zones/z/retry" + endpoints.incrementAndGet();
+
+        return new MockHttpTransport().createRequestFactory().buildRequest(method, new GenericUrl("https://www.googleapis.com" + path), null);
+    }
+
+    @Test
+    public void firstDelayIsBetweenBaseAndThreeTimesBase() {
+        assertEquals(GoogleRetryPolicy.BASE_DELAY, GoogleRetryPolicy.getDelay(GoogleRetryPolicy.BASE_DELAY, 0.0));
+        assertEquals(GoogleRetryPolicy.BASE_DELAY * 2, GoogleRetryPolicy.getDelay(GoogleRetryPolicy.BASE_DELAY, 0.5));
+        assertTrue(GoogleRetryPolicy.getDelay(GoogleRetryPolicy.BASE_DELAY, 0.999) < GoogleRetryPolicy.BASE_DELAY * 3);
+    }
+
+    @Test
+    public void delayGrowsFromThePreviousDelay() {
+        assertEquals(GoogleRetryPolicy.BASE_DELAY, GoogleRetryPolicy.getDelay(1000L, 0.0));
+        assertEquals(1600L, GoogleRetryPolicy.getDelay(1000L, 0.5));
+    }
+
+    @Test
+    public void delayIsCapped() {
+        assertEquals(GoogleRetryPolicy.MAX_DELAY, GoogleRetryPolicy.getDelay(GoogleRetryPolicy.MAX_DELAY, 0.999));
+        assertEquals(GoogleRetryPolicy.MAX_DELAY, GoogleRetryPolicy.getDelay(GoogleRetryPolicy.MAX_DELAY * 10, 0.5));
+    }
+
+    @Test
+    public void invalidMaxAttemptsFallsBackToDefault() {
+        assertEquals(5, newPolicy("many").getMaxAttempts());
+        assertEquals(1, newPolicy("0").getMaxAttempts());
+    }
+
+    @Test
+    public void clientErrorsAreNeverRetried() throws IOException {
+        GoogleRetryPolicy.Attempts attempts = newPolicy("5").start(newRequest("GET"));
+
+        attempts.beforeAttempt();
+        assertFalse(attempts.shouldRetry(400));
+        assertFalse(attempts.shouldRetry(404));
+    }
+
+    @Test
+    public void serverErrorsAreRetriedOnlyForIdempotentRequests() throws IOException {
+        GoogleRetryPolicy policy = newPolicy("5");
+        GoogleRetryPolicy.Attempts post = policy.start(newRequest("POST"));
+        GoogleRetryPolicy.Attempts get = policy.start(newRequest("GET"));
+
+        post.beforeAttempt();
+        assertFalse(post.shouldRetry(500));
+        assertFalse(post.shouldRetryIOException());
+        get.beforeAttempt();
+        assertTrue(get.shouldRetry(500));
+    }
+
+    @Test
+    public void rejectedRequestsAreRetriedForEveryMethod() throws IOException {
+        GoogleRetryPolicy.Attempts post = newPolicy("5").start(newRequest("POST"));
+
+        post.beforeAttempt();
+        assertTrue(post.shouldRetry(503));
+    }
+
+    @Test
+    public void retriesStopAfterMaxAttempts() throws IOException {
+        HttpRequest request = newRequest("GET");
+        GoogleRetryPolicy.Attempts attempts = newPolicy("2").start(request);
+
+        attempts.beforeAttempt();
+        assertTrue(attempts.shouldRetry(503));
+        attempts.beforeAttempt();
+        assertFalse(attempts.shouldRetry(503));
+
+        GoogleRetryPolicy.EndpointStats stats = GoogleRetryPolicy.getStats(GoogleEndpoint.getEndpoint(request));
+
+        assertNotNull(stats);
+        assertEquals(1, stats.getRequestCount());
+        assertEquals(1, stats.getRetryCount());
+        assertEquals(1, stats.getExhaustedCount());
+    }
+
+    @Test
+    public void nothingIsRetriedBeforeTheFirstAttempt() throws IOException {
+        assertFalse(newPolicy("5").start(newRequest("GET")).shouldRetry(503));
+    }
+
+    @Test
+    public void budgetAllowsTenRetriesThenOnlyATenthPerRequest() {
+        GoogleRetryPolicy.EndpointStats stats = GoogleRetryPolicy.getEndpointStats("GET budget-test/" + endpoints.incrementAndGet());
+
+        for( int i=0; i<10; i++ ) {
+            assertTrue(stats.spendBudget());
+        }
+        assertFalse(stats.spendBudget());
+        for( int i=0; i<9; i++ ) {
+            stats.requestStarted();
+        }
+        assertFalse(stats.spendBudget());
+        // allow for rounding in the ten increments
+        stats.requestStarted();
+        stats.requestStarted();
+        assertTrue(stats.spendBudget());
+        assertFalse(stats.spendBudget());
+    }
+
+    @Test
+    public void budgetIsCapped() {
+        GoogleRetryPolicy.EndpointStats stats = GoogleRetryPolicy.getEndpointStats("GET budget-test/" + endpoints.incrementAndGet());
+
+        for( int i=0; i<1000; i++ ) {
+            stats.requestStarted();
+        }
+        for( int i=0; i<10; i++ ) {
+            assertTrue(stats.spendBudget());
+        }
+        assertFalse(stats.spendBudget());
+    }
+}
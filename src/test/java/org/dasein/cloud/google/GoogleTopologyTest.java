@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.compute.Compute;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests how {@link GoogleTopology} reloads its index when asked for zones it does not know, against a Compute
+ * client whose zone and region lists are served from memory.
+ */
+public class GoogleTopologyTest {
+    static private final String REGION_URL = "https://www.googleapis.com/compute/v1/projects/topology-test/regions/us-central1";
+
+    /**
+     * Serves the zones of a single region, counting the zone lists and optionally slowing them down.
+     */
+    static private class TopologyTransport extends MockHttpTransport {
+        private volatile List<String> zones = Arrays.asList("us-central1-a", "us-central1-b");
+        private volatile long         delay = 0L;
+        private final AtomicInteger   zoneLists = new AtomicInteger(0);
+
+        @Override
+        public LowLevelHttpRequest buildRequest(String method, final String url) {
+            return new MockLowLevelHttpRequest() {
+                @Override
+                public LowLevelHttpResponse execute() throws IOException {
+                    MockLowLevelHttpResponse response = new MockLowLevelHttpResponse();
+                    StringBuilder json = new StringBuilder("{\"items\":[");
+
+                    if( url.contains("/zones") ) {
+                        zoneLists.incrementAndGet();
+                        pause();
+                        for( String zone : zones ) {
+                            if( json.charAt(json.length() - 1) != '[' ) {
+                                json.append(",");
+                            }
+                            json.append("{\"name\":\"").append(zone).append("\",\"status\":\"UP\",\"region\":\"").append(REGION_URL).append("\"}");
+                        }
+                    }
+                    else {
+                        json.append("{\"name\":\"us-central1\",\"status\":\"UP\"}");
+                    }
+                    json.append("]}");
+                    response.setContentType(Json.MEDIA_TYPE);
+                    response.setContent(json.toString());
+                    return response;
+                }
+            };
+        }
+
+        private void pause() throws IOException {
+            if( delay > 0L ) {
+                try {
+                    Thread.sleep(delay);
+                }
+                catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted");
+                }
+            }
+        }
+    }
+
+    private TopologyTransport transport;
+    private GoogleTopology    topology;
+
+    @Before
+    public void setUp() {
+        transport = new TopologyTransport();
+        Compute compute = new Compute.Builder(transport, new JacksonFactory(), null).setApplicationName("topology-test").build();
+
+        topology = new GoogleTopology("topology-test", 60L, compute);
+    }
+
+    @Test
+    public void indexIsLoadedOnFirstLookup() throws Exception {
+        assertEquals("us-central1", topology.getRegionForZone("us-central1-a"));
+        assertEquals(Arrays.asList("us-central1-a", "us-central1-b"), topology.getZonesInRegion("us-central1"));
+        assertEquals(1, topology.getLoadCount());
+    }
+
+    @Test
+    public void knownZoneDoesNotReload() throws Exception {
+        assertNotNull(topology.findZone("zones/us-central1-b"));
+        assertEquals(1, topology.getLoadCount());
+        assertEquals(0, topology.getMissReloadCount());
+    }
+
+    @Test
+    public void newZoneIsFoundByReloading() throws Exception {
+        topology.getZones();
+        transport.zones = Arrays.asList("us-central1-a", "us-central1-b", "us-central1-c");
+        assertEquals("us-central1", topology.findRegionForZone("us-central1-c"));
+        assertEquals(2, topology.getLoadCount());
+        assertEquals(1, topology.getMissReloadCount());
+    }
+
+    @Test
+    public void unknownZoneIsRememberedAfterReload() throws Exception {
+        assertNull(topology.findZone("us-central1-z"));
+        assertNull(topology.findZone("us-central1-z"));
+        assertNull(topology.findZone("us-central1-z"));
+        assertEquals(1, topology.getMissReloadCount());
+        assertEquals(2, topology.getNegativeHitCount());
+    }
+
+    @Test
+    public void concurrentMissesShareOneReload() throws Exception {
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<String> found = Collections.synchronizedList(new ArrayList<String>());
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> workers = new ArrayList<Thread>();
+
+        topology.getZones();
+        transport.zones = Arrays.asList("us-central1-a", "us-central1-b", "us-central1-c");
+        transport.delay = 200L;
+        for( int i=0; i<threads; i++ ) {
+            Thread t = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        found.add(topology.findRegionForZone("us-central1-c"));
+                    }
+                    catch( Throwable e ) {
+                        errors.add(e);
+                    }
+                }
+            });
+
+            t.start();
+            workers.add(t);
+        }
+        start.countDown();
+        for( Thread t : workers ) {
+            t.join(10000L);
+        }
+        assertEquals(Collections.<Throwable>emptyList(), errors);
+        assertEquals(Collections.nCopies(threads, "us-central1"), found);
+        assertEquals(1, topology.getMissReloadCount());
+        assertEquals(2, transport.zoneLists.get());
+    }
+
+    @Test
+    public void toNameStripsPathsAndLinks() {
+        assertEquals("us-central1-a", GoogleTopology.toName("us-central1-a"));
+        assertEquals("us-central1-a", GoogleTopology.toName("zones/us-central1-a"));
+        assertEquals("us-central1", GoogleTopology.toName(REGION_URL));
+    }
+}
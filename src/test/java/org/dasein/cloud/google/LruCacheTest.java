@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the time to live and the least recently used eviction of {@link LruCache}.
+ */
+public class LruCacheTest {
+    static private final long TTL = 60000L;
+
+    @Test
+    public void cachedValueIsReturned() {
+        LruCache<String> cache = new LruCache<String>("test", 10);
+
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a", TTL));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void missingValueIsAMiss() {
+        LruCache<String> cache = new LruCache<String>("test", 10);
+
+        assertNull(cache.get("a", TTL));
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void expiredValueIsDropped() throws InterruptedException {
+        LruCache<String> cache = new LruCache<String>("test", 10);
+
+        cache.put("a", "1");
+        Thread.sleep(20L);
+        assertNull(cache.get("a", 10L));
+        assertEquals(1, cache.getExpirationCount());
+        assertEquals(0, cache.size());
+        // a longer time to live no longer finds the dropped value
+        assertNull(cache.get("a", TTL));
+    }
+
+    @Test
+    public void timeToLiveIsGivenPerLookup() throws InterruptedException {
+        LruCache<String> cache = new LruCache<String>("test", 10);
+
+        cache.put("a", "1");
+        Thread.sleep(20L);
+        assertEquals("1", cache.get("a", TTL));
+        assertNull(cache.get("a", 10L));
+    }
+
+    @Test
+    public void leastRecentlyUsedValueIsEvicted() {
+        LruCache<String> cache = new LruCache<String>("test", 2);
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        // reading a makes b the least recently used
+        cache.get("a", TTL);
+        cache.put("c", "3");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("b", TTL));
+        assertEquals("1", cache.get("a", TTL));
+        assertEquals("3", cache.get("c", TTL));
+    }
+
+    @Test
+    public void replacingAValueDoesNotEvict() {
+        LruCache<String> cache = new LruCache<String>("test", 2);
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("a", "3");
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+        assertEquals("3", cache.get("a", TTL));
+    }
+
+    @Test
+    public void invalidatedValueIsDropped() {
+        LruCache<String> cache = new LruCache<String>("test", 10);
+
+        cache.put("a", "1");
+        cache.invalidate("a");
+        assertNull(cache.get("a", TTL));
+        assertEquals(0, cache.size());
+    }
+}
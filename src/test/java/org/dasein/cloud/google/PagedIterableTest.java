@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2012-2013 Dell, Inc
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.google;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the lazy paging and the error reporting of {@link PagedIterable} against an in-memory list of pages.
+ */
+public class PagedIterableTest {
+    /**
+     * Pages through a fixed list of pages, each identified by its index, optionally failing one of them.
+     */
+    static private class TestPages extends PagedIterable<Integer,String> {
+        private final List<List<String>> pages;
+        private int                      failFetchAt = -1;
+        private int                      failItemsAt = -1;
+        private String                   lastToken   = null;
+        private int                      fetches     = 0;
+
+        private TestPages(@Nonnull List<List<String>> pages) {
+            super(new Google(), "test");
+            this.pages = pages;
+        }
+
+        @Override
+        protected @Nullable Integer fetch(@Nullable String pageToken) throws IOException {
+            int index = (pageToken == null ? 0 : Integer.parseInt(pageToken));
+
+            fetches++;
+            if( index == failFetchAt ) {
+                throw new IOException("page " + index + " is unavailable");
+            }
+            return (pages.isEmpty() ? null : index);
+        }
+
+        @Override
+        protected @Nullable String getNextPageToken(@Nonnull Integer page) {
+            return (page + 1 < pages.size() ? String.valueOf(page + 1) : lastToken);
+        }
+
+        @Override
+        protected @Nonnull Iterable<String> getItems(@Nonnull Integer page) throws InternalException {
+            if( page == failItemsAt ) {
+                throw new InternalException("page " + page + " could not be converted");
+            }
+            return pages.get(page);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static private @Nonnull TestPages newPages() {
+        return new TestPages(Arrays.asList(Arrays.asList("a", "b"), new ArrayList<String>(), Arrays.asList("c")));
+    }
+
+    @Test
+    public void itemsOfEveryPageAreReturnedInOrder() throws CloudException, InternalException {
+        assertEquals(Arrays.asList("a", "b", "c"), PagedIterable.toList(newPages().load()));
+    }
+
+    @Test
+    public void loadFetchesOnlyTheFirstPage() throws CloudException, InternalException {
+        TestPages pages = newPages();
+
+        pages.load();
+        assertEquals(1, pages.fetches);
+    }
+
+    @Test
+    public void laterPagesAreFetchedOnlyWhenReached() throws CloudException, InternalException {
+        TestPages pages = newPages();
+        Iterator<String> it = pages.load().iterator();
+
+        assertEquals("a", it.next());
+        assertEquals("b", it.next());
+        assertEquals(1, pages.fetches);
+        assertEquals("c", it.next());
+        assertEquals(3, pages.fetches);
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void emptyPageTokenEndsTheListing() throws CloudException, InternalException {
+        TestPages pages = newPages();
+
+        pages.lastToken = "";
+        assertEquals(Arrays.asList("a", "b", "c"), PagedIterable.toList(pages.load()));
+    }
+
+    @Test
+    public void onlyThePageWithoutNextTokenIsLast() {
+        TestPages pages = newPages();
+
+        assertFalse(pages.isLastPage(0));
+        assertFalse(pages.isLastPage(1));
+        assertTrue(pages.isLastPage(2));
+        pages.lastToken = "";
+        assertTrue(pages.isLastPage(2));
+    }
+
+    @Test
+    public void nothingToListIsEmpty()throws CloudException, InternalException {
+        assertTrue(PagedIterable.toList(new TestPages(new ArrayList<List<String>>()).load()).isEmpty());
+    }
+
+    @Test
+    public void firstPageFailureIsThrownFromLoad() throws InternalException {
+        TestPages pages = newPages();
+
+        pages.failFetchAt = 0;
+        try {
+            pages.load();
+            fail("The first page did not fail");
+        }
+        catch( CloudException expected ) {
+            assertTrue(expected.getMessage().contains("page 0 is unavailable"));
+        }
+    }
+
+    @Test
+    public void laterPageFailureIsThrownFromTheIterator() throws CloudException, InternalException {
+        TestPages pages = newPages();
+        Iterator<String> it;
+
+        pages.failFetchAt = 2;
+        it = pages.load().iterator();
+        assertEquals("a", it.next());
+        assertEquals("b", it.next());
+        try {
+            it.hasNext();
+            fail("The third page did not fail");
+        }
+        catch( PagedIterable.PagingException expected ) {
+            assertTrue(expected.getCause() instanceof CloudException);
+        }
+    }
+
+    @Test
+    public void toListRethrowsTheCheckedCause() throws InternalException {
+        TestPages pages = newPages();
+
+        pages.failFetchAt = 2;
+        try {
+            PagedIterable.toList(pages.load());
+            fail("The third page did not fail");
+        }
+        catch( CloudException expected ) {
+            assertTrue(expected.getMessage().contains("page 2 is unavailable"));
+        }
+    }
+
+    @Test
+    public void conversionFailureIsRethrownAsInternalException() throws CloudException {
+        TestPages pages = newPages();
+
+        pages.failItemsAt = 2;
+        try {
+            PagedIterable.toList(pages.load());
+            fail("The third page was converted");
+        }
+        catch( InternalException expected ) {
+            assertEquals("page 2 could not be converted", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void iterableCanBeIteratedAgain() throws CloudException, InternalException {
+        TestPages pages = newPages();
+
+        pages.load();
+        assertEquals(PagedIterable.toList(pages), PagedIterable.toList(pages));
+    }
+}